@@ -7,7 +7,10 @@ import java.util.List;
 import soot.Transform;
 import soot.jimple.infoflow.entryPointCreators.DefaultEntryPointCreator;
 import soot.jimple.infoflow.entryPointCreators.IEntryPointCreator;
+import soot.jimple.infoflow.solver.IInfoflowSolverFactory;
+import soot.jimple.infoflow.solver.fastSolver.FastSolverFactory;
 import soot.jimple.infoflow.source.DefaultSourceSinkManager;
+import soot.jimple.infoflow.source.ISourceSinkManager;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
 
 /**
@@ -32,9 +35,33 @@ public abstract class AbstractInfoflow implements IInfoflow {
 	
 	protected final BiDirICFGFactory icfgFactory;
 	protected int maxThreadNum = -1;
+	protected int runToCompletionBudget = 0;
+	protected boolean compactJumpFunctions = false;
+	protected boolean enableJumpFunctionGC = false;
+	protected String summaryCacheFile = null;
+	protected boolean incrementalAnalysis = false;
+	protected long dataFlowTimeout = 0;
+	protected long maxPropagationCount = 0;
+	protected long maxHeapUsage = 0;
+	protected int maxForwardQueueDepth = 0;
+	protected int maxBackwardQueueDepth = 0;
+	protected IInfoflowSolverFactory solverFactory = new FastSolverFactory();
+	protected InfoflowQuery query = null;
+	protected long partitionHeapBudget = 0;
+	protected boolean bottomUpSummaries = false;
+	protected boolean sparsePropagation = false;
+	protected String checkpointFile = null;
+	protected long checkpointInterval = 600;
+	protected boolean checkpointPartitioning = false;
+	protected boolean sourceOnlyPropagation = false;
+	protected int adaptiveAccessPathThreshold = 0;
+	
+	protected volatile boolean running = false;
+	protected volatile boolean cancelled = false;
 
 	protected CallgraphAlgorithm callgraphAlgorithm = /*CallgraphAlgorithm.OnDemand;*/ CallgraphAlgorithm.AutomaticSelection;
 	protected AliasingAlgorithm aliasingAlgorithm = AliasingAlgorithm.FlowSensitive;
+	protected SchedulingStrategy schedulingStrategy = SchedulingStrategy.SharedQueue;
 	
 	protected Collection<Transform> preProcessors = Collections.emptyList();
     
@@ -95,6 +122,51 @@ public abstract class AbstractInfoflow implements IInfoflow {
 		this.computeInfoflow(appPath, libPath, entryPoint, new DefaultSourceSinkManager(sources, sinks));
 	}
 	
+	@Override
+	public InfoflowTask computeInfoflowAsync(final String appPath, final String libPath,
+			final IEntryPointCreator entryPointCreator,
+			final ISourceSinkManager sourcesSinks) {
+		return startTask(new Runnable() {
+
+			@Override
+			public void run() {
+				computeInfoflow(appPath, libPath, entryPointCreator, sourcesSinks);
+			}
+
+		});
+	}
+
+	@Override
+	public InfoflowTask computeInfoflowAsync(String appPath, String libPath,
+			List<String> entryPoints,
+			List<String> sources, List<String> sinks) {
+		return computeInfoflowAsync(appPath, libPath, new DefaultEntryPointCreator(entryPoints),
+				new DefaultSourceSinkManager(sources, sinks));
+	}
+
+	/**
+	 * Starts the given analysis on a background thread
+	 * @param analysis The code that runs the analysis
+	 * @return The handle for the running analysis
+	 */
+	private InfoflowTask startTask(Runnable analysis) {
+		if (running)
+			throw new IllegalStateException("An analysis is already running on this object");
+		
+		// Mark the analysis as running before the thread starts, so that we
+		// do not lose early cancellations
+		running = true;
+		InfoflowTask task = new InfoflowTask(this, analysis);
+		task.start();
+		return task;
+	}
+
+	@Override
+	public void cancel() {
+		if (running)
+			cancelled = true;
+	}
+
 	@Override
 	public void setInspectSources(boolean inspect) {
 		inspectSources = inspect;
@@ -145,6 +217,111 @@ public abstract class AbstractInfoflow implements IInfoflow {
 		this.maxThreadNum = threadNum;
 	}
 
+	@Override
+	public void setSchedulingStrategy(SchedulingStrategy strategy) {
+		this.schedulingStrategy = strategy;
+	}
+
+	@Override
+	public void setRunToCompletionBudget(int budget) {
+		this.runToCompletionBudget = budget;
+	}
+
+	@Override
+	public void setCompactJumpFunctions(boolean compactJumpFunctions) {
+		this.compactJumpFunctions = compactJumpFunctions;
+	}
+
+	@Override
+	public void setEnableJumpFunctionGC(boolean enableJumpFunctionGC) {
+		this.enableJumpFunctionGC = enableJumpFunctionGC;
+	}
+
+	@Override
+	public void setSummaryCacheFile(String summaryCacheFile) {
+		this.summaryCacheFile = summaryCacheFile;
+	}
+
+	@Override
+	public void setIncrementalAnalysis(boolean incrementalAnalysis) {
+		this.incrementalAnalysis = incrementalAnalysis;
+	}
+
+	@Override
+	public void setDataFlowTimeout(long dataFlowTimeout) {
+		this.dataFlowTimeout = dataFlowTimeout;
+	}
+
+	@Override
+	public void setMaxPropagationCount(long maxPropagationCount) {
+		this.maxPropagationCount = maxPropagationCount;
+	}
+
+	@Override
+	public void setMaxHeapUsage(long maxHeapUsage) {
+		this.maxHeapUsage = maxHeapUsage;
+	}
+
+	@Override
+	public void setMaxForwardQueueDepth(int maxQueueDepth) {
+		this.maxForwardQueueDepth = maxQueueDepth;
+	}
+
+	@Override
+	public void setMaxBackwardQueueDepth(int maxQueueDepth) {
+		this.maxBackwardQueueDepth = maxQueueDepth;
+	}
+
+	@Override
+	public void setSolverFactory(IInfoflowSolverFactory solverFactory) {
+		this.solverFactory = solverFactory;
+	}
+
+	@Override
+	public void setQuery(InfoflowQuery query) {
+		this.query = query;
+	}
+
+	@Override
+	public void setPartitionHeapBudget(long partitionHeapBudget) {
+		this.partitionHeapBudget = partitionHeapBudget;
+	}
+
+	@Override
+	public void setBottomUpSummaries(boolean bottomUpSummaries) {
+		this.bottomUpSummaries = bottomUpSummaries;
+	}
+
+	@Override
+	public void setSparsePropagation(boolean sparsePropagation) {
+		this.sparsePropagation = sparsePropagation;
+	}
+
+	@Override
+	public void setCheckpointFile(String checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	@Override
+	public void setCheckpointInterval(long checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	@Override
+	public void setCheckpointPartitioning(boolean checkpointPartitioning) {
+		this.checkpointPartitioning = checkpointPartitioning;
+	}
+
+	@Override
+	public void setSourceOnlyPropagation(boolean sourceOnlyPropagation) {
+		this.sourceOnlyPropagation = sourceOnlyPropagation;
+	}
+
+	@Override
+	public void setAdaptiveAccessPathThreshold(int threshold) {
+		this.adaptiveAccessPathThreshold = threshold;
+	}
+
 	@Override
 	public void setIgnoreFlowsInSystemPackages(boolean ignoreFlowsInSystemPackages) {
 		this.ignoreFlowsInSystemPackages = ignoreFlowsInSystemPackages;
@@ -0,0 +1,319 @@
+package soot.jimple.infoflow;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.Local;
+import soot.Scene;
+import soot.SootMethod;
+import soot.Unit;
+import soot.Value;
+import soot.ValueBox;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.InfoflowResults.SinkInfo;
+import soot.jimple.infoflow.InfoflowResults.SourceInfo;
+import soot.jimple.infoflow.summaries.AbstractionEncoder;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+/**
+ * Checkpoint of a data flow analysis that solves its seeds in partitions.
+ * The checkpoint records all seeds of the analysis, how many of them have
+ * already been solved, and the results found for these seeds. Statements
+ * are stored by the signature of their method and their index in the
+ * method's body, so that a checkpoint can be loaded against a Scene that
+ * has been rebuilt from the same program.
+ *
+ * The user data attached to the sources is not stored, since it need not be
+ * serializable. Results loaded from a checkpoint have no user data.
+ */
+public class AnalysisCheckpoint {
+
+	private static final Logger logger = LoggerFactory.getLogger(AnalysisCheckpoint.class);
+
+	private static final String HEADER = "# FlowDroid analysis checkpoint";
+	private static final String CONFIG_PREFIX = "config\t";
+	private static final String SEED_PREFIX = "seed\t";
+	private static final String DONE_PREFIX = "done\t";
+	private static final String SINK_PREFIX = "sink\t";
+	private static final String SOURCE_PREFIX = "source\t";
+	private static final String PATH_PREFIX = "path\t";
+
+	private static final String BOX_PREFIX = "b";
+	private static final String LOCAL_PREFIX = "l";
+
+	private final String configuration;
+	private final List<Unit> seeds;
+	private final int doneSeedCount;
+	private final InfoflowResults results;
+
+	/**
+	 * Creates a new instance of the {@link AnalysisCheckpoint} class
+	 * @param configuration A string describing the configuration of the
+	 * data flow analysis
+	 * @param seeds All seeds of the data flow analysis in the order in which
+	 * they are solved
+	 * @param doneSeedCount The number of seeds at the beginning of the list
+	 * that have already been solved
+	 * @param results The results found for the solved seeds
+	 */
+	public AnalysisCheckpoint(String configuration, List<Unit> seeds, int doneSeedCount,
+			InfoflowResults results) {
+		this.configuration = configuration;
+		this.seeds = seeds;
+		this.doneSeedCount = doneSeedCount;
+		this.results = results;
+	}
+
+	public String getConfiguration() {
+		return this.configuration;
+	}
+
+	public List<Unit> getSeeds() {
+		return Collections.unmodifiableList(this.seeds);
+	}
+
+	public int getDoneSeedCount() {
+		return this.doneSeedCount;
+	}
+
+	public InfoflowResults getResults() {
+		return this.results;
+	}
+
+	/**
+	 * Loads a checkpoint from the given file
+	 * @param file The file from which to load the checkpoint
+	 * @param configuration A string describing the configuration of the
+	 * current data flow analysis
+	 * @param icfg The interprocedural control flow graph of the current
+	 * program
+	 * @return The checkpoint, or null if the file does not exist, was created
+	 * with a different configuration, or does not match the current program
+	 */
+	public static AnalysisCheckpoint load(File file, String configuration,
+			BiDiInterproceduralCFG<Unit, SootMethod> icfg) {
+		if (!file.exists())
+			return null;
+
+		AbstractionEncoder encoder = new AbstractionEncoder();
+		BufferedReader rdr = null;
+		try {
+			rdr = new BufferedReader(new FileReader(file));
+			String line = rdr.readLine();
+			if (!HEADER.equals(line))
+				throw new IOException("Invalid checkpoint file header");
+			line = rdr.readLine();
+			if (line == null || !line.equals(CONFIG_PREFIX + configuration)) {
+				logger.info("Checkpoint {} was created with a different configuration, "
+						+ "ignoring it", file);
+				return null;
+			}
+
+			List<Unit> seeds = new ArrayList<Unit>();
+			int doneSeedCount = 0;
+			InfoflowResults results = new InfoflowResults();
+			SinkInfo curSink = null;
+			Value curSource = null;
+			Stmt curSourceStmt = null;
+			List<Stmt> curPath = null;
+			while ((line = rdr.readLine()) != null) {
+				if (line.startsWith(SEED_PREFIX))
+					seeds.add(decodeStmt(line.substring(SEED_PREFIX.length()).split("\t"), encoder));
+				else if (line.startsWith(DONE_PREFIX))
+					doneSeedCount = Integer.parseInt(line.substring(DONE_PREFIX.length()));
+				else if (line.startsWith(SINK_PREFIX)) {
+					// A new sink completes the last source of the previous one
+					if (curSource != null)
+						results.addResult(curSink, results.new SourceInfo(curSource,
+								curSourceStmt, null, curPath));
+					curSource = null;
+					curPath = null;
+					
+					String[] parts = line.substring(SINK_PREFIX.length()).split("\t");
+					Stmt stmt = decodeStmt(parts, encoder);
+					curSink = results.new SinkInfo(decodeValue(parts, stmt, icfg), stmt);
+				}
+				else if (line.startsWith(SOURCE_PREFIX) && curSink != null) {
+					if (curSource != null)
+						results.addResult(curSink, results.new SourceInfo(curSource,
+								curSourceStmt, null, curPath));
+					String[] parts = line.substring(SOURCE_PREFIX.length()).split("\t");
+					curSourceStmt = decodeStmt(parts, encoder);
+					curSource = decodeValue(parts, curSourceStmt, icfg);
+					curPath = null;
+				}
+				else if (line.startsWith(PATH_PREFIX) && curSource != null) {
+					if (curPath == null)
+						curPath = new ArrayList<Stmt>();
+					curPath.add(decodeStmt(line.substring(PATH_PREFIX.length()).split("\t"), encoder));
+				}
+				else
+					throw new IOException("Invalid line in checkpoint: " + line);
+			}
+			if (curSource != null)
+				results.addResult(curSink, results.new SourceInfo(curSource,
+						curSourceStmt, null, curPath));
+
+			if (doneSeedCount > seeds.size())
+				throw new IOException("Invalid number of solved seeds: " + doneSeedCount);
+			logger.info("Loaded checkpoint {} with {} of {} seeds solved and {} results", file,
+					doneSeedCount, seeds.size(), results.size());
+			return new AnalysisCheckpoint(configuration, seeds, doneSeedCount, results);
+		}
+		catch (IOException ex) {
+			logger.error("Could not read checkpoint " + file, ex);
+			return null;
+		}
+		catch (NumberFormatException ex) {
+			logger.error("Corrupt checkpoint " + file, ex);
+			return null;
+		}
+		finally {
+			if (rdr != null)
+				try {
+					rdr.close();
+				}
+				catch (IOException ex) {
+					logger.error("Could not close checkpoint file", ex);
+				}
+		}
+	}
+
+	/**
+	 * Writes this checkpoint to the given file. The checkpoint is first
+	 * written to a temporary file which then replaces the given one, so that
+	 * a crash while saving does not destroy the previous checkpoint.
+	 * @param file The file to which to write the checkpoint
+	 * @param icfg The interprocedural control flow graph of the current
+	 * program
+	 * @throws IOException Thrown if the file could not be written
+	 */
+	public void save(File file, BiDiInterproceduralCFG<Unit, SootMethod> icfg) throws IOException {
+		AbstractionEncoder encoder = new AbstractionEncoder();
+		File tempFile = new File(file.getPath() + ".tmp");
+		BufferedWriter wr = new BufferedWriter(new FileWriter(tempFile));
+		try {
+			wr.write(HEADER);
+			wr.newLine();
+			wr.write(CONFIG_PREFIX + configuration);
+			wr.newLine();
+			for (Unit seed : seeds) {
+				wr.write(SEED_PREFIX + encodeStmt(seed, icfg, encoder));
+				wr.newLine();
+			}
+			wr.write(DONE_PREFIX + doneSeedCount);
+			wr.newLine();
+
+			for (Entry<SinkInfo, Set<SourceInfo>> entry : results.getResults().entrySet()) {
+				Stmt sinkStmt = entry.getKey().getContext();
+				String sinkValue = encodeValue(entry.getKey().getSink(), sinkStmt, icfg);
+				if (sinkValue == null) {
+					logger.warn("Could not store the result at sink {} in the checkpoint", sinkStmt);
+					continue;
+				}
+				wr.write(SINK_PREFIX + encodeStmt(sinkStmt, icfg, encoder) + "\t" + sinkValue);
+				wr.newLine();
+
+				for (SourceInfo source : entry.getValue()) {
+					Stmt sourceStmt = source.getContext();
+					String sourceValue = encodeValue(source.getSource(), sourceStmt, icfg);
+					if (sourceValue == null) {
+						logger.warn("Could not store the result from source {} in the checkpoint",
+								sourceStmt);
+						continue;
+					}
+					wr.write(SOURCE_PREFIX + encodeStmt(sourceStmt, icfg, encoder) + "\t" + sourceValue);
+					wr.newLine();
+					if (source.getPath() != null)
+						for (Stmt pathStmt : source.getPath()) {
+							wr.write(PATH_PREFIX + encodeStmt(pathStmt, icfg, encoder));
+							wr.newLine();
+						}
+				}
+			}
+		}
+		finally {
+			wr.close();
+		}
+
+		if (!tempFile.renameTo(file)) {
+			// Some platforms cannot rename onto an existing file
+			if (!file.delete() || !tempFile.renameTo(file))
+				throw new IOException("Could not replace checkpoint " + file);
+		}
+	}
+
+	private static String encodeStmt(Unit u, BiDiInterproceduralCFG<Unit, SootMethod> icfg,
+			AbstractionEncoder encoder) throws IOException {
+		SootMethod method = icfg.getMethodOf(u);
+		int idx = method == null ? -1 : encoder.getUnitIndex(method, u);
+		if (idx < 0)
+			throw new IOException("Statement " + u + " is not part of the program");
+		return method.getSignature() + "\t" + idx;
+	}
+
+	private static Stmt decodeStmt(String[] parts, AbstractionEncoder encoder) throws IOException {
+		if (parts.length < 2)
+			throw new IOException("Invalid statement in checkpoint");
+		if (!Scene.v().containsMethod(parts[0]))
+			throw new IOException("Method " + parts[0] + " does not exist in the current program");
+		SootMethod method = Scene.v().getMethod(parts[0]);
+		if (!method.hasActiveBody())
+			throw new IOException("Method " + parts[0] + " has no body in the current program");
+		Unit u = encoder.getUnitAt(method, Integer.parseInt(parts[1]));
+		if (u == null)
+			throw new IOException("Statement " + parts[1] + " does not exist in method " + parts[0]);
+		return (Stmt) u;
+	}
+
+	/**
+	 * Encodes a value by its position among the values of the given
+	 * statement. Locals that do not appear in the statement are encoded by
+	 * their name.
+	 */
+	private static String encodeValue(Value value, Stmt stmt,
+			BiDiInterproceduralCFG<Unit, SootMethod> icfg) {
+		if (stmt == null)
+			return null;
+		List<ValueBox> boxes = stmt.getUseAndDefBoxes();
+		for (int i = 0; i < boxes.size(); i++)
+			if (boxes.get(i).getValue() == value)
+				return BOX_PREFIX + i;
+		if (value instanceof Local && icfg.getMethodOf(stmt).getActiveBody().getLocals().contains(value))
+			return LOCAL_PREFIX + ((Local) value).getName();
+		return null;
+	}
+
+	private static Value decodeValue(String[] parts, Stmt stmt,
+			BiDiInterproceduralCFG<Unit, SootMethod> icfg) throws IOException {
+		if (parts.length < 3)
+			throw new IOException("Invalid value in checkpoint");
+		String ref = parts[2];
+		if (ref.startsWith(BOX_PREFIX)) {
+			List<ValueBox> boxes = stmt.getUseAndDefBoxes();
+			int idx = Integer.parseInt(ref.substring(BOX_PREFIX.length()));
+			if (idx >= 0 && idx < boxes.size())
+				return boxes.get(idx).getValue();
+		}
+		else if (ref.startsWith(LOCAL_PREFIX)) {
+			String name = ref.substring(LOCAL_PREFIX.length());
+			for (Local local : icfg.getMethodOf(stmt).getActiveBody().getLocals())
+				if (local.getName().equals(name))
+					return local;
+		}
+		throw new IOException("Value " + ref + " does not exist in statement " + stmt);
+	}
+
+}
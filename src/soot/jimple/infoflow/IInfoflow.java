@@ -16,6 +16,7 @@ import java.util.List;
 import soot.Transform;
 import soot.jimple.infoflow.entryPointCreators.IEntryPointCreator;
 import soot.jimple.infoflow.ipc.IIPCManager;
+import soot.jimple.infoflow.solver.IInfoflowSolverFactory;
 import soot.jimple.infoflow.source.ISourceSinkManager;
 import soot.jimple.infoflow.taintWrappers.ITaintPropagationWrapper;
 /**
@@ -50,6 +51,41 @@ public interface IInfoflow {
 		 */
 		PtsBased
 	}
+	
+	/**
+	 * Enumeration containing the strategies for distributing the solvers'
+	 * path edges over the worker threads
+	 */
+	public enum SchedulingStrategy {
+		/**
+		 * All worker threads take their path edges from one shared queue
+		 */
+		SharedQueue,
+		/**
+		 * Every worker thread has its own deque, idle workers steal path
+		 * edges from the other workers
+		 */
+		WorkStealing,
+		/**
+		 * Every method is owned by one worker thread which processes all of
+		 * its path edges. Calls and returns are passed between the workers
+		 * as messages.
+		 */
+		MethodSharded,
+		/**
+		 * All path edges are processed on the calling thread in a
+		 * reproducible order. The solvers use non-concurrent data structures
+		 * in this mode. The maximum number of threads is ignored.
+		 */
+		Sequential,
+		/**
+		 * All worker threads take their path edges from one shared priority
+		 * queue. Edges in methods that are closer to a sink in the callgraph
+		 * are processed first, so that flows are found early. This is
+		 * useful together with stopping after the first flow.
+		 */
+		SinkPriority
+	}
 
 	/**
 	 * Sets the taint wrapper for deciding on taint propagation through black-box
@@ -153,6 +189,57 @@ public interface IInfoflow {
 	public void computeInfoflow(String appPath, String libPath, String entryPoint,
 			ISourceSinkManager sourcesSinks);
 
+	/**
+	 * Resumes an information flow analysis from a checkpoint. The current
+	 * Scene, including the callgraph, must contain the same program as the
+	 * one on which the checkpoint was written, e.g. because it has been
+	 * rebuilt with the same options after a restart. The sources recorded in
+	 * the checkpoint that have not been solved yet are solved, and their
+	 * results are merged with the ones recorded in the checkpoint.
+	 * @param checkpointFile The file containing the checkpoint. New
+	 * checkpoints are written to this file as well.
+	 * @param sourcesSinks manager class for identifying sources and sinks in the source code
+	 */
+	public void resumeInfoflow(String checkpointFile, ISourceSinkManager sourcesSinks);
+
+	/**
+	 * Starts the information flow analysis on a list of entry point methods
+	 * on a background thread and returns immediately
+	 * @param appPath The path containing the client program's files
+	 * @param libPath the path to the main folder of the (unpacked) library class files
+	 * @param entryPointCreator the entry point creator to use for generating the dummy
+	 * main method
+	 * @param sourcesSinks manager class for identifying sources and sinks in the source code
+	 * @return The handle through which the running analysis can be cancelled
+	 * and its results can be retrieved
+	 */
+	public InfoflowTask computeInfoflowAsync(String appPath, String libPath,
+			IEntryPointCreator entryPointCreator,
+			ISourceSinkManager sourcesSinks);
+
+	/**
+	 * Starts the information flow analysis on a list of entry point methods
+	 * on a background thread and returns immediately
+	 * @param appPath The path containing the client program's files
+	 * @param libPath the path to the main folder of the (unpacked) library class files
+	 * @param entryPoints the entryPoints (string conforms to SootMethod representation)
+	 * @param sources list of source class+method (as string conforms to SootMethod representation)
+	 * @param sinks list of sink class+method (as string conforms to SootMethod representation)
+	 * @return The handle through which the running analysis can be cancelled
+	 * and its results can be retrieved
+	 */
+	public InfoflowTask computeInfoflowAsync(String appPath, String libPath,
+			List<String> entryPoints,
+			List<String> sources, List<String> sinks);
+
+	/**
+	 * Cancels the analysis that is currently running on this object. If the
+	 * data flow solvers are already running, they are stopped and the results
+	 * found so far are reported as partial results. If no analysis is
+	 * running, this method does nothing.
+	 */
+	public void cancel();
+
 	/**
 	 * getResults returns the results found by the analysis
 	 * @return the results
@@ -238,6 +325,239 @@ public interface IInfoflow {
 	 */
 	public void setMaxThreadNum(int threadNum);
 	
+	/**
+	 * Sets the strategy for distributing the path edges of the forward and
+	 * backward solvers over the worker threads
+	 * @param strategy The scheduling strategy to be used by the data flow
+	 * tracker
+	 */
+	public void setSchedulingStrategy(SchedulingStrategy strategy);
+	
+	/**
+	 * Sets how many path edges a worker thread may process on its own local
+	 * worklist before handing new edges to the shared scheduler. Only edges
+	 * inside the same method are kept locally, which saves one executor
+	 * handoff per statement on straight-line code.
+	 * @param budget The maximum number of edges a worker processes locally
+	 * per scheduled task, or 0 to hand every edge to the scheduler
+	 */
+	public void setRunToCompletionBudget(int budget);
+	
+	/**
+	 * Sets whether the solvers shall store their jump functions in a compact
+	 * table of primitive-encoded keys instead of a map of path edge objects.
+	 * This reduces the memory consumption on large applications.
+	 * @param compactJumpFunctions True if the compact jump function store
+	 * shall be used, otherwise false
+	 */
+	public void setCompactJumpFunctions(boolean compactJumpFunctions);
+	
+	/**
+	 * Sets whether the solvers shall remove the jump functions of methods
+	 * that cannot receive any new edges in a given context while the
+	 * analysis is still running. The end summaries of these methods are
+	 * retained. This reduces the peak memory consumption. This option
+	 * cannot be combined with the compact jump function store.
+	 * @param enableJumpFunctionGC True if the jump functions of finished
+	 * methods shall be garbage-collected, otherwise false
+	 */
+	public void setEnableJumpFunctionGC(boolean enableJumpFunctionGC);
+	
+	/**
+	 * Sets the file in which the end summaries of library methods shall be
+	 * cached across runs. Summaries in this file are used instead of
+	 * exploring the respective library methods, and newly computed summaries
+	 * are added to the file after the analysis. Only methods in system
+	 * packages that cannot call back into the application are cached, so
+	 * this option requires flows in system packages to be ignored.
+	 * @param summaryCacheFile The file in which to cache the library
+	 * summaries, or null to disable the cache
+	 */
+	public void setSummaryCacheFile(String summaryCacheFile);
+	
+	/**
+	 * Sets whether the summary cache (see {@link #setSummaryCacheFile(String)})
+	 * shall be used for incremental re-analyses of a changing application.
+	 * In this mode, the summaries of all methods including the application
+	 * ones are cached together with the results found in them. A summary is
+	 * invalidated as soon as the method or any of its transitive callees
+	 * changes, so that only the changed methods and their transitive callers
+	 * are explored again. Flows in system packages need not be ignored.
+	 * @param incrementalAnalysis True if the summary cache shall be used for
+	 * incremental re-analyses, otherwise false
+	 */
+	public void setIncrementalAnalysis(boolean incrementalAnalysis);
+	
+	/**
+	 * Sets the maximum time the data flow solvers may run. If this time is
+	 * exceeded, the solvers are stopped and the results found so far are
+	 * reported as partial results. The time spent on bottom-up summaries
+	 * counts towards this timeout.
+	 * @param dataFlowTimeout The timeout in seconds, or 0 for no limit
+	 */
+	public void setDataFlowTimeout(long dataFlowTimeout);
+	
+	/**
+	 * Sets the maximum number of path edges each data flow solver may
+	 * propagate. If this number is exceeded, the solvers are stopped and the
+	 * results found so far are reported as partial results.
+	 * @param maxPropagationCount The maximum number of propagations per
+	 * solver, or 0 for no limit
+	 */
+	public void setMaxPropagationCount(long maxPropagationCount);
+	
+	/**
+	 * Sets the maximum amount of heap memory the data flow analysis may use.
+	 * If the heap usage exceeds this amount even after a garbage collection,
+	 * the solvers are stopped and the results found so far are reported as
+	 * partial results.
+	 * @param maxHeapUsage The maximum heap usage in megabytes, or 0 for no
+	 * limit
+	 */
+	public void setMaxHeapUsage(long maxHeapUsage);
+	
+	/**
+	 * Sets the maximum number of path edges of the forward solver that may
+	 * wait in the executor's queue. If more edges are produced, the threads
+	 * producing them process them directly instead of enqueueing them.
+	 * @param maxQueueDepth The maximum number of waiting path edges, or 0
+	 * for no limit
+	 */
+	public void setMaxForwardQueueDepth(int maxQueueDepth);
+	
+	/**
+	 * Sets the maximum number of path edges of the backward alias solver that
+	 * may wait in the executor's queue. If more edges are produced, the
+	 * threads producing them process them directly instead of enqueueing
+	 * them.
+	 * @param maxQueueDepth The maximum number of waiting path edges, or 0
+	 * for no limit
+	 */
+	public void setMaxBackwardQueueDepth(int maxQueueDepth);
+	
+	/**
+	 * Sets the factory that creates the data flow solvers. By default, the
+	 * fast solver is used.
+	 * @param solverFactory The factory that creates the data flow solvers
+	 */
+	public void setSolverFactory(IInfoflowSolverFactory solverFactory);
+	
+	/**
+	 * Sets a query for a demand-driven analysis. If a query is set, only the
+	 * queried sources are used as seeds, callees from which none of the
+	 * queried sinks can be reached are not analyzed if this is enabled in
+	 * the query, and the solvers stop as soon as the first flow has been
+	 * found.
+	 * @param query The query to answer, or null to look for all flows in the
+	 * program
+	 */
+	public void setQuery(InfoflowQuery query);
+	
+	/**
+	 * Sets a heap budget for splitting the analysis into partitions. If a
+	 * budget is set, the sources are solved in groups, one after the other,
+	 * with fresh solvers for every group. The callgraph and the control flow
+	 * graph are shared between the groups. The size of each group is chosen
+	 * based on the heap usage of the previous groups, so that the solvers
+	 * stay within the budget. The results of all groups are merged.
+	 * All groups run in the same JVM as the rest of the analysis, so the
+	 * budget cannot be larger than the maximum heap of that JVM. The groups
+	 * are not solved in separate processes.
+	 * @param partitionHeapBudget The heap budget in megabytes, or 0 to solve
+	 * all sources together
+	 */
+	public void setPartitionHeapBudget(long partitionHeapBudget);
+	
+	/**
+	 * Sets whether method summaries shall be computed bottom-up before the
+	 * data flow analysis. If this option is enabled, the methods are
+	 * processed along the strongly connected components of the callgraph,
+	 * callees before callers, and independent components in parallel. For
+	 * every method, the flows from its parameters and its "this" object to
+	 * its exits and sinks are summarized. The data flow analysis then
+	 * applies these summaries at call sites instead of descending into the
+	 * callees. This option is ignored if a summary cache file is set.
+	 * @param bottomUpSummaries True if summaries shall be computed before
+	 * the data flow analysis, otherwise false
+	 */
+	public void setBottomUpSummaries(boolean bottomUpSummaries);
+	
+	/**
+	 * Sets whether the forward solver shall propagate taints sparsely. In
+	 * sparse mode, a taint on a local jumps directly to the next statements
+	 * that read or write this local, skipping all statements in between on
+	 * which the taint would just be passed on. The results are the same as
+	 * with dense propagation, but taint propagation handlers are not
+	 * notified for the skipped statements. This option is only supported by
+	 * the fast solver.
+	 * @param sparsePropagation True if taints shall be propagated sparsely,
+	 * otherwise false
+	 */
+	public void setSparsePropagation(boolean sparsePropagation);
+	
+	/**
+	 * Sets the file in which the progress of the data flow analysis shall be
+	 * recorded. A checkpoint only contains the sources solved so far and
+	 * their results, never the state of the data flow solvers. It can thus
+	 * only be written between two groups of sources. By default, the sources
+	 * are only split into groups if a heap budget is set, so an analysis
+	 * that solves all sources together is not checkpointed before it ends.
+	 * See {@link #setCheckpointPartitioning(boolean)} for splitting the
+	 * sources to get regular checkpoints. If the file already contains a
+	 * checkpoint of the same analysis, the analysis continues from there.
+	 * The file is deleted once the analysis has completed.
+	 * @param checkpointFile The checkpoint file, or null to disable
+	 * checkpoints
+	 */
+	public void setCheckpointFile(String checkpointFile);
+	
+	/**
+	 * Sets the time after which a new checkpoint shall be written. This only
+	 * has an effect if checkpoint partitioning is enabled. The groups of
+	 * sources are then sized such that solving one group takes about this
+	 * time.
+	 * @param checkpointInterval The time between two checkpoints in seconds
+	 */
+	public void setCheckpointInterval(long checkpointInterval);
+	
+	/**
+	 * Sets whether the sources shall be split into groups to write a
+	 * checkpoint at the configured interval. The groups are solved one after
+	 * the other with fresh solvers. Methods reachable from more than one
+	 * group are therefore analyzed once per group, so the analysis as a
+	 * whole can take considerably longer than without checkpoints.
+	 * @param checkpointPartitioning True if the sources shall be split into
+	 * groups for checkpointing, otherwise false
+	 */
+	public void setCheckpointPartitioning(boolean checkpointPartitioning);
+	
+	/**
+	 * Sets whether taints shall carry the sources from which they have been
+	 * derived instead of links to the taints they have been derived from.
+	 * Equal taints are merged at the join points, so that the sources are
+	 * known as soon as a taint reaches a sink. The results are then read
+	 * from the taints at the sinks without walking back to the sources, and
+	 * the intermediate taints need not be kept alive for this. This option
+	 * only applies if no result paths are computed, and is not supported
+	 * together with method summaries. It requires the fast solver.
+	 * @param sourceOnlyPropagation True if taints shall only carry their
+	 * sources, otherwise false
+	 */
+	public void setSourceOnlyPropagation(boolean sourceOnlyPropagation);
+	
+	/**
+	 * Sets the threshold for shortening access paths per base type. The
+	 * analysis counts the distinct field sequences it builds on each base
+	 * type. Whenever this count exceeds the threshold for a type, the maximum
+	 * length of the access paths on that type is reduced by one field, down
+	 * to a single field. Access paths that are cut off taint all their
+	 * subfields. All other types keep the global maximum access path length.
+	 * @param threshold The number of distinct field sequences per base type
+	 * after which the access paths on that type are shortened, or 0 to
+	 * always use the global maximum access path length
+	 */
+	public void setAdaptiveAccessPathThreshold(int threshold);
+	
 	public void setIPCManager(IIPCManager ipcManager);
 	
 	/**
@@ -9,24 +9,40 @@
  ******************************************************************************/
 package soot.jimple.infoflow;
 
-import heros.solver.CountingThreadPoolExecutor;
+import heros.solver.Pair;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import soot.Body;
+import soot.Local;
 import soot.MethodOrMethodContext;
 import soot.PackManager;
 import soot.PatchingChain;
@@ -34,20 +50,27 @@ import soot.Scene;
 import soot.SootClass;
 import soot.SootMethod;
 import soot.Transform;
+import soot.Type;
 import soot.Unit;
 import soot.jimple.Stmt;
 import soot.jimple.infoflow.InfoflowResults.SinkInfo;
 import soot.jimple.infoflow.InfoflowResults.SourceInfo;
+import soot.jimple.infoflow.InfoflowResults.TerminationReason;
 import soot.jimple.infoflow.aliasing.FlowSensitiveAliasStrategy;
 import soot.jimple.infoflow.aliasing.IAliasingStrategy;
 import soot.jimple.infoflow.aliasing.PtsBasedAliasStrategy;
 import soot.jimple.infoflow.config.IInfoflowConfig;
+import soot.jimple.infoflow.data.Abstraction;
 import soot.jimple.infoflow.data.AbstractionAtSink;
+import soot.jimple.infoflow.data.SourceContext;
 import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.data.AccessPathLengthPolicy;
 import soot.jimple.infoflow.data.pathBuilders.DefaultPathBuilderFactory;
 import soot.jimple.infoflow.data.pathBuilders.IAbstractionPathBuilder;
 import soot.jimple.infoflow.data.pathBuilders.IPathBuilderFactory;
 import soot.jimple.infoflow.entryPointCreators.IEntryPointCreator;
+import soot.jimple.infoflow.handlers.AnalysisProgressHandler;
+import soot.jimple.infoflow.handlers.AnalysisProgressHandler.AnalysisPhase;
 import soot.jimple.infoflow.handlers.ResultsAvailableHandler;
 import soot.jimple.infoflow.handlers.TaintPropagationHandler;
 import soot.jimple.infoflow.ipc.DefaultIPCManager;
@@ -55,9 +78,25 @@ import soot.jimple.infoflow.ipc.IIPCManager;
 import soot.jimple.infoflow.problems.BackwardsInfoflowProblem;
 import soot.jimple.infoflow.problems.InfoflowProblem;
 import soot.jimple.infoflow.solver.BackwardsInfoflowCFG;
+import soot.jimple.infoflow.solver.DataFlowWatcher;
 import soot.jimple.infoflow.solver.IInfoflowCFG;
+import soot.jimple.infoflow.solver.IInfoflowSolver;
+import soot.jimple.infoflow.solver.RestrictedInfoflowCFG;
+import soot.jimple.infoflow.solver.SolverStatistics;
+import soot.jimple.infoflow.solver.executors.IInfoflowExecutor;
+import soot.jimple.infoflow.solver.executors.InfoflowThreadPoolExecutor;
+import soot.jimple.infoflow.solver.executors.MethodShardedExecutor;
+import soot.jimple.infoflow.solver.executors.SequentialExecutor;
+import soot.jimple.infoflow.solver.executors.TaskPriorityComparator;
+import soot.jimple.infoflow.solver.executors.WorkStealingExecutor;
+import soot.jimple.infoflow.solver.fastSolver.FastSolverFactory;
 import soot.jimple.infoflow.solver.fastSolver.InfoflowSolver;
 import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.jimple.infoflow.source.QuerySourceSinkManager;
+import soot.jimple.infoflow.summaries.BottomUpSchedule;
+import soot.jimple.infoflow.summaries.MethodClosureHasher;
+import soot.jimple.infoflow.summaries.MethodSummary;
+import soot.jimple.infoflow.summaries.MethodSummaryCache;
 import soot.jimple.infoflow.util.SootMethodRepresentationParser;
 import soot.jimple.infoflow.util.SystemClassHandler;
 import soot.jimple.toolkits.callgraph.ReachableMethods;
@@ -70,11 +109,36 @@ public class Infoflow extends AbstractInfoflow {
 	
     private final Logger logger = LoggerFactory.getLogger(getClass());
     
+	private static final long EXECUTOR_TERMINATION_TIMEOUT = 5;
+	private static final int INITIAL_PARTITION_COUNT = 16;
+	
+	/**
+	 * The forward and backward problems and solvers of one data flow analysis
+	 * run
+	 */
+	private static class Solvers {
+		private final InfoflowProblem forwardProblem;
+		private final IInfoflowSolver forwardSolver;
+		private final BackwardsInfoflowProblem backProblem;
+		private final IInfoflowSolver backSolver;
+		
+		public Solvers(InfoflowProblem forwardProblem, IInfoflowSolver forwardSolver,
+				BackwardsInfoflowProblem backProblem, IInfoflowSolver backSolver) {
+			this.forwardProblem = forwardProblem;
+			this.forwardSolver = forwardSolver;
+			this.backProblem = backProblem;
+			this.backSolver = backSolver;
+		}
+	}
+	
 	private static int accessPathLength = 5;
 	private static boolean useRecursiveAccessPaths = true;
 	private static boolean pathAgnosticResults = true;
 	
 	private InfoflowResults results = null;
+	private SolverStatistics solverStatistics = null;
+	private AccessPathLengthPolicy accessPathLengthPolicy = null;
+	private Map<SootMethod, Integer> sinkDistances = null;
 	private final IPathBuilderFactory pathBuilderFactory;
 
 	private final String androidPath;
@@ -87,6 +151,9 @@ public class Infoflow extends AbstractInfoflow {
     
     private Set<ResultsAvailableHandler> onResultsAvailable = new HashSet<ResultsAvailableHandler>();
     private Set<TaintPropagationHandler> taintPropagationHandlers = new HashSet<TaintPropagationHandler>();
+    private Set<AnalysisProgressHandler> progressHandlers = new HashSet<AnalysisProgressHandler>();
+    
+    private volatile DataFlowWatcher dataFlowWatcher = null;
 
 	/**
 	 * Creates a new instance of the InfoFlow class for analyzing plain Java code without any references to APKs or the Android SDK.
@@ -263,74 +330,133 @@ public class Infoflow extends AbstractInfoflow {
 	public void computeInfoflow(String appPath, String libPath,
 			IEntryPointCreator entryPointCreator,
 			ISourceSinkManager sourcesSinks) {
-		if (sourcesSinks == null) {
-			logger.error("Sources are empty!");
-			return;
-		}
+		running = true;
+		try {
+			if (sourcesSinks == null) {
+				logger.error("Sources are empty!");
+				return;
+			}
+			notifyPhaseStarted(AnalysisPhase.CallgraphConstruction);
 		
-		Set<String> requiredClasses = SootMethodRepresentationParser.v().parseClassNames
-				(entryPointCreator.getRequiredClasses(), false).keySet();
-		initializeSoot(appPath, libPath, requiredClasses);
+			Set<String> requiredClasses = SootMethodRepresentationParser.v().parseClassNames
+					(entryPointCreator.getRequiredClasses(), false).keySet();
+			initializeSoot(appPath, libPath, requiredClasses);
 
-		// entryPoints are the entryPoints required by Soot to calculate Graph - if there is no main method,
-		// we have to create a new main method and use it as entryPoint and store our real entryPoints
-		Scene.v().setEntryPoints(Collections.singletonList(entryPointCreator.createDummyMain()));
-		ipcManager.updateJimpleForICC();
+			// entryPoints are the entryPoints required by Soot to calculate Graph - if there is no main method,
+			// we have to create a new main method and use it as entryPoint and store our real entryPoints
+			Scene.v().setEntryPoints(Collections.singletonList(entryPointCreator.createDummyMain()));
+			ipcManager.updateJimpleForICC();
 		
-		// We explicitly select the packs we want to run for performance reasons
-		if (callgraphAlgorithm != CallgraphAlgorithm.OnDemand) {
-	        PackManager.v().getPack("wjpp").apply();
-	        PackManager.v().getPack("cg").apply();
+			// We explicitly select the packs we want to run for performance reasons
+			if (callgraphAlgorithm != CallgraphAlgorithm.OnDemand) {
+		        PackManager.v().getPack("wjpp").apply();
+		        PackManager.v().getPack("cg").apply();
+			}
+	        runAnalysis(sourcesSinks, null, false);
+			if (logger.isDebugEnabled())
+				PackManager.v().writeOutput();
+		}
+		finally {
+			running = false;
+			cancelled = false;
 		}
-        runAnalysis(sourcesSinks, null);
-		if (logger.isDebugEnabled())
-			PackManager.v().writeOutput();
 	}
 
 
 	@Override
 	public void computeInfoflow(String appPath, String libPath, String entryPoint,
 			ISourceSinkManager sourcesSinks) {
-		if (sourcesSinks == null) {
-			logger.error("Sources are empty!");
-			return;
-		}
+		running = true;
+		try {
+			if (sourcesSinks == null) {
+				logger.error("Sources are empty!");
+				return;
+			}
+			notifyPhaseStarted(AnalysisPhase.CallgraphConstruction);
 
-		initializeSoot(appPath, libPath,
-				SootMethodRepresentationParser.v().parseClassNames
-					(Collections.singletonList(entryPoint), false).keySet(), entryPoint);
+			initializeSoot(appPath, libPath,
+					SootMethodRepresentationParser.v().parseClassNames
+						(Collections.singletonList(entryPoint), false).keySet(), entryPoint);
 
-		if (!Scene.v().containsMethod(entryPoint)){
-			logger.error("Entry point not found: " + entryPoint);
-			return;
+			if (!Scene.v().containsMethod(entryPoint)){
+				logger.error("Entry point not found: " + entryPoint);
+				return;
+			}
+			SootMethod ep = Scene.v().getMethod(entryPoint);
+			if (ep.isConcrete())
+				ep.retrieveActiveBody();
+			else {
+				logger.debug("Skipping non-concrete method " + ep);
+				return;
+			}
+			Scene.v().setEntryPoints(Collections.singletonList(ep));
+			Options.v().set_main_class(ep.getDeclaringClass().getName());
+		
+			// Compute the additional seeds if they are specified
+			Set<String> seeds = Collections.emptySet();
+			if (entryPoint != null && !entryPoint.isEmpty())
+				seeds = Collections.singleton(entryPoint);
+
+			ipcManager.updateJimpleForICC();
+			// We explicitly select the packs we want to run for performance reasons
+			if (callgraphAlgorithm != CallgraphAlgorithm.OnDemand) {
+		        PackManager.v().getPack("wjpp").apply();
+		        PackManager.v().getPack("cg").apply();
+			}
+	        runAnalysis(sourcesSinks, seeds, false);
+			if (logger.isDebugEnabled())
+				PackManager.v().writeOutput();
 		}
-		SootMethod ep = Scene.v().getMethod(entryPoint);
-		if (ep.isConcrete())
-			ep.retrieveActiveBody();
-		else {
-			logger.debug("Skipping non-concrete method " + ep);
-			return;
+		finally {
+			running = false;
+			cancelled = false;
 		}
-		Scene.v().setEntryPoints(Collections.singletonList(ep));
-		Options.v().set_main_class(ep.getDeclaringClass().getName());
-		
-		// Compute the additional seeds if they are specified
-		Set<String> seeds = Collections.emptySet();
-		if (entryPoint != null && !entryPoint.isEmpty())
-			seeds = Collections.singleton(entryPoint);
+	}
 
-		ipcManager.updateJimpleForICC();
-		// We explicitly select the packs we want to run for performance reasons
-		if (callgraphAlgorithm != CallgraphAlgorithm.OnDemand) {
-	        PackManager.v().getPack("wjpp").apply();
-	        PackManager.v().getPack("cg").apply();
+	@Override
+	public void resumeInfoflow(String checkpointFile, ISourceSinkManager sourcesSinks) {
+		running = true;
+		try {
+			if (sourcesSinks == null) {
+				logger.error("Sources are empty!");
+				return;
+			}
+			if (callgraphAlgorithm != CallgraphAlgorithm.OnDemand && !Scene.v().hasCallGraph()) {
+				logger.error("Cannot resume from a checkpoint without a callgraph");
+				return;
+			}
+			this.checkpointFile = checkpointFile;
+			this.results = null;
+			runAnalysis(sourcesSinks, null, true);
+		}
+		finally {
+			running = false;
+			cancelled = false;
 		}
-        runAnalysis(sourcesSinks, seeds);
-		if (logger.isDebugEnabled())
-			PackManager.v().writeOutput();
 	}
 
-	private void runAnalysis(final ISourceSinkManager sourcesSinks, final Set<String> additionalSeeds) {
+	/**
+	 * Runs the data flow analysis on the current Scene
+	 * @param sourceSinkManager The manager object for identifying sources and
+	 * sinks
+	 * @param additionalSeeds Methods at whose start the analysis shall start
+	 * in addition to the sources, or null
+	 * @param resume True if the seeds shall be taken from the checkpoint file
+	 * instead of looking for sources, otherwise false
+	 */
+	private void runAnalysis(final ISourceSinkManager sourceSinkManager, final Set<String> additionalSeeds,
+			boolean resume) {
+		solverStatistics = null;
+		if (cancelled) {
+			logger.warn("Analysis was cancelled");
+			return;
+		}
+		
+		// If we only answer a query, we only consider the queried sources
+		// and sinks
+		final ISourceSinkManager sourcesSinks = query == null ? sourceSinkManager
+				: new QuerySourceSinkManager(sourceSinkManager, query);
+		
 		// Run the preprocessors
         for (Transform tr : preProcessors)
             tr.apply();
@@ -339,34 +465,468 @@ public class Infoflow extends AbstractInfoflow {
         	logger.info("Callgraph has {} edges", Scene.v().getCallGraph().size());
         iCfg = icfgFactory.buildBiDirICFG(callgraphAlgorithm);
         
+        // When answering a query, we do not descend into callees from which
+        // the queried sinks cannot be reached
+        IInfoflowCFG analysisCfg = iCfg;
+        if (query != null) {
+        	logger.info("Answering query for {}", query);
+        	Set<SootMethod> sinkCallers = getMethodsReachingSinks(query);
+        	if (sinkCallers != null) {
+        		logger.info("Restricting the analysis to {} methods from which the sinks are reachable",
+        				sinkCallers.size());
+        		analysisCfg = new RestrictedInfoflowCFG(iCfg, sinkCallers);
+        	}
+        }
+        
+		if (!enableStaticFields)
+			logger.warn("Static field tracking is disabled, results may be incomplete");
+		if (!flowSensitiveAliasing || aliasingAlgorithm != AliasingAlgorithm.FlowSensitive)
+			logger.warn("Using flow-insensitive alias tracking, results may be imprecise");
+		
+		// Paths can only be reconstructed along the predecessors, and the
+		// method summaries only store the abstractions, not their sources
+		boolean trackSources = sourceOnlyPropagation;
+		if (trackSources && computeResultPaths) {
+			logger.warn("Result paths require the predecessors of the taints, "
+					+ "ignoring source-only propagation");
+			trackSources = false;
+		}
+		if (trackSources && (summaryCacheFile != null || bottomUpSummaries)) {
+			logger.warn("Source-only propagation is not supported together with method summaries, "
+					+ "ignoring it");
+			trackSources = false;
+		}
+		Abstraction.setTrackSources(trackSources);
+
+		// We have to look through the complete program to find sources
+		// which are then taken as seeds, unless we resume from a checkpoint
+		AnalysisCheckpoint checkpoint = null;
+		List<Unit> seedList;
+		Set<SootMethod> sinkMethods = new HashSet<SootMethod>();
+		if (resume) {
+			checkpoint = AnalysisCheckpoint.load(new File(checkpointFile),
+					getCheckpointConfiguration(), iCfg);
+			if (checkpoint == null) {
+				logger.error("Could not resume from checkpoint {}, aborting analysis", checkpointFile);
+				return;
+			}
+			seedList = new ArrayList<Unit>(checkpoint.getSeeds());
+			
+			// We still need to know where the sinks are for scheduling
+			if (schedulingStrategy == SchedulingStrategy.SinkPriority)
+				for (SootMethod sm : getMethodsForSeeds(iCfg))
+					scanMethodForSourcesSinks(sourcesSinks, new HashSet<Unit>(), sinkMethods, sm);
+		}
+		else {
+			int sinkCount = 0;
+			Set<Unit> seeds = new LinkedHashSet<Unit>();
+			notifyPhaseStarted(AnalysisPhase.SourceSinkLookup);
+			logger.info("Looking for sources and sinks...");
+			
+			for (SootMethod sm : getMethodsForSeeds(iCfg))
+				sinkCount += scanMethodForSourcesSinks(sourcesSinks, seeds, sinkMethods, sm);
+        
+			// We optionally also allow additional seeds to be specified
+			if (additionalSeeds != null)
+				for (String meth : additionalSeeds) {
+					SootMethod m = Scene.v().getMethod(meth);
+					if (!m.hasActiveBody()) {
+						logger.warn("Seed method {} has no active body", m);
+						continue;
+					}
+					seeds.add(m.getActiveBody().getUnits().getFirst());
+				}
+			
+			if (seeds.isEmpty() || sinkCount == 0){
+				logger.error("No sources or sinks found, aborting analysis");
+				return;
+			}
+
+			logger.info("Source lookup done, found {} sources and {} sinks.", seeds.size(),
+					sinkCount);
+			
+			seedList = new ArrayList<Unit>(seeds);
+			
+			// If a previous run of the same analysis has left a checkpoint,
+			// we continue where it stopped
+			if (checkpointFile != null) {
+				checkpoint = AnalysisCheckpoint.load(new File(checkpointFile),
+						getCheckpointConfiguration(), iCfg);
+				if (checkpoint != null && !checkpoint.getSeeds().equals(seedList)) {
+					logger.info("Checkpoint {} was created for different seeds, ignoring it",
+							checkpointFile);
+					checkpoint = null;
+				}
+			}
+		}
+		
+		// Process the path edges closest to the sinks first
+		sinkDistances = schedulingStrategy == SchedulingStrategy.SinkPriority
+				? computeSinkDistances(sinkMethods) : null;
+		
+		// Shorten the access paths on the types on which the data flow
+		// explodes. The limits are kept over all partitions.
+		accessPathLengthPolicy = adaptiveAccessPathThreshold > 0
+				? new AccessPathLengthPolicy(accessPathLength, adaptiveAccessPathThreshold) : null;
+		AccessPath.setLengthPolicy(accessPathLengthPolicy);
+		try {
+			// Summarize the methods bottom-up before looking at the seeds. The
+			// timeout covers the summaries and the data flow analysis together.
+			long dataFlowStart = System.currentTimeMillis();
+			MethodSummaryCache precomputedSummaries = null;
+			if (bottomUpSummaries) {
+				notifyPhaseStarted(AnalysisPhase.SummaryComputation);
+				precomputedSummaries = computeBottomUpSummaries(sourcesSinks, analysisCfg);
+			}
+			
+			// Without a heap budget or checkpoint partitioning, all seeds are
+			// solved together. Otherwise, we start with a small partition to
+			// learn how much memory and time a seed needs. Every partition
+			// starts from empty solver state, so callees shared between
+			// partitions are analyzed again.
+			int partitionSize = seedList.size();
+			long baselineHeapUsage = 0;
+			if (partitionHeapBudget > 0) {
+				Runtime.getRuntime().gc();
+				baselineHeapUsage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+				partitionSize = Math.max(1, seedList.size() / INITIAL_PARTITION_COUNT);
+				logger.info("Partitioning the seeds, {} MB of the {} MB budget are used before the "
+						+ "data flow analysis", baselineHeapUsage / (1024 * 1024), partitionHeapBudget);
+			}
+			boolean partitionForCheckpoints = checkpointFile != null && checkpointPartitioning;
+			if (partitionForCheckpoints)
+				partitionSize = Math.max(1, seedList.size() / INITIAL_PARTITION_COUNT);
+			
+			InfoflowResults allResults = new InfoflowResults();
+			int partitionStart = 0;
+			int partitionCount = 0;
+			if (checkpoint != null) {
+				allResults.addAll(checkpoint.getResults());
+				partitionStart = checkpoint.getDoneSeedCount();
+				logger.info("Resuming from checkpoint, {} of {} seeds have already been solved",
+						partitionStart, seedList.size());
+			}
+			while (partitionStart < seedList.size()) {
+				if (cancelled) {
+					logger.warn("Analysis was cancelled");
+					allResults.setTerminationReason(TerminationReason.Cancelled);
+					break;
+				}
+				
+				// The timeout applies to all partitions together
+				long timeout = dataFlowTimeout;
+				if (timeout > 0) {
+					timeout -= (System.currentTimeMillis() - dataFlowStart) / 1000;
+					if (timeout <= 0) {
+						logger.warn("Data flow analysis timed out after {} seconds", dataFlowTimeout);
+						allResults.setTerminationReason(TerminationReason.Timeout);
+						break;
+					}
+				}
+				
+				List<Unit> partition = seedList.subList(partitionStart,
+						Math.min(seedList.size(), partitionStart + partitionSize));
+				partitionStart += partition.size();
+				partitionCount++;
+				if (partition.size() < seedList.size())
+					logger.info("Solving seed partition {} with {} seeds, {} seeds remaining",
+							partitionCount, partition.size(), seedList.size() - partitionStart);
+				
+				long partitionStartTime = System.currentTimeMillis();
+				SolverStatistics partitionStatistics = solveSeeds(sourcesSinks, analysisCfg,
+						partition, timeout, precomputedSummaries, allResults);
+				long partitionTime = System.currentTimeMillis() - partitionStartTime;
+				solverStatistics = solverStatistics == null ? partitionStatistics
+						: solverStatistics.add(partitionStatistics);
+				
+				// Stop if the analysis of the partition was incomplete or if we
+				// only need one flow
+				if (allResults.isPartial())
+					break;
+				if ((stopAfterFirstFlow || query != null) && !allResults.isEmpty())
+					break;
+				
+				// Record our progress, so that we can resume from here. Without
+				// partitioning, there is nothing to record before the end.
+				if (checkpointFile != null && partitionStart < seedList.size()) {
+					try {
+						new AnalysisCheckpoint(getCheckpointConfiguration(), seedList, partitionStart,
+								allResults).save(new File(checkpointFile), iCfg);
+					}
+					catch (IOException ex) {
+						logger.error("Could not write checkpoint " + checkpointFile, ex);
+					}
+				}
+				
+				// Choose the size of the next partition such that it fits into the
+				// heap budget and that it is done before the next checkpoint is due
+				long nextPartitionSize = seedList.size();
+				if (partitionHeapBudget > 0) {
+					long heapPerSeed = Math.max(1, (partitionStatistics.getPeakHeapUsage()
+							- baselineHeapUsage) / partition.size());
+					long availableHeap = partitionHeapBudget * 1024 * 1024 - baselineHeapUsage;
+					nextPartitionSize = Math.min(nextPartitionSize, availableHeap / heapPerSeed);
+				}
+				if (partitionForCheckpoints) {
+					long timePerSeed = Math.max(1, partitionTime / partition.size());
+					nextPartitionSize = Math.min(nextPartitionSize, checkpointInterval * 1000 / timePerSeed);
+				}
+				if (partitionHeapBudget > 0 || partitionForCheckpoints)
+					partitionSize = (int) Math.max(1, nextPartitionSize);
+			}
+			
+			// A complete analysis does not need its checkpoint anymore
+			if (checkpointFile != null && !allResults.isPartial()) {
+				File file = new File(checkpointFile);
+				if (file.exists() && !file.delete())
+					logger.warn("Could not delete checkpoint {}", checkpointFile);
+			}
+			if (partitionCount > 1)
+				logger.info("Solved {} seed partitions, total peak heap usage {} MB", partitionCount,
+						solverStatistics.getPeakHeapUsage() / (1024 * 1024));
+			results = allResults;
+		}
+		finally {
+			// The policy is static, so it would leak into the next analysis
+			AccessPath.setLengthPolicy(null);
+		}
+		
+		if (accessPathLengthPolicy != null)
+			for (Entry<Type, Integer> entry : accessPathLengthPolicy.getReducedLengths().entrySet())
+				logger.info("Access paths on type {} were limited to {} fields",
+						entry.getKey(), entry.getValue());
+		
+		if (results.getResults().isEmpty())
+			logger.warn("No results found.");
+		else for (Entry<SinkInfo, Set<SourceInfo>> entry : results.getResults().entrySet()) {
+			logger.info("The sink {} in method {} was called with values from the following sources:",
+                    entry.getKey(), iCfg.getMethodOf(entry.getKey().getContext()).getSignature() );
+			for (SourceInfo source : entry.getValue()) {
+				logger.info("- {} in method {}",source, iCfg.getMethodOf(source.getContext()).getSignature());
+				if (source.getPath() != null && !source.getPath().isEmpty()) {
+					logger.info("\ton Path: ");
+					for (Unit p : source.getPath()) {
+						logger.info("\t -> " + iCfg.getMethodOf(p));
+						logger.info("\t\t -> " + p);
+					}
+				}
+			}
+		}
+		
+		for (ResultsAvailableHandler handler : onResultsAvailable)
+			handler.onResultsAvailable(iCfg, results);
+	}
+	
+	/**
+	 * Runs the data flow solvers for the given seeds and reconstructs the
+	 * paths of the flows they have found. Every call uses a fresh pair of
+	 * solvers, but the callgraph and the control flow graph are shared.
+	 * @param sourcesSinks The manager object for identifying sources and sinks
+	 * @param analysisCfg The control flow graph on which to run the solvers
+	 * @param seeds The statements at which the forward analysis starts
+	 * @param timeout The maximum time in seconds the solvers may run, or 0 for
+	 * no limit
+	 * @param precomputedSummaries The summaries to use if no summary cache
+	 * file is set, or null to explore all callees
+	 * @param allResults The result object to which to add the flows. If the
+	 * solvers are stopped early, its termination reason is set.
+	 * @return The statistics of the data flow solvers
+	 */
+	private SolverStatistics solveSeeds(ISourceSinkManager sourcesSinks, IInfoflowCFG analysisCfg,
+			Collection<Unit> seeds, long timeout, MethodSummaryCache precomputedSummaries,
+			InfoflowResults allResults) {
+        // Measure the peak heap usage of this run only
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        	if (pool.getType() == MemoryType.HEAP)
+        		pool.resetPeakUsage();
+        
         int numThreads = Runtime.getRuntime().availableProcessors();
-		CountingThreadPoolExecutor executor = createExecutor(numThreads);
+		IInfoflowExecutor executor = createExecutor(numThreads);
+		
+		Solvers solvers = createSolvers(sourcesSinks, analysisCfg, executor);
+		InfoflowProblem forwardProblem = solvers.forwardProblem;
+		IInfoflowSolver forwardSolver = solvers.forwardSolver;
+		BackwardsInfoflowProblem backProblem = solvers.backProblem;
+		IInfoflowSolver backSolver = solvers.backSolver;
+		for (TaintPropagationHandler tp : taintPropagationHandlers) {
+			forwardProblem.addTaintPropagationHandler(tp);
+			if (backProblem != null)
+				backProblem.addTaintPropagationHandler(tp);
+		}
+		
+		// Set up the cache for the method summaries
+		MethodSummaryCache summaryCache = createSummaryCache(sourcesSinks);
+		if (summaryCache == null)
+			summaryCache = precomputedSummaries;
+		if (summaryCache != null && !(forwardSolver instanceof InfoflowSolver)) {
+			logger.warn("Method summaries are only supported by the fast solver, "
+					+ "ignoring the summary cache");
+			summaryCache = null;
+		}
+		if (summaryCache != null) {
+			((InfoflowSolver) forwardSolver).setSummaryCache(summaryCache);
+			forwardProblem.setRecordResultContexts(incrementalAnalysis);
+			((InfoflowSolver) forwardSolver).setRecordInjectedMethods(true);
+			if (backSolver != null)
+				((InfoflowSolver) backSolver).setRecordInjectedMethods(true);
+		}
+		
+		for (Unit seed : seeds)
+			forwardProblem.addInitialSeeds(seed, Collections.singleton(forwardProblem.zeroValue()));
+		
+		// Stop the solvers if they exceed their budgets or if the analysis
+		// gets cancelled
+		forwardSolver.setMaxPropagationCount(maxPropagationCount);
+		if (backSolver != null)
+			backSolver.setMaxPropagationCount(maxPropagationCount);
+		DataFlowWatcher watcher = new DataFlowWatcher(forwardSolver, backSolver);
+		watcher.setTimeout(timeout);
+		watcher.setMaxHeapUsage(maxHeapUsage);
+		for (AnalysisProgressHandler handler : progressHandlers)
+			watcher.addProgressHandler(handler);
+		notifyPhaseStarted(AnalysisPhase.DataFlowAnalysis);
+		dataFlowWatcher = watcher;
+		watcher.start();
+		
+		long dataFlowTime;
+		try {
+			// Make sure that we do not miss a cancellation that happened while
+			// we were setting up the watcher
+			if (cancelled)
+				watcher.forceTerminate(TerminationReason.Cancelled);
+			
+			long beforeDataFlow = System.nanoTime();
+			forwardSolver.solve();
+			
+			// Heros may return before the worker threads have actually
+			// finished their last tasks, so we wait for the executor to
+			// shut down before moving on.
+			try {
+				if (!executor.awaitTermination(EXECUTOR_TERMINATION_TIMEOUT, TimeUnit.SECONDS))
+					logger.error("Executor did not terminate gracefully");
+			}
+			catch (InterruptedException e) {
+				logger.error("Could not wait for executor termination", e);
+			}
+			dataFlowTime = (System.nanoTime() - beforeDataFlow) / 1000000;
+		}
+		finally {
+			// The watcher thread references both solvers, so it must not
+			// survive a failing solver
+			dataFlowWatcher = null;
+			watcher.stop();
+		}
+		
+		if (executor instanceof WorkStealingExecutor)
+			logger.info("Work-stealing executor: {} path edges were stolen by idle workers",
+					((WorkStealingExecutor) executor).getStealCount());
+		else if (executor instanceof MethodShardedExecutor)
+			logger.info("Method-sharded executor: tasks per shard {}",
+					Arrays.toString(((MethodShardedExecutor) executor).getShardLoad()));
+
+		// Check whether the solvers have run to completion
+		TerminationReason terminationReason = watcher.getTerminationReason();
+		boolean firstFlowFound = (stopAfterFirstFlow || query != null)
+				&& !forwardProblem.getResults().isEmpty();
+		if (terminationReason == null && !firstFlowFound && (forwardSolver.isKilled()
+				|| (backSolver != null && backSolver.isKilled())))
+			terminationReason = TerminationReason.PropagationLimit;
+		if (terminationReason != null)
+			logger.warn("Data flow solvers were stopped early ({}), results are incomplete",
+					terminationReason);
+		
+		// Report the results inside the methods we have not explored, and
+		// store the summaries for the next run. Summaries of an incomplete
+		// analysis are incomplete as well. This also applies to analyses
+		// that stopped after the first flow or that pruned callees for a
+		// query.
+		if (summaryCache != null) {
+			for (MethodSummary summary : ((InfoflowSolver) forwardSolver).getAppliedSummaries())
+				for (AbstractionAtSink resultAbs : summary.getResults())
+					forwardProblem.addResult(resultAbs);
+			if (summaryCacheFile != null && terminationReason == null && !firstFlowFound
+					&& query == null)
+				storeSummaryCache(summaryCache, (InfoflowSolver) forwardSolver,
+						(InfoflowSolver) backSolver, forwardProblem.getResultsByContext());
+		}
+
+		// Print taint wrapper statistics
+		if (taintWrapper != null) {
+			logger.info("Taint wrapper hits: " + taintWrapper.getWrapperHits());
+			logger.info("Taint wrapper misses: " + taintWrapper.getWrapperMisses());
+		}
 		
-		BackwardsInfoflowProblem backProblem;
-		InfoflowSolver backSolver;
+		Set<AbstractionAtSink> res = forwardProblem.getResults();
+
+		SolverStatistics statistics = new SolverStatistics(forwardSolver.getPropagationCount(),
+				backSolver == null ? 0 : backSolver.getPropagationCount(),
+				dataFlowTime, getPeakHeapUsage());
+		logger.info("IFDS problem with {} forward and {} backward edges solved, "
+				+ "processing {} results...", statistics.getForwardPropagationCount(),
+				statistics.getBackwardPropagationCount(),
+				res == null ? 0 : res.size());
+		if (forwardSolver instanceof InfoflowSolver)
+			logFastSolverStatistics((InfoflowSolver) forwardSolver, (InfoflowSolver) backSolver);
+		logger.info("Peak heap usage during the data flow analysis: {} MB",
+				statistics.getPeakHeapUsage() / (1024 * 1024));
+		
+		// Force a cleanup. Everything we need is reachable through the
+		// results set, the other abstractions can be killed now.
+		forwardSolver.cleanup();
+		if (backSolver != null) {
+			backSolver.cleanup();
+			backSolver = null;
+			backProblem = null;
+		}
+		forwardSolver = null;
+		forwardProblem = null;
+		AccessPath.clearBaseRegister();
+		AccessPath.clearInternTable();
+		Runtime.getRuntime().gc();
+		
+		notifyPhaseStarted(AnalysisPhase.PathReconstruction);
+		allResults.addAll(Abstraction.isTrackSources() ? collectTaintSources(res)
+				: computeTaintPaths(res));
+		if (terminationReason != null)
+			allResults.setTerminationReason(terminationReason);
+		return statistics;
+	}
+	
+	/**
+	 * Creates the forward and backward problems and solvers for one data
+	 * flow analysis run and applies the options of this analysis to them.
+	 * Taint propagation handlers are not registered.
+	 * @param sourcesSinks The manager object for identifying sources and sinks
+	 * @param analysisCfg The control flow graph on which to run the solvers
+	 * @param executor The executor on which the solvers shall run
+	 * @return The new problems and solvers
+	 */
+	private Solvers createSolvers(ISourceSinkManager sourcesSinks, IInfoflowCFG analysisCfg,
+			IInfoflowExecutor executor) {
+		final BackwardsInfoflowProblem backProblem;
+		final IInfoflowSolver backSolver;
 		final IAliasingStrategy aliasingStrategy;
 		switch (aliasingAlgorithm) {
 			case FlowSensitive:
-				backProblem = new BackwardsInfoflowProblem(new BackwardsInfoflowCFG(iCfg), sourcesSinks);
+				backProblem = new BackwardsInfoflowProblem(new BackwardsInfoflowCFG(analysisCfg), sourcesSinks);
 				// need to set this before creating the zero abstraction
 				backProblem.setFlowSensitiveAliasing(flowSensitiveAliasing);
 				
-				backSolver = new InfoflowSolver(backProblem, executor);
-				backSolver.setJumpPredecessors(!computeResultPaths);
-//				backSolver.setEnableMergePointChecking(true);
+				backSolver = solverFactory.createSolver(backProblem, executor);
+				configureSolver(backSolver, maxBackwardQueueDepth);
 				
-				aliasingStrategy = new FlowSensitiveAliasStrategy(iCfg, backSolver);
+				aliasingStrategy = new FlowSensitiveAliasStrategy(analysisCfg, backSolver);
 				break;
 			case PtsBased:
 				backProblem = null;
 				backSolver = null;
-				aliasingStrategy = new PtsBasedAliasStrategy(iCfg);
+				aliasingStrategy = new PtsBasedAliasStrategy(analysisCfg);
 				break;
 			default:
 				throw new RuntimeException("Unsupported aliasing algorithm");
 		}
 		
-		InfoflowProblem forwardProblem  = new InfoflowProblem(iCfg, sourcesSinks,
+		final InfoflowProblem forwardProblem = new InfoflowProblem(analysisCfg, sourcesSinks,
 				aliasingStrategy);
 		// need to set this before creating the zero abstraction
 		forwardProblem.setFlowSensitiveAliasing(flowSensitiveAliasing);
@@ -374,29 +934,32 @@ public class Infoflow extends AbstractInfoflow {
 			forwardProblem.setZeroValue(backProblem.createZeroValue());
 		
 		// Set the options
-		InfoflowSolver forwardSolver = new InfoflowSolver(forwardProblem, executor);
+		final IInfoflowSolver forwardSolver = solverFactory.createSolver(forwardProblem, executor);
 		aliasingStrategy.setForwardSolver(forwardSolver);
-		forwardSolver.setJumpPredecessors(!computeResultPaths);
-//		forwardSolver.setEnableMergePointChecking(true);
+		configureSolver(forwardSolver, maxForwardQueueDepth);
+		if (sparsePropagation) {
+			if (forwardSolver instanceof InfoflowSolver)
+				((InfoflowSolver) forwardSolver).setSparsePropagation(true);
+			else
+				logger.warn("Solver {} does not support sparse propagation, ignoring it",
+						forwardSolver.getClass().getName());
+		}
 		
 		forwardProblem.setInspectSources(inspectSources);
 		forwardProblem.setInspectSinks(inspectSinks);
 		forwardProblem.setEnableImplicitFlows(enableImplicitFlows);
 		forwardProblem.setEnableStaticFieldTracking(enableStaticFields);
 		forwardProblem.setEnableExceptionTracking(enableExceptions);
-		for (TaintPropagationHandler tp : taintPropagationHandlers)
-			forwardProblem.addTaintPropagationHandler(tp);
 		forwardProblem.setTaintWrapper(taintWrapper);
-		forwardProblem.setStopAfterFirstFlow(stopAfterFirstFlow);
+		forwardProblem.setStopAfterFirstFlow(stopAfterFirstFlow || query != null);
+		forwardProblem.setAliasSolver(backSolver);
 		forwardProblem.setIgnoreFlowsInSystemPackages(ignoreFlowsInSystemPackages);
 		
 		if (backProblem != null) {
-			backProblem.setForwardSolver((InfoflowSolver) forwardSolver);
+			backProblem.setForwardSolver(forwardSolver);
 			backProblem.setTaintWrapper(taintWrapper);
 			backProblem.setEnableStaticFieldTracking(enableStaticFields);
 			backProblem.setEnableExceptionTracking(enableExceptions);
-			for (TaintPropagationHandler tp : taintPropagationHandlers)
-				backProblem.addTaintPropagationHandler(tp);
 			backProblem.setTaintWrapper(taintWrapper);
 			backProblem.setActivationUnitsToCallSites(forwardProblem);
 			backProblem.setIgnoreFlowsInSystemPackages(ignoreFlowsInSystemPackages);
@@ -404,108 +967,388 @@ public class Infoflow extends AbstractInfoflow {
 			backProblem.setInspectSinks(inspectSinks);
 		}
 		
-		if (!enableStaticFields)
-			logger.warn("Static field tracking is disabled, results may be incomplete");
-		if (!flowSensitiveAliasing || !aliasingStrategy.isFlowSensitive())
-			logger.warn("Using flow-insensitive alias tracking, results may be imprecise");
-
-		// We have to look through the complete program to find sources
-		// which are then taken as seeds.
-		int sinkCount = 0;
-        logger.info("Looking for sources and sinks...");
-        
-        for (SootMethod sm : getMethodsForSeeds(iCfg))
-			sinkCount += scanMethodForSourcesSinks(sourcesSinks, forwardProblem, sm);
-        
-		// We optionally also allow additional seeds to be specified
-		if (additionalSeeds != null)
-			for (String meth : additionalSeeds) {
-				SootMethod m = Scene.v().getMethod(meth);
-				if (!m.hasActiveBody()) {
-					logger.warn("Seed method {} has no active body", m);
-					continue;
-				}
-				forwardProblem.addInitialSeeds(m.getActiveBody().getUnits().getFirst(),
-						Collections.singleton(forwardProblem.zeroValue()));
+		return new Solvers(forwardProblem, forwardSolver, backProblem, backSolver);
+	}
+	
+	/**
+	 * Applies the options of the fast solver to the given solver. Other
+	 * solvers do not support these options.
+	 * @param solver The solver to configure
+	 * @param maxQueueDepth The maximum number of tasks the solver may have
+	 * waiting in the executor's queue
+	 */
+	private void configureSolver(IInfoflowSolver solver, int maxQueueDepth) {
+		if (!(solver instanceof InfoflowSolver)) {
+			if (runToCompletionBudget > 0 || compactJumpFunctions || enableJumpFunctionGC
+					|| maxQueueDepth > 0)
+				logger.warn("Solver {} does not support the fast solver's scheduling "
+						+ "and memory options, ignoring them", solver.getClass().getName());
+			
+			// No abstractions other than the zero value exist yet
+			if (Abstraction.isTrackSources()) {
+				logger.warn("Solver {} cannot merge taints, ignoring source-only propagation",
+						solver.getClass().getName());
+				Abstraction.setTrackSources(false);
 			}
-		
-		if (!forwardProblem.hasInitialSeeds() || sinkCount == 0){
-			logger.error("No sources or sinks found, aborting analysis");
 			return;
 		}
-
-		logger.info("Source lookup done, found {} sources and {} sinks.", forwardProblem.getInitialSeeds().size(),
-				sinkCount);
-		
-		forwardSolver.solve();
 		
-		// Not really nice, but sometimes Heros returns before all
-		// executor tasks are actually done. This way, we give it a
-		// chance to terminate gracefully before moving on.
-		int terminateTries = 0;
-		while (terminateTries < 10) {
-			if (executor.getActiveCount() != 0 || !executor.isTerminated()) {
-				terminateTries++;
-				try {
-					Thread.sleep(500);
-				}
-				catch (InterruptedException e) {
-					logger.error("Could not wait for executor termination", e);
-				}
-			}
-			else
-				break;
+		InfoflowSolver fastSolver = (InfoflowSolver) solver;
+		fastSolver.setJumpPredecessors(!computeResultPaths);
+		fastSolver.setMergeFacts(Abstraction.isTrackSources());
+		fastSolver.setRunToCompletionBudget(runToCompletionBudget);
+		fastSolver.setCompactJumpFunctions(compactJumpFunctions);
+		if (enableJumpFunctionGC && compactJumpFunctions)
+			logger.warn("The jump function GC does not support the compact jump function store, "
+					+ "ignoring it");
+		else
+			fastSolver.setEnableJumpFunctionGC(enableJumpFunctionGC);
+		fastSolver.setMaxQueueDepth(maxQueueDepth);
+		fastSolver.setMethodPriorities(sinkDistances);
+//		fastSolver.setEnableMergePointChecking(true);
+	}
+	
+	/**
+	 * Logs the statistics that are specific to the fast solver
+	 * @param forwardSolver The forward solver
+	 * @param backSolver The backward solver, or null if no backward solver
+	 * has been used
+	 */
+	private void logFastSolverStatistics(InfoflowSolver forwardSolver, InfoflowSolver backSolver) {
+		if (runToCompletionBudget > 0)
+			logger.info("{} forward and {} backward edges were processed on local worklists "
+					+ "without an executor handoff", forwardSolver.localPropagationCount,
+					backSolver == null ? 0 : backSolver.localPropagationCount);
+		logger.info("Queue high-water marks: {} forward and {} backward tasks",
+				forwardSolver.getQueueHighWaterMark(),
+				backSolver == null ? 0 : backSolver.getQueueHighWaterMark());
+		if (maxForwardQueueDepth > 0 || maxBackwardQueueDepth > 0)
+			logger.info("{} forward and {} backward edges were processed inline because "
+					+ "the queue was full", forwardSolver.inlinePropagationCount,
+					backSolver == null ? 0 : backSolver.inlinePropagationCount);
+		if (enableJumpFunctionGC && !compactJumpFunctions)
+			logger.info("Jump function GC removed {} forward and {} backward jump functions "
+					+ "in {} forward and {} backward contexts",
+					forwardSolver.getCollectedJumpFunctionCount(),
+					backSolver == null ? 0 : backSolver.getCollectedJumpFunctionCount(),
+					forwardSolver.getCollectedContextCount(),
+					backSolver == null ? 0 : backSolver.getCollectedContextCount());
+		if (!compactJumpFunctions)
+			logger.info("{} of {} forward and {} of {} backward jump functions already existed "
+					+ "and were found without allocating a path edge",
+					forwardSolver.getJumpFunctionHitCount(), forwardSolver.getJumpFunctionLookupCount(),
+					backSolver == null ? 0 : backSolver.getJumpFunctionHitCount(),
+					backSolver == null ? 0 : backSolver.getJumpFunctionLookupCount());
+	}
+	
+	/**
+	 * Loads the summary cache if one has been configured
+	 * @param sourcesSinks The sources and sinks for the current analysis
+	 * @return The summary cache, or null if no summary cache shall be used
+	 */
+	private MethodSummaryCache createSummaryCache(ISourceSinkManager sourcesSinks) {
+		if (summaryCacheFile == null) {
+			if (incrementalAnalysis)
+				logger.warn("Incremental analysis requires a summary cache file, "
+						+ "analyzing the complete program");
+			return null;
 		}
-		if (executor.getActiveCount() != 0 || !executor.isTerminated())
-			logger.error("Executor did not terminate gracefully");
-
-		// Print taint wrapper statistics
-		if (taintWrapper != null) {
-			logger.info("Taint wrapper hits: " + taintWrapper.getWrapperHits());
-			logger.info("Taint wrapper misses: " + taintWrapper.getWrapperMisses());
+		if (!incrementalAnalysis && !ignoreFlowsInSystemPackages) {
+			logger.warn("The summary cache requires flows in system packages to be ignored, "
+					+ "not using it");
+			return null;
+		}
+		if (!Scene.v().hasCallGraph()) {
+			logger.warn("The summary cache requires a callgraph, not using it");
+			return null;
 		}
 		
-		Set<AbstractionAtSink> res = forwardProblem.getResults();
-
-		logger.info("IFDS problem with {} forward and {} backward edges solved, "
-				+ "processing {} results...", forwardSolver.propagationCount,
-				backSolver == null ? 0 : backSolver.propagationCount,
-				res == null ? 0 : res.size());
+		MethodSummaryCache cache = MethodSummaryCache.load(new File(summaryCacheFile),
+				getSummaryConfiguration());
+		cache.setInterproceduralCFG(iCfg);
 		
-		// Force a cleanup. Everything we need is reachable through the
-		// results set, the other abstractions can be killed now.
-		forwardSolver.cleanup();
-		if (backSolver != null) {
-			backSolver.cleanup();
-			backSolver = null;
-			backProblem = null;
+		// For incremental analyses, the summaries are invalidated whenever
+		// any code reachable from the method changes
+		if (incrementalAnalysis) {
+			cache.setClosureHasher(new MethodClosureHasher(iCfg, sourcesSinks));
+			return cache;
 		}
-		forwardSolver = null;
-		forwardProblem = null;
-		AccessPath.clearBaseRegister();
-		Runtime.getRuntime().gc();
 		
-		computeTaintPaths(res);
+		// Library methods that can call back into the application must always
+		// be explored
+		Set<SootMethod> appMethods = new HashSet<SootMethod>();
+		for (Iterator<MethodOrMethodContext> iter = Scene.v().getReachableMethods().listener();
+				iter.hasNext(); ) {
+			SootMethod sm = iter.next().method();
+			if (!SystemClassHandler.isClassInSystemPackage(sm.getDeclaringClass().getName()))
+				appMethods.add(sm);
+		}
+		cache.setExcludedMethods(getTransitiveCallers(appMethods));
+		return cache;
+	}
+	
+	/**
+	 * Puts the summaries computed by the given solver into the summary cache
+	 * and writes the cache to disk
+	 * @param summaryCache The summary cache
+	 * @param forwardSolver The forward solver that has computed the summaries
+	 * @param backSolver The backward solver used for the alias analysis, or
+	 * null if there is none
+	 * @param resultsByContext The results found in each context explored by
+	 * the forward solver
+	 */
+	private void storeSummaryCache(MethodSummaryCache summaryCache,
+			InfoflowSolver forwardSolver, InfoflowSolver backSolver,
+			Map<Pair<SootMethod, Abstraction>, Set<AbstractionAtSink>> resultsByContext) {
+		// The summary of a method that has triggered an alias analysis
+		// depends on its callers, so we cannot reuse it
+		Set<SootMethod> aliasMethods = new HashSet<SootMethod>(forwardSolver.getInjectedMethods());
+		if (backSolver != null)
+			aliasMethods.addAll(backSolver.getInjectedMethods());
+		Set<SootMethod> excludedMethods = getTransitiveCallers(aliasMethods);
+		excludedMethods.addAll(summaryCache.getExcludedMethods());
 		
-		if (results.getResults().isEmpty())
-			logger.warn("No results found.");
-		else for (Entry<SinkInfo, Set<SourceInfo>> entry : results.getResults().entrySet()) {
-			logger.info("The sink {} in method {} was called with values from the following sources:",
-                    entry.getKey(), iCfg.getMethodOf(entry.getKey().getContext()).getSignature() );
-			for (SourceInfo source : entry.getValue()) {
-				logger.info("- {} in method {}",source, iCfg.getMethodOf(source.getContext()).getSignature());
-				if (source.getPath() != null && !source.getPath().isEmpty()) {
-					logger.info("\ton Path: ");
-					for (Unit p : source.getPath()) {
-						logger.info("\t -> " + iCfg.getMethodOf(p));
-						logger.info("\t\t -> " + p);
-					}
+		int removed = summaryCache.removeStaleSummaries();
+		int stored = forwardSolver.storeSummaries(excludedMethods, resultsByContext);
+		try {
+			summaryCache.save(new File(summaryCacheFile));
+		}
+		catch (IOException ex) {
+			logger.error("Could not write summary cache " + summaryCacheFile, ex);
+		}
+		logger.info("Summary cache: {} hits, {} misses, {} outdated summaries removed, "
+				+ "{} summaries stored, {} summaries in total", summaryCache.getHits(),
+				summaryCache.getMisses(), removed, stored, summaryCache.size());
+	}
+	
+	/**
+	 * Computes the summaries of all methods reachable from the entry points
+	 * bottom-up along the callgraph. Every method is analyzed on its own with
+	 * fresh sequential solvers, starting with each of its parameters and its
+	 * "this" object, and takes the summaries of its callees from the lower
+	 * levels of the schedule. The components on the same level are
+	 * independent and are analyzed in parallel.
+	 * @param sourcesSinks The manager object for identifying sources and sinks
+	 * @param analysisCfg The control flow graph on which to run the solvers
+	 * @return The cache containing the computed summaries, or null if no
+	 * summaries could be computed
+	 */
+	private MethodSummaryCache computeBottomUpSummaries(final ISourceSinkManager sourcesSinks,
+			final IInfoflowCFG analysisCfg) {
+		if (summaryCacheFile != null) {
+			logger.warn("Bottom-up summaries cannot be combined with a summary cache file, "
+					+ "not computing them");
+			return null;
+		}
+		if (!(solverFactory instanceof FastSolverFactory)) {
+			logger.warn("Bottom-up summaries are only supported by the fast solver, "
+					+ "not computing them");
+			return null;
+		}
+		if (!Scene.v().hasCallGraph()) {
+			logger.warn("Bottom-up summaries require a callgraph, not computing them");
+			return null;
+		}
+		
+		// Summaries are keyed by the hash of the method's closure, so they
+		// are not restricted to system packages
+		final MethodSummaryCache cache = new MethodSummaryCache(getSummaryConfiguration());
+		cache.setInterproceduralCFG(iCfg);
+		cache.setClosureHasher(new MethodClosureHasher(iCfg, sourcesSinks));
+		
+		// Methods without parameters and "this" have nothing to summarize
+		List<SootMethod> methods = new ArrayList<SootMethod>();
+		for (SootMethod sm : getMethodsForSeeds(iCfg))
+			if (sm.hasActiveBody() && (!sm.isStatic() || sm.getParameterCount() > 0))
+				methods.add(sm);
+		BottomUpSchedule schedule = new BottomUpSchedule(methods, analysisCfg);
+		logger.info("Computing bottom-up summaries for {} methods in {} components on {} levels",
+				methods.size(), schedule.getComponentCount(), schedule.getLevels().size());
+		
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		if (maxThreadNum != -1)
+			numThreads = Math.min(maxThreadNum, numThreads);
+		ExecutorService levelExecutor = Executors.newFixedThreadPool(numThreads);
+		
+		// The budgets of the data flow analysis cover the summaries as well
+		final DataFlowWatcher watcher = new DataFlowWatcher();
+		watcher.setTimeout(dataFlowTimeout);
+		watcher.setMaxHeapUsage(maxHeapUsage);
+		for (AnalysisProgressHandler handler : progressHandlers)
+			watcher.addProgressHandler(handler);
+		dataFlowWatcher = watcher;
+		watcher.start();
+		if (cancelled)
+			watcher.forceTerminate(TerminationReason.Cancelled);
+		
+		long beforeSummaries = System.nanoTime();
+		int stored = 0;
+		try {
+			for (List<SootMethod> level : schedule.getLevels()) {
+				if (watcher.getTerminationReason() != null) {
+					logger.warn("Bottom-up summaries were stopped early ({}), the remaining "
+							+ "methods are not summarized", watcher.getTerminationReason());
+					break;
 				}
+				List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>(level.size());
+				for (final SootMethod sm : level)
+					tasks.add(new Callable<Integer>() {
+						@Override
+						public Integer call() throws Exception {
+							return summarizeMethod(sourcesSinks, analysisCfg, cache, sm, watcher);
+						}
+					});
+				for (Future<Integer> future : levelExecutor.invokeAll(tasks))
+					stored += future.get();
 			}
 		}
+		catch (InterruptedException ex) {
+			logger.error("Interrupted while computing bottom-up summaries", ex);
+			return null;
+		}
+		catch (ExecutionException ex) {
+			logger.error("Could not compute bottom-up summaries", ex.getCause());
+			return null;
+		}
+		finally {
+			dataFlowWatcher = null;
+			watcher.stop();
+			levelExecutor.shutdown();
+			AccessPath.clearBaseRegister();
+			AccessPath.clearInternTable();
+		}
+		logger.info("Bottom-up summaries: {} summaries stored in {} ms", stored,
+				(System.nanoTime() - beforeSummaries) / 1000000);
+		return cache;
+	}
+	
+	/**
+	 * Summarizes a single method for all its parameters and its "this"
+	 * object
+	 * @param sourcesSinks The manager object for identifying sources and sinks
+	 * @param analysisCfg The control flow graph on which to run the solvers
+	 * @param cache The cache into which to put the summaries. The summaries
+	 * of the callees are taken from here as well.
+	 * @param method The method to summarize
+	 * @param watcher The watcher that stops the solvers if the analysis
+	 * exceeds its budgets or gets cancelled
+	 * @return The number of summaries that have been put into the cache
+	 */
+	private int summarizeMethod(ISourceSinkManager sourcesSinks, IInfoflowCFG analysisCfg,
+			MethodSummaryCache cache, SootMethod method, DataFlowWatcher watcher) {
+		IInfoflowExecutor executor = new SequentialExecutor();
+		Solvers solvers = createSolvers(sourcesSinks, analysisCfg, executor);
+		if (!(solvers.forwardSolver instanceof InfoflowSolver))
+			return 0;
+		InfoflowSolver forwardSolver = (InfoflowSolver) solvers.forwardSolver;
+		InfoflowSolver backSolver = (InfoflowSolver) solvers.backSolver;
 		
-		for (ResultsAvailableHandler handler : onResultsAvailable)
-			handler.onResultsAvailable(iCfg, results);
+		// Results inside the method are part of its summary and must not
+		// stop the exploration
+		solvers.forwardProblem.setStopAfterFirstFlow(false);
+		solvers.forwardProblem.setRecordResultContexts(true);
+		forwardSolver.setSummaryCache(cache);
+		forwardSolver.setRecordInjectedMethods(true);
+		forwardSolver.setMaxPropagationCount(maxPropagationCount);
+		if (backSolver != null) {
+			backSolver.setRecordInjectedMethods(true);
+			backSolver.setMaxPropagationCount(maxPropagationCount);
+		}
+		
+		Body body = method.getActiveBody();
+		Abstraction zeroValue = solvers.forwardProblem.zeroValue();
+		if (!method.isStatic())
+			forwardSolver.summarizeMethod(method, zeroValue.deriveNewAbstraction
+					(new AccessPath(body.getThisLocal(), true), null));
+		for (Local param : body.getParameterLocals())
+			forwardSolver.summarizeMethod(method, zeroValue.deriveNewAbstraction
+					(new AccessPath(param, true), null));
+		watcher.addSolvers(forwardSolver, backSolver);
+		try {
+			forwardSolver.solve();
+		}
+		finally {
+			watcher.removeSolvers(forwardSolver, backSolver);
+		}
+		
+		// Summaries of an incomplete exploration are incomplete as well
+		if (forwardSolver.isKilled() || (backSolver != null && backSolver.isKilled()))
+			return 0;
+		
+		// The summary of a method that has triggered an alias analysis
+		// depends on its callers, so we cannot reuse it
+		Set<SootMethod> aliasMethods = new HashSet<SootMethod>(forwardSolver.getInjectedMethods());
+		if (backSolver != null)
+			aliasMethods.addAll(backSolver.getInjectedMethods());
+		int stored = forwardSolver.storeSummaries(getTransitiveCallers(aliasMethods),
+				solvers.forwardProblem.getResultsByContext());
+		
+		forwardSolver.cleanup();
+		if (backSolver != null)
+			backSolver.cleanup();
+		return stored;
+	}
+	
+	/**
+	 * Gets a string describing all options that have an influence on the
+	 * results stored in a checkpoint
+	 * @return A string describing the current configuration
+	 */
+	private String getCheckpointConfiguration() {
+		return getSummaryConfiguration()
+				+ ",computeResultPaths=" + computeResultPaths
+				+ ",pathAgnosticResults=" + pathAgnosticResults
+				+ ",stopAfterFirstFlow=" + stopAfterFirstFlow
+				+ ",query=" + query;
+	}
+	
+	/**
+	 * Gets a string describing all options that have an influence on the
+	 * cached method summaries
+	 * @return A string describing the current configuration
+	 */
+	private String getSummaryConfiguration() {
+		return "apLength=" + accessPathLength
+				+ ",adaptiveAPThreshold=" + adaptiveAccessPathThreshold
+				+ ",recursiveAPs=" + useRecursiveAccessPaths
+				+ ",staticFields=" + enableStaticFields
+				+ ",exceptions=" + enableExceptions
+				+ ",implicitFlows=" + enableImplicitFlows
+				+ ",aliasing=" + aliasingAlgorithm
+				+ ",flowSensitiveAliasing=" + flowSensitiveAliasing
+				+ ",incremental=" + incrementalAnalysis
+				+ ",taintWrapper=" + (taintWrapper == null ? "none" : taintWrapper.getClass().getName());
+	}
+	
+	/**
+	 * Gets the given methods and all methods from which they are transitively
+	 * reachable in the callgraph
+	 * @param methods The methods for which to get the transitive callers
+	 * @return The given methods and their transitive callers
+	 */
+	private Set<SootMethod> getTransitiveCallers(Collection<SootMethod> methods) {
+		Set<SootMethod> callers = new HashSet<SootMethod>();
+		List<SootMethod> workList = new ArrayList<SootMethod>(methods);
+		while (!workList.isEmpty()) {
+			SootMethod sm = workList.remove(workList.size() - 1);
+			if (callers.add(sm))
+				for (Unit callSite : iCfg.getCallersOf(sm))
+					workList.add(iCfg.getMethodOf(callSite));
+		}
+		return callers;
+	}
+	
+	/**
+	 * Gets the peak usage of all heap memory pools since their peak usage
+	 * was last reset
+	 * @return The peak heap usage in bytes
+	 */
+	private long getPeakHeapUsage() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null)
+				peak += pool.getPeakUsage().getUsed();
+		return peak;
 	}
 	
 	/**
@@ -513,25 +1356,133 @@ public class Infoflow extends AbstractInfoflow {
 	 * @param numThreads The number of threads to use
 	 * @return The generated executor
 	 */
-	private CountingThreadPoolExecutor createExecutor(int numThreads) {
-		return new CountingThreadPoolExecutor
-				(maxThreadNum == -1 ? numThreads : Math.min(maxThreadNum, numThreads),
-				Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
-				new LinkedBlockingQueue<Runnable>());
+	private IInfoflowExecutor createExecutor(int numThreads) {
+		int threadNum = maxThreadNum == -1 ? numThreads : Math.min(maxThreadNum, numThreads);
+		switch (schedulingStrategy) {
+			case SharedQueue:
+				return new InfoflowThreadPoolExecutor(threadNum,
+						Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
+						new LinkedBlockingQueue<Runnable>());
+			case WorkStealing:
+				return new WorkStealingExecutor(threadNum);
+			case MethodSharded:
+				return new MethodShardedExecutor(threadNum);
+			case Sequential:
+				return new SequentialExecutor();
+			case SinkPriority:
+				return new InfoflowThreadPoolExecutor(threadNum,
+						Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
+						new PriorityBlockingQueue<Runnable>(11, new TaskPriorityComparator()));
+			default:
+				throw new RuntimeException("Unsupported scheduling strategy");
+		}
 	}
 	
 	/**
 	 * Computes the path of tainted data between the source and the sink
 	 * @param res The data flow tracker results
+	 * @return The flows between the sources and the sinks
 	 */
-	private void computeTaintPaths(final Set<AbstractionAtSink> res) {
+	private InfoflowResults computeTaintPaths(final Set<AbstractionAtSink> res) {
 		IAbstractionPathBuilder builder = this.pathBuilderFactory.createPathBuilder(maxThreadNum);
     	if (computeResultPaths)
     		builder.computeTaintPaths(res);
     	else
     		builder.computeTaintSources(res);
-    	this.results = builder.getResults();
+    	InfoflowResults results = builder.getResults();
     	builder.shutdown();
+    	return results;
+	}
+
+	/**
+	 * Collects the sources of the results from the abstractions at the sinks.
+	 * This requires the abstractions to carry their sources.
+	 * @param res The data flow tracker results
+	 * @return The flows between the sources and the sinks
+	 */
+	private InfoflowResults collectTaintSources(Set<AbstractionAtSink> res) {
+		InfoflowResults results = new InfoflowResults();
+		for (AbstractionAtSink abs : res)
+			for (SourceContext source : abs.getAbstraction().getSources())
+				results.addResult(abs.getSinkValue(), abs.getSinkStmt(), source.getValue(),
+						source.getStmt(), source.getUserData(), Collections.<Stmt>emptyList());
+		return results;
+	}
+
+	/**
+	 * Computes the distance of every method to the nearest method containing
+	 * a sink. The distance is the number of call edges between the methods
+	 * regardless of their direction, since a taint can reach a sink both by
+	 * calling it and by returning to a caller that calls it.
+	 * @param sinkMethods The methods that contain sinks
+	 * @return The distances of all methods that are connected to a sink
+	 * method in the callgraph
+	 */
+	private Map<SootMethod, Integer> computeSinkDistances(Set<SootMethod> sinkMethods) {
+		Map<SootMethod, Integer> distances = new HashMap<SootMethod, Integer>();
+		List<SootMethod> curLevel = new ArrayList<SootMethod>(sinkMethods);
+		for (SootMethod sm : curLevel)
+			distances.put(sm, 0);
+		
+		// Breadth-first search, one level at a time
+		int distance = 0;
+		while (!curLevel.isEmpty()) {
+			distance++;
+			List<SootMethod> nextLevel = new ArrayList<SootMethod>();
+			for (SootMethod sm : curLevel) {
+				for (Unit callSite : iCfg.getCallersOf(sm)) {
+					SootMethod caller = iCfg.getMethodOf(callSite);
+					if (!distances.containsKey(caller)) {
+						distances.put(caller, distance);
+						nextLevel.add(caller);
+					}
+				}
+				if (sm.hasActiveBody())
+					for (Unit callSite : iCfg.getCallsFromWithin(sm))
+						for (SootMethod callee : iCfg.getCalleesOfCallAt(callSite))
+							if (!distances.containsKey(callee)) {
+								distances.put(callee, distance);
+								nextLevel.add(callee);
+							}
+			}
+			curLevel = nextLevel;
+		}
+		logger.info("Prioritizing the path edges in {} methods by their distance to {} sink methods",
+				distances.size(), sinkMethods.size());
+		return distances;
+	}
+
+	/**
+	 * Gets the methods that contain the sinks of the given query together
+	 * with all methods from which they are transitively called
+	 * @param query The query for which to compute the relevant methods
+	 * @return The methods from which the sinks of the query can be reached,
+	 * or null if the analysis shall not be restricted to these methods
+	 */
+	private Set<SootMethod> getMethodsReachingSinks(InfoflowQuery query) {
+		if (!query.getRestrictToSinkCallers() || query.getSinks().isEmpty())
+			return null;
+		
+		Set<SootMethod> methods = new HashSet<SootMethod>();
+		List<SootMethod> workList = new ArrayList<SootMethod>();
+		for (InfoflowQuery.Location sink : query.getSinks()) {
+			if (!Scene.v().containsMethod(sink.getMethodSignature())) {
+				logger.warn("Queried sink method {} not found", sink.getMethodSignature());
+				continue;
+			}
+			SootMethod sm = Scene.v().getMethod(sink.getMethodSignature());
+			if (methods.add(sm))
+				workList.add(sm);
+		}
+		while (!workList.isEmpty()) {
+			SootMethod sm = workList.remove(workList.size() - 1);
+			for (Unit callSite : iCfg.getCallersOf(sm)) {
+				SootMethod caller = iCfg.getMethodOf(callSite);
+				if (methods.add(caller))
+					workList.add(caller);
+			}
+		}
+		return methods;
 	}
 
 	private Collection<SootMethod> getMethodsForSeeds(IInfoflowCFG icfg) {
@@ -571,17 +1522,17 @@ public class Infoflow extends AbstractInfoflow {
 
 	/**
 	 * Scans the given method for sources and sinks contained in it. Sinks are
-	 * just counted, sources are added to the InfoflowProblem as seeds.
+	 * just counted, sources are collected as seeds.
 	 * @param sourcesSinks The SourceSinkManager to be used for identifying
 	 * sources and sinks
-	 * @param forwardProblem The InfoflowProblem in which to register the
-	 * sources as seeds
+	 * @param seeds The set to which to add the sources as seeds
 	 * @param m The method to scan for sources and sinks
 	 * @return The number of sinks found in this method
 	 */
 	private int scanMethodForSourcesSinks(
 			final ISourceSinkManager sourcesSinks,
-			InfoflowProblem forwardProblem,
+			Set<Unit> seeds,
+			Set<SootMethod> sinkMethods,
 			SootMethod m) {
 		int sinkCount = 0;
 		if (m.hasActiveBody()) {
@@ -597,12 +1548,13 @@ public class Infoflow extends AbstractInfoflow {
 			for (Unit u : units) {
 				Stmt s = (Stmt) u;
 				if (sourcesSinks.getSourceInfo(s, iCfg) != null) {
-					forwardProblem.addInitialSeeds(u, Collections.singleton(forwardProblem.zeroValue()));
+					seeds.add(u);
 					logger.debug("Source found: {}", u);
 				}
 				if (sourcesSinks.isSink(s, iCfg)) {
 		            logger.debug("Sink found: {}", u);
 					sinkCount++;
+					sinkMethods.add(m);
 				}
 			}
 			
@@ -615,6 +1567,28 @@ public class Infoflow extends AbstractInfoflow {
 		return results;
 	}
 
+	/**
+	 * Gets the statistics of the data flow solvers in the last run
+	 * @return The statistics of the data flow solvers, or null if the
+	 * solvers have not been run yet
+	 */
+	public SolverStatistics getSolverStatistics() {
+		return solverStatistics;
+	}
+
+	/**
+	 * Gets the base types for which the access paths have been shortened in
+	 * the last run
+	 * @return A map from the base types for which the access paths have been
+	 * shortened to their maximum access path length. The map is empty if no
+	 * access paths have been shortened.
+	 */
+	public Map<Type, Integer> getAccessPathLengthLimits() {
+		if (accessPathLengthPolicy == null)
+			return Collections.emptyMap();
+		return accessPathLengthPolicy.getReducedLengths();
+	}
+
 	@Override
 	public boolean isResultAvailable() {
 		if (results == null) {
@@ -704,6 +1678,39 @@ public class Infoflow extends AbstractInfoflow {
 		onResultsAvailable.remove(handler);
 	}
 	
+	/**
+	 * Adds a handler that is notified about the progress of the analysis
+	 * @param handler The handler to add
+	 */
+	public void addAnalysisProgressHandler(AnalysisProgressHandler handler) {
+		this.progressHandlers.add(handler);
+	}
+	
+	/**
+	 * Removes a handler that is notified about the progress of the analysis
+	 * @param handler The handler to remove
+	 */
+	public void removeAnalysisProgressHandler(AnalysisProgressHandler handler) {
+		this.progressHandlers.remove(handler);
+	}
+	
+	/**
+	 * Notifies all progress handlers that a new analysis phase has started
+	 * @param phase The phase that has been started
+	 */
+	private void notifyPhaseStarted(AnalysisPhase phase) {
+		for (AnalysisProgressHandler handler : progressHandlers)
+			handler.onPhaseStarted(phase);
+	}
+	
+	@Override
+	public void cancel() {
+		super.cancel();
+		DataFlowWatcher watcher = dataFlowWatcher;
+		if (cancelled && watcher != null)
+			watcher.forceTerminate(TerminationReason.Cancelled);
+	}
+	
 	@Override
 	public void setIPCManager(IIPCManager ipcManager) {
 	    this.ipcManager = ipcManager;
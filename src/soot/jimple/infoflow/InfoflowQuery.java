@@ -0,0 +1,186 @@
+package soot.jimple.infoflow;
+
+import heros.InterproceduralCFG;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+
+/**
+ * Query for a demand-driven information flow analysis. Instead of looking for
+ * all flows in the program, a query only asks whether some specific sources
+ * reach some specific sinks. Sources and sinks are identified by the
+ * signature of the method containing them and optionally by the Jimple
+ * representation of the statement, so that a query can be reused across
+ * runs in which Soot creates new statement objects.
+ */
+public class InfoflowQuery {
+
+	/**
+	 * A source or sink location inside the program
+	 */
+	public static class Location {
+		private final String methodSignature;
+		private final String statement;
+
+		/**
+		 * Creates a new instance of the {@link Location} class
+		 * @param methodSignature The signature of the method containing the
+		 * statement
+		 * @param statement The Jimple representation of the statement, or null
+		 * to match all statements in the given method
+		 */
+		public Location(String methodSignature, String statement) {
+			assert methodSignature != null;
+			this.methodSignature = methodSignature;
+			this.statement = statement;
+		}
+
+		public String getMethodSignature() {
+			return this.methodSignature;
+		}
+
+		public String getStatement() {
+			return this.statement;
+		}
+
+		/**
+		 * Checks whether the given statement is at this location
+		 * @param stmt The statement to check
+		 * @param cfg The interprocedural control flow graph
+		 * @return True if the given statement is at this location, otherwise
+		 * false
+		 */
+		public boolean matches(Stmt stmt, InterproceduralCFG<Unit, SootMethod> cfg) {
+			SootMethod method = cfg.getMethodOf(stmt);
+			if (method == null || !method.getSignature().equals(methodSignature))
+				return false;
+			return statement == null || statement.equals(stmt.toString());
+		}
+
+		@Override
+		public String toString() {
+			return statement == null ? methodSignature : statement + " in " + methodSignature;
+		}
+	}
+
+	private final List<Location> sources = new ArrayList<Location>();
+	private final List<Location> sinks = new ArrayList<Location>();
+	private boolean restrictToSinkCallers = false;
+
+	/**
+	 * Adds a source to this query
+	 * @param methodSignature The signature of the method containing the
+	 * source
+	 * @param statement The Jimple representation of the source statement, or
+	 * null to use all sources in the given method
+	 * @return This query
+	 */
+	public InfoflowQuery addSource(String methodSignature, String statement) {
+		sources.add(new Location(methodSignature, statement));
+		return this;
+	}
+
+	/**
+	 * Adds a source statement from the current program to this query
+	 * @param stmt The source statement
+	 * @param cfg The interprocedural control flow graph of the current program
+	 * @return This query
+	 */
+	public InfoflowQuery addSource(Stmt stmt, InterproceduralCFG<Unit, SootMethod> cfg) {
+		return addSource(cfg.getMethodOf(stmt).getSignature(), stmt.toString());
+	}
+
+	/**
+	 * Adds a sink to this query
+	 * @param methodSignature The signature of the method containing the sink
+	 * @param statement The Jimple representation of the sink statement, or
+	 * null to use all sinks in the given method
+	 * @return This query
+	 */
+	public InfoflowQuery addSink(String methodSignature, String statement) {
+		sinks.add(new Location(methodSignature, statement));
+		return this;
+	}
+
+	/**
+	 * Adds a sink statement from the current program to this query
+	 * @param stmt The sink statement
+	 * @param cfg The interprocedural control flow graph of the current program
+	 * @return This query
+	 */
+	public InfoflowQuery addSink(Stmt stmt, InterproceduralCFG<Unit, SootMethod> cfg) {
+		return addSink(cfg.getMethodOf(stmt).getSignature(), stmt.toString());
+	}
+
+	/**
+	 * Sets whether the analysis shall skip callees from which none of the
+	 * queried sinks can be reached in the callgraph. Such callees are treated
+	 * like methods without a body, so flows that pass through them are only
+	 * found if the taint wrapper models them. This makes the analysis
+	 * unsound, e.g., a value that is returned by a helper method and then
+	 * passed to the sink is lost. This option has no effect if the query
+	 * does not specify any sinks.
+	 * @param restrictToSinkCallers True if callees that cannot reach the
+	 * sinks shall be skipped, otherwise false. The default is false.
+	 * @return This query
+	 */
+	public InfoflowQuery setRestrictToSinkCallers(boolean restrictToSinkCallers) {
+		this.restrictToSinkCallers = restrictToSinkCallers;
+		return this;
+	}
+
+	public boolean getRestrictToSinkCallers() {
+		return this.restrictToSinkCallers;
+	}
+
+	public List<Location> getSources() {
+		return Collections.unmodifiableList(this.sources);
+	}
+
+	public List<Location> getSinks() {
+		return Collections.unmodifiableList(this.sinks);
+	}
+
+	/**
+	 * Checks whether the given statement is one of the sources of this query.
+	 * If the query does not specify any sources, all statements match.
+	 * @param stmt The statement to check
+	 * @param cfg The interprocedural control flow graph
+	 * @return True if the given statement is a queried source, otherwise false
+	 */
+	public boolean isQueriedSource(Stmt stmt, InterproceduralCFG<Unit, SootMethod> cfg) {
+		return matchesAny(sources, stmt, cfg);
+	}
+
+	/**
+	 * Checks whether the given statement is one of the sinks of this query.
+	 * If the query does not specify any sinks, all statements match.
+	 * @param stmt The statement to check
+	 * @param cfg The interprocedural control flow graph
+	 * @return True if the given statement is a queried sink, otherwise false
+	 */
+	public boolean isQueriedSink(Stmt stmt, InterproceduralCFG<Unit, SootMethod> cfg) {
+		return matchesAny(sinks, stmt, cfg);
+	}
+
+	private boolean matchesAny(List<Location> locations, Stmt stmt,
+			InterproceduralCFG<Unit, SootMethod> cfg) {
+		if (locations.isEmpty())
+			return true;
+		for (Location loc : locations)
+			if (loc.matches(stmt, cfg))
+				return true;
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "sources " + sources + ", sinks " + sinks;
+	}
+
+}
@@ -24,7 +24,7 @@ import org.slf4j.LoggerFactory;
 import soot.Value;
 import soot.jimple.InvokeExpr;
 import soot.jimple.Stmt;
-import soot.jimple.infoflow.util.ConcurrentHashSet;
+import soot.jimple.infoflow.util.SmallConcurrentSet;
 import soot.jimple.infoflow.util.MyConcurrentHashMap;
 import soot.tagkit.LineNumberTag;
 
@@ -36,6 +36,29 @@ import soot.tagkit.LineNumberTag;
 public class InfoflowResults {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
+    
+	/**
+	 * Enumeration containing the reasons for which the data flow analysis
+	 * may have been stopped before it could find all results
+	 */
+	public enum TerminationReason {
+		/**
+		 * The analysis has exceeded its time budget
+		 */
+		Timeout,
+		/**
+		 * A solver has exceeded the maximum number of propagated path edges
+		 */
+		PropagationLimit,
+		/**
+		 * The analysis has exceeded its heap usage budget
+		 */
+		MemoryLimit,
+		/**
+		 * The analysis has been cancelled by the user
+		 */
+		Cancelled
+	}
 	
 	/**
 	 * Class for modeling information flowing out of a specific source
@@ -173,11 +196,39 @@ public class InfoflowResults {
 	
 	private final MyConcurrentHashMap<SinkInfo, Set<SourceInfo>> results =
 			new MyConcurrentHashMap<SinkInfo, Set<SourceInfo>>();
+	private TerminationReason terminationReason = null;
 	
 	public InfoflowResults() {
 		
 	}
 	
+	/**
+	 * Gets whether this result object only contains a part of the results,
+	 * because the data flow analysis was stopped early
+	 * @return True if the results are incomplete, otherwise false
+	 */
+	public boolean isPartial() {
+		return this.terminationReason != null;
+	}
+	
+	/**
+	 * Gets the reason for which the data flow analysis was stopped early
+	 * @return The reason for which the analysis was stopped early, or null if
+	 * the analysis has run to completion
+	 */
+	public TerminationReason getTerminationReason() {
+		return this.terminationReason;
+	}
+	
+	/**
+	 * Marks this result object as incomplete
+	 * @param terminationReason The reason for which the data flow analysis
+	 * was stopped early
+	 */
+	public void setTerminationReason(TerminationReason terminationReason) {
+		this.terminationReason = terminationReason;
+	}
+	
 	/**
 	 * Gets the number of entries in this result object
 	 * @return The number of entries in this result object
@@ -242,9 +293,20 @@ public class InfoflowResults {
 		assert source != null;
 		
 		Set<SourceInfo> sourceInfo = this.results.putIfAbsentElseGet
-				(sink, new ConcurrentHashSet<SourceInfo>());
+				(sink, new SmallConcurrentSet<SourceInfo>());
 		sourceInfo.add(source);
 	}
+	
+	/**
+	 * Adds all information flows from the given result object to this one.
+	 * The termination reason is not copied.
+	 * @param results The result object whose flows to add
+	 */
+	public void addAll(InfoflowResults results) {
+		for (Map.Entry<SinkInfo, Set<SourceInfo>> entry : results.getResults().entrySet())
+			for (SourceInfo source : entry.getValue())
+				addResult(entry.getKey(), source);
+	}
 
 	/**
 	 * Gets all results in this object as a hash map.
@@ -0,0 +1,120 @@
+package soot.jimple.infoflow;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Handle for an information flow analysis that runs on a background thread.
+ * The analysis can be cancelled at any time. If it is cancelled while the
+ * data flow solvers are running, the solvers are stopped and the results
+ * found so far are still made available through {@link IInfoflow#getResults()}
+ * once the analysis thread has finished.
+ */
+public class InfoflowTask implements Future<InfoflowResults> {
+
+	private final IInfoflow infoflow;
+	private final Runnable analysis;
+	private final CountDownLatch finished = new CountDownLatch(1);
+
+	private volatile boolean cancelled = false;
+	private volatile Throwable exception = null;
+
+	/**
+	 * Creates a new instance of the {@link InfoflowTask} class
+	 * @param infoflow The analysis object on which the analysis is run
+	 * @param analysis The code that runs the analysis
+	 */
+	InfoflowTask(IInfoflow infoflow, Runnable analysis) {
+		this.infoflow = infoflow;
+		this.analysis = analysis;
+	}
+
+	/**
+	 * Starts the analysis on a new thread
+	 */
+	void start() {
+		Thread thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					analysis.run();
+				}
+				catch (Throwable t) {
+					exception = t;
+				}
+				finally {
+					finished.countDown();
+				}
+			}
+
+		}, "FlowDroid analysis");
+		thread.start();
+	}
+
+	/**
+	 * Cancels the analysis. The analysis is stopped cooperatively, so the
+	 * analysis thread is never interrupted. Use {@link #awaitCompletion()} to
+	 * wait until the analysis thread has actually finished.
+	 * @param mayInterruptIfRunning Ignored
+	 * @return False if the analysis has already finished, otherwise true
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (finished.getCount() == 0)
+			return false;
+		cancelled = true;
+		infoflow.cancel();
+		return true;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public boolean isDone() {
+		return cancelled || finished.getCount() == 0;
+	}
+
+	@Override
+	public InfoflowResults get() throws InterruptedException, ExecutionException {
+		if (!cancelled)
+			finished.await();
+		return getResults();
+	}
+
+	@Override
+	public InfoflowResults get(long timeout, TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		if (!cancelled && !finished.await(timeout, unit))
+			throw new TimeoutException("Analysis did not finish in time");
+		return getResults();
+	}
+
+	private InfoflowResults getResults() throws ExecutionException {
+		if (cancelled)
+			throw new CancellationException("Analysis was cancelled");
+		if (exception != null)
+			throw new ExecutionException(exception);
+		return infoflow.getResults();
+	}
+
+	/**
+	 * Waits until the analysis thread has finished. Contrary to {@link #get()},
+	 * this method also waits for cancelled analyses. Since Soot keeps its state
+	 * in global singletons, no other analysis may be started before this
+	 * method has returned.
+	 * @throws InterruptedException Thrown if the current thread was
+	 * interrupted while waiting
+	 */
+	public void awaitCompletion() throws InterruptedException {
+		finished.await();
+	}
+
+}
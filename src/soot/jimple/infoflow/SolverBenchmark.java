@@ -0,0 +1,148 @@
+package soot.jimple.infoflow;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.jimple.infoflow.entryPointCreators.IEntryPointCreator;
+import soot.jimple.infoflow.solver.IInfoflowSolverFactory;
+import soot.jimple.infoflow.solver.SolverStatistics;
+import soot.jimple.infoflow.solver.fastSolver.FastSolverFactory;
+import soot.jimple.infoflow.solver.heros.HerosSolverFactory;
+import soot.jimple.infoflow.source.ISourceSinkManager;
+
+/**
+ * Runs the same information flow analysis with different data flow solvers
+ * and compares the number of propagated edges, the running time and the peak
+ * memory consumption of the solvers. All other options are taken from the
+ * given {@link Infoflow} object. Note that the Heros solver requires the
+ * shared-queue scheduling strategy.
+ */
+public class SolverBenchmark {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final Infoflow infoflow;
+	private final Map<String, IInfoflowSolverFactory> solvers =
+			new LinkedHashMap<String, IInfoflowSolverFactory>();
+
+	/**
+	 * The measurements for a single solver
+	 */
+	public static class BenchmarkResult {
+
+		private final String solverName;
+		private final SolverStatistics statistics;
+		private final int resultCount;
+
+		public BenchmarkResult(String solverName, SolverStatistics statistics,
+				int resultCount) {
+			this.solverName = solverName;
+			this.statistics = statistics;
+			this.resultCount = resultCount;
+		}
+
+		public String getSolverName() {
+			return this.solverName;
+		}
+
+		/**
+		 * Gets the statistics of the data flow solvers
+		 * @return The statistics of the data flow solvers, or null if the
+		 * solvers have not been run, e.g. because no sources were found
+		 */
+		public SolverStatistics getStatistics() {
+			return this.statistics;
+		}
+
+		public int getResultCount() {
+			return this.resultCount;
+		}
+
+	}
+
+	/**
+	 * Creates a new instance of the {@link SolverBenchmark} class
+	 * @param infoflow The analysis object that shall be run with the
+	 * different solvers
+	 */
+	public SolverBenchmark(Infoflow infoflow) {
+		this.infoflow = infoflow;
+	}
+
+	/**
+	 * Adds a solver to compare. If no solver is added, the fast solver and
+	 * the Heros solver are compared.
+	 * @param name The name under which to report the solver
+	 * @param factory The factory that creates the solver
+	 */
+	public void addSolver(String name, IInfoflowSolverFactory factory) {
+		this.solvers.put(name, factory);
+	}
+
+	/**
+	 * Runs the analysis once with every solver
+	 * @param appPath The path containing the client program's files
+	 * @param libPath the path to the main folder of the (unpacked) library class files
+	 * @param entryPointCreator the entry point creator to use for generating the dummy
+	 * main method
+	 * @param sourcesSinks manager class for identifying sources and sinks in the source code
+	 * @return The measurements for all solvers in the order in which the
+	 * solvers have been added
+	 */
+	public List<BenchmarkResult> run(String appPath, String libPath,
+			IEntryPointCreator entryPointCreator, ISourceSinkManager sourcesSinks) {
+		if (solvers.isEmpty()) {
+			solvers.put("fast", new FastSolverFactory());
+			solvers.put("heros", new HerosSolverFactory());
+		}
+
+		IInfoflowSolverFactory originalFactory = infoflow.solverFactory;
+		List<BenchmarkResult> benchmarkResults = new ArrayList<BenchmarkResult>(solvers.size());
+		try {
+			for (Entry<String, IInfoflowSolverFactory> entry : solvers.entrySet()) {
+				logger.info("Running benchmark for solver {}", entry.getKey());
+				infoflow.setSolverFactory(entry.getValue());
+				infoflow.computeInfoflow(appPath, libPath, entryPointCreator, sourcesSinks);
+				InfoflowResults results = infoflow.getResults();
+				benchmarkResults.add(new BenchmarkResult(entry.getKey(),
+						infoflow.getSolverStatistics(), results == null ? 0 : results.size()));
+			}
+		}
+		finally {
+			infoflow.setSolverFactory(originalFactory);
+		}
+
+		logger.info("Solver benchmark results:\n{}", formatResults(benchmarkResults));
+		return benchmarkResults;
+	}
+
+	/**
+	 * Formats the given measurements as a table with one row per solver
+	 * @param benchmarkResults The measurements to format
+	 * @return The table with the measurements
+	 */
+	public static String formatResults(List<BenchmarkResult> benchmarkResults) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-16s %14s %14s %10s %10s %8s%n", "solver",
+				"fw edges", "bw edges", "time (ms)", "peak (MB)", "results"));
+		for (BenchmarkResult result : benchmarkResults) {
+			SolverStatistics stats = result.getStatistics();
+			if (stats == null)
+				sb.append(String.format("%-16s %14s %14s %10s %10s %8d%n", result.getSolverName(),
+						"-", "-", "-", "-", result.getResultCount()));
+			else
+				sb.append(String.format("%-16s %14d %14d %10d %10d %8d%n", result.getSolverName(),
+						stats.getForwardPropagationCount(), stats.getBackwardPropagationCount(),
+						stats.getDataFlowTime(), stats.getPeakHeapUsage() / (1024 * 1024),
+						result.getResultCount()));
+		}
+		return sb.toString();
+	}
+
+}
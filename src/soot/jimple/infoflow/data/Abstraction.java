@@ -11,8 +11,7 @@
 package soot.jimple.infoflow.data;
 
 
-import java.util.ArrayList;
-import java.util.BitSet;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -27,11 +26,9 @@ import soot.jimple.Stmt;
 import soot.jimple.infoflow.solver.IInfoflowCFG.UnitContainer;
 import soot.jimple.infoflow.solver.fastSolver.FastSolverLinkedNode;
 import soot.jimple.infoflow.source.SourceInfo;
-import soot.jimple.infoflow.util.ConcurrentHashSet;
+import soot.jimple.infoflow.util.SmallConcurrentSet;
 import soot.jimple.internal.JimpleLocal;
 
-import com.google.common.collect.Sets;
-
 /**
  * The abstraction class contains all information that is necessary to track the taint.
  * 
@@ -42,6 +39,14 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 	
 	private static boolean flowSensitiveAliasing = true;
 	
+	/**
+	 * True if abstractions shall carry the sources from which they have been
+	 * derived instead of links to their predecessors
+	 */
+	private static boolean trackSources = false;
+	
+	static final SourceContext[] NO_SOURCES = new SourceContext[0];
+	
 	/**
 	 * the access path contains the currently tainted variable or field
 	 */
@@ -52,33 +57,38 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 	private Stmt currentStmt = null;
 	
 	private SourceContext sourceContext = null;
-
-	// only used in path generation
-	private Set<SourceContextAndPath> pathCache = null;
-	private BitSet pathFlags = null;
 	
 	/**
 	 * Unit/Stmt which activates the taint when the abstraction passes it
 	 */
 	private Unit activationUnit = null;
-	/**
-	 * taint is thrown by an exception (is set to false when it reaches the catch-Stmt)
-	 */
-	private boolean exceptionThrown = false;
 	private int hashCode = 0;
 
 	/**
 	 * The postdominators we need to pass in order to leave the current conditional
-	 * branch. Do not use the synchronized Stack class here to avoid deadlocks.
+	 * branch, or null if the abstraction is not inside a conditional branch.
+	 * The stack is immutable, so that abstractions can share it.
 	 */
-	private List<UnitContainer> postdominators = null;
-	private boolean isImplicit = false;
+	private PostdominatorStack postdominators = null;
 	
+	/**
+	 * taint is thrown by an exception (is set to false when it reaches the catch-Stmt)
+	 */
+	private static final byte FLAG_EXCEPTION_THROWN = 1;
+	private static final byte FLAG_IMPLICIT = 2;
 	/**
 	 * Only valid for inactive abstractions. Specifies whether an access paths
 	 * has been cut during alias analysis.
 	 */
-	private boolean dependsOnCutAP = false;
+	private static final byte FLAG_DEPENDS_ON_CUT_AP = 4;
+	private static final byte IDENTITY_FLAGS = FLAG_EXCEPTION_THROWN | FLAG_IMPLICIT
+			| FLAG_DEPENDS_ON_CUT_AP;
+	
+	/**
+	 * The boolean properties of this abstraction packed into one field, since
+	 * the solver holds very many abstractions
+	 */
+	private byte flags = 0;
 	
 	public Abstraction(Value taint, SourceInfo sourceInfo,
 			Value sourceVal, Stmt sourceStmt,
@@ -102,12 +112,12 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 			boolean exceptionThrown,
 			boolean isImplicit){
 		this.sourceContext = sourceContext;
-		this.accessPath = new AccessPath(taint, taintSubFields);
+		this.accessPath = AccessPath.canonicalize(new AccessPath(taint, taintSubFields));
 		this.activationUnit = null;
-		this.exceptionThrown = exceptionThrown;
+		setFlag(FLAG_EXCEPTION_THROWN, exceptionThrown);
 		
 		this.neighbors = null;
-		this.isImplicit = isImplicit;
+		setFlag(FLAG_IMPLICIT, isImplicit);
 		this.currentStmt = null;
 	}
 
@@ -120,24 +130,19 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 	protected Abstraction(AccessPath p, Abstraction original){
 		if (original == null) {
 			sourceContext = null;
-			exceptionThrown = false;
 			activationUnit = null;
 			flowSensitiveAliasing = true;
-			isImplicit = false;
 		}
 		else {
 			sourceContext = original.sourceContext;
-			exceptionThrown = original.exceptionThrown;
 			activationUnit = original.activationUnit;
 			assert activationUnit == null || flowSensitiveAliasing;
 			
-			postdominators = original.postdominators == null ? null
-					: new ArrayList<UnitContainer>(original.postdominators);
+			postdominators = original.postdominators;
 			
-			dependsOnCutAP = original.dependsOnCutAP;
-			isImplicit = original.isImplicit;
+			flags = (byte) (original.flags & IDENTITY_FLAGS);
 		}
-		accessPath = p;
+		accessPath = p == null ? null : AccessPath.canonicalize(p);
 		neighbors = null;
 		currentStmt = null;
 	}
@@ -159,7 +164,7 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 	}
 
 	public Abstraction deriveNewAbstraction(AccessPath p, Stmt currentStmt){
-		return deriveNewAbstraction(p, currentStmt, isImplicit);
+		return deriveNewAbstraction(p, currentStmt, isImplicit());
 	}
 	
 	public Abstraction deriveNewAbstraction(AccessPath p, Stmt currentStmt,
@@ -167,11 +172,11 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 		// If the new abstraction looks exactly like the current one, there is
 		// no need to create a new object
 		if (this.accessPath.equals(p) && this.currentStmt == currentStmt
-				&& this.isImplicit == isImplicit)
+				&& this.isImplicit() == isImplicit)
 			return this;
 		
 		Abstraction abs = deriveNewAbstractionMutable(p, currentStmt);
-		abs.isImplicit = isImplicit;
+		abs.setFlag(FLAG_IMPLICIT, isImplicit);
 		return abs;
 	}
 	
@@ -182,14 +187,13 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 			return abs;
 		}
 		
-		Abstraction abs = new Abstraction(p, this);
-		abs.predecessor = this;
+		Abstraction abs = createCopy(p);
 		abs.currentStmt = currentStmt;
 		
 		if (!abs.getAccessPath().isEmpty())
 			abs.postdominators = null;
 		if (!abs.isAbstractionActive())
-			abs.dependsOnCutAP = abs.dependsOnCutAP || p.isCutOffApproximation();
+			abs.setFlag(FLAG_DEPENDS_ON_CUT_AP, abs.dependsOnCutAP() || p.isCutOffApproximation());
 		
 		abs.sourceContext = null;
 		return abs;
@@ -216,12 +220,12 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 	 * @return The newly derived abstraction
 	 */
 	public final Abstraction deriveNewAbstractionOnThrow(Stmt throwStmt){
-		assert !this.exceptionThrown;
+		assert !this.getExceptionThrown();
 		Abstraction abs = clone();
 		
 		abs.currentStmt = throwStmt;
 		abs.sourceContext = null;
-		abs.exceptionThrown = true;
+		abs.setFlag(FLAG_EXCEPTION_THROWN, true);
 		return abs;
 	}
 	
@@ -232,55 +236,18 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 	 * @return The newly derived abstraction
 	 */
 	public final Abstraction deriveNewAbstractionOnCatch(Value taint){
-		assert this.exceptionThrown;
+		assert this.getExceptionThrown();
 		Abstraction abs = deriveNewAbstractionMutable(new AccessPath(taint, true), null);
-		abs.exceptionThrown = false;
+		abs.setFlag(FLAG_EXCEPTION_THROWN, false);
 		return abs;
 	}
-		
-	/**
-	 * Gets the path of statements from the source to the current statement
-	 * with which this abstraction is associated. If this path is ambiguous,
-	 * a single path is selected randomly.
-	 * @return The path from the source to the current statement
-	 */
-	public Set<SourceContextAndPath> getPaths() {
-		if (pathCache == null)
-			return Collections.emptySet();
-		return pathCache;
-	}
-	
-	public Set<SourceContextAndPath> getOrMakePathCache() {
-		// We're optimistic about having a path cache. If we definitely have one,
-		// we return it. Otherwise, we need to lock and create one.
-		if (this.pathCache != null)
-			return pathCache;
-		
-		synchronized (this) {
-			if (this.pathCache == null)
-				this.pathCache = new ConcurrentHashSet<SourceContextAndPath>();
-		}
-		return pathCache;
-	}
 	
-	public boolean registerPathFlag(int id) {
-		if (pathFlags != null && pathFlags.get(id))
-			return false;
-		
-		synchronized (this) {
-			if (pathFlags == null)
-				pathFlags = new BitSet();
-			pathFlags.set(id);
-		}
-		return true;
-	}
-
 	public boolean isAbstractionActive() {
 		return activationUnit == null;
 	}
 	
 	public boolean isImplicit() {
-		return isImplicit;
+		return getFlag(FLAG_IMPLICIT);
 	}
 	
 	@Override
@@ -311,7 +278,18 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 	 * false
 	 */
 	public boolean getExceptionThrown() {
-		return this.exceptionThrown;
+		return getFlag(FLAG_EXCEPTION_THROWN);
+	}
+	
+	private boolean getFlag(byte flag) {
+		return (flags & flag) != 0;
+	}
+	
+	private void setFlag(byte flag, boolean value) {
+		if (value)
+			flags |= flag;
+		else
+			flags &= ~flag;
 	}
 	
 	public final Abstraction deriveConditionalAbstractionEnter(UnitContainer postdom,
@@ -323,10 +301,7 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 		
 		Abstraction abs = deriveNewAbstractionMutable
 				(AccessPath.getEmptyAccessPath(), conditionalUnit);
-		if (abs.postdominators == null)
-			abs.postdominators = Collections.singletonList(postdom);
-		else
-			abs.postdominators.add(0, postdom);
+		abs.postdominators = PostdominatorStack.push(abs.postdominators, postdom);
 		return abs;
 	}
 	
@@ -345,19 +320,19 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 	}
 	
 	public final Abstraction dropTopPostdominator() {
-		if (postdominators == null || postdominators.isEmpty())
+		if (postdominators == null)
 			return this;
 		
 		Abstraction abs = clone();
 		abs.sourceContext = null;
-		abs.postdominators.remove(0);
+		abs.postdominators = postdominators.pop();
 		return abs;
 	}
 	
 	public UnitContainer getTopPostdominator() {
-		if (postdominators == null || postdominators.isEmpty())
+		if (postdominators == null)
 			return null;
-		return this.postdominators.get(0);
+		return this.postdominators.getTop();
 	}
 	
 	public boolean isTopPostdominator(Unit u) {
@@ -376,8 +351,7 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 	
 	@Override
 	public Abstraction clone() {
-		Abstraction abs = new Abstraction(accessPath, this);
-		abs.predecessor = this;
+		Abstraction abs = createCopy(accessPath);
 		abs.neighbors = null;
 		abs.currentStmt = null;
 		
@@ -385,6 +359,29 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 		return abs;
 	}
 	
+	/**
+	 * Creates a copy of this abstraction with the given access path. If
+	 * sources are tracked, the copy carries the sources of this abstraction,
+	 * otherwise it links to this abstraction as its predecessor.
+	 * @param p The access path for the new abstraction
+	 * @return The new abstraction
+	 */
+	private Abstraction createCopy(AccessPath p) {
+		if (trackSources)
+			return new SourceTrackingAbstraction(p, this);
+		Abstraction abs = new Abstraction(p, this);
+		abs.predecessor = this;
+		return abs;
+	}
+	
+	@Override
+	public Abstraction deriveWithPredecessor(Abstraction predecessor) {
+		Abstraction abs = createCopy(accessPath);
+		abs.currentStmt = currentStmt;
+		abs.setPredecessor(predecessor);
+		return abs;
+	}
+	
 	@Override
 	public boolean equals(Object obj) {
 		if (super.equals(obj))
@@ -428,17 +425,13 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 				return false;
 		} else if (!activationUnit.equals(other.activationUnit))
 			return false;
-		if (this.exceptionThrown != other.exceptionThrown)
+		if ((this.flags & IDENTITY_FLAGS) != (other.flags & IDENTITY_FLAGS))
 			return false;
 		if (postdominators == null) {
 			if (other.postdominators != null)
 				return false;
 		} else if (!postdominators.equals(other.postdominators))
 			return false;
-		if(this.dependsOnCutAP != other.dependsOnCutAP)
-			return false;
-		if(this.isImplicit != other.isImplicit)
-			return false;
 		return true;
 	}
 	
@@ -454,10 +447,8 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 		result = prime * result + ((sourceContext == null) ? 0 : sourceContext.hashCode());
 		result = prime * result + ((accessPath == null) ? 0 : accessPath.hashCode());
 		result = prime * result + ((activationUnit == null) ? 0 : activationUnit.hashCode());
-		result = prime * result + (exceptionThrown ? 1231 : 1237);
 		result = prime * result + ((postdominators == null) ? 0 : postdominators.hashCode());
-		result = prime * result + (dependsOnCutAP ? 1231 : 1237);
-		result = prime * result + (isImplicit ? 1231 : 1237);
+		result = prime * result + (flags & IDENTITY_FLAGS);
 		this.hashCode = result;
 		
 		return this.hashCode;
@@ -488,7 +479,20 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 	}
 	
 	public boolean dependsOnCutAP() {
-		return dependsOnCutAP;
+		return getFlag(FLAG_DEPENDS_ON_CUT_AP);
+	}
+	
+	/**
+	 * Gets the sources from which this abstraction has been derived. The
+	 * sources are only known if they are tracked instead of predecessors.
+	 * @return The sources from which this abstraction has been derived
+	 */
+	public List<SourceContext> getSources() {
+		return Collections.unmodifiableList(Arrays.asList(getSourceArray()));
+	}
+	
+	SourceContext[] getSourceArray() {
+		return sourceContext == null ? NO_SOURCES : new SourceContext[] { sourceContext };
 	}
 	
 	public Abstraction getPredecessor() {
@@ -516,17 +520,77 @@ public class Abstraction implements Cloneable, FastSolverLinkedNode<Abstraction>
 		
 		synchronized (this) {
 			if (neighbors == null)
-				neighbors = Sets.newIdentityHashSet();
+				neighbors = new SmallConcurrentSet<Abstraction>(true);
 			this.neighbors.add(originalAbstraction);
 		}
 	}
 		
+	@Override
+	public boolean merge(Abstraction other) {
+		addNeighbor(other);
+		return false;
+	}
+	
+	/**
+	 * Creates a new abstraction for a taint that starts at a source. If
+	 * sources are tracked instead of predecessors, the abstraction carries
+	 * the set of sources it has been derived from.
+	 * @param taint The value that is tainted by the source
+	 * @param sourceInfo The information about the source
+	 * @param sourceVal The value returned by the source
+	 * @param sourceStmt The statement that calls the source
+	 * @param exceptionThrown True if the taint is thrown as an exception
+	 * @param isImplicit True if the taint is an implicit flow
+	 * @return The new abstraction
+	 */
+	public static Abstraction createSourceAbstraction(Value taint, SourceInfo sourceInfo,
+			Value sourceVal, Stmt sourceStmt, boolean exceptionThrown, boolean isImplicit) {
+		if (trackSources)
+			return new SourceTrackingAbstraction(taint, sourceInfo, sourceVal, sourceStmt,
+					exceptionThrown, isImplicit);
+		return new Abstraction(taint, sourceInfo, sourceVal, sourceStmt, exceptionThrown, isImplicit);
+	}
+	
 	public static Abstraction getZeroAbstraction(boolean flowSensitiveAliasing) {
-		Abstraction zeroValue = new Abstraction(new JimpleLocal("zero", NullType.v()), new SourceInfo(false),
-				NullConstant.v(), null, false, false);
+		Abstraction zeroValue;
+		if (trackSources) {
+			// The zero value does not stem from any source
+			SourceTrackingAbstraction zeroWithSources = new SourceTrackingAbstraction(
+					new JimpleLocal("zero", NullType.v()), new SourceInfo(false),
+					NullConstant.v(), null, false, false);
+			zeroWithSources.clearSources();
+			zeroValue = zeroWithSources;
+		}
+		else
+			zeroValue = new Abstraction(new JimpleLocal("zero", NullType.v()), new SourceInfo(false),
+					NullConstant.v(), null, false, false);
 		Abstraction.flowSensitiveAliasing = flowSensitiveAliasing;
 		return zeroValue;
 	}
+	
+	/**
+	 * Sets whether abstractions shall carry the sources from which they have
+	 * been derived instead of links to their predecessors. Sources of equal
+	 * abstractions are merged, so the sources are known as soon as an
+	 * abstraction reaches a sink, but the paths from the sources cannot be
+	 * reconstructed. This must be set before the first abstraction is
+	 * created.
+	 * @param trackSources True if the sources shall be tracked instead of
+	 * predecessors, otherwise false
+	 */
+	public static void setTrackSources(boolean trackSources) {
+		Abstraction.trackSources = trackSources;
+	}
+	
+	/**
+	 * Gets whether abstractions carry the sources from which they have been
+	 * derived instead of links to their predecessors
+	 * @return True if sources are tracked instead of predecessors, otherwise
+	 * false
+	 */
+	public static boolean isTrackSources() {
+		return trackSources;
+	}
 
 	@Override
 	public void setPredecessor(Abstraction predecessor) {
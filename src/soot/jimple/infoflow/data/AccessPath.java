@@ -30,6 +30,9 @@ import soot.jimple.infoflow.Infoflow;
 import soot.jimple.infoflow.util.ConcurrentHashSet;
 import soot.jimple.infoflow.util.MyConcurrentHashMap;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 /**
  * This class represents the taint, containing a base value and a list of fields
  * (length is bounded by Infoflow.ACCESSPATHLENGTH)
@@ -54,8 +57,70 @@ public class AccessPath implements Cloneable {
 	
 	private int hashCode = 0;
 	
+	/**
+	 * The generation of the intern scope in which this access path is the
+	 * canonical instance, or 0 if it is not canonical
+	 */
+	private int canonicalGeneration = 0;
+	
 	private static MyConcurrentHashMap<Type, Set<Pair<SootField[], Type[]>>> baseRegister
 			= new MyConcurrentHashMap<Type, Set<Pair<SootField[],Type[]>>>();
+	
+	/**
+	 * Table of canonical access paths. The generation distinguishes the
+	 * canonical instances of different analysis runs.
+	 */
+	private static class InternScope {
+		private final Interner<AccessPath> accessPaths = Interners.newWeakInterner();
+		private final MyConcurrentHashMap<FieldChain, FieldChain> fieldChains =
+				new MyConcurrentHashMap<FieldChain, FieldChain>();
+		private final int generation;
+		
+		public InternScope(int generation) {
+			this.generation = generation;
+		}
+	}
+	
+	/**
+	 * Sequence of fields together with their types. Access paths with equal
+	 * field sequences share the same arrays.
+	 */
+	private static class FieldChain {
+		private final SootField[] fields;
+		private final Type[] types;
+		private final int hashCode;
+		
+		public FieldChain(SootField[] fields, Type[] types) {
+			this.fields = fields;
+			this.types = types;
+			this.hashCode = 31 * Arrays.hashCode(fields) + Arrays.hashCode(types);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof FieldChain))
+				return false;
+			FieldChain other = (FieldChain) obj;
+			return hashCode == other.hashCode
+					&& Arrays.equals(fields, other.fields)
+					&& Arrays.equals(types, other.types);
+		}
+	}
+	
+	private static volatile InternScope internScope = new InternScope(1);
+	
+	/**
+	 * The policy that limits the access path length per base type, or null
+	 * if all access paths are limited to the global maximum length
+	 */
+	private static volatile AccessPathLengthPolicy lengthPolicy = null;
 
 	/**
 	 * The empty access path denotes a code region depending on a tainted
@@ -208,7 +273,17 @@ public class AccessPath implements Cloneable {
 		// Cut the fields at the maximum access path length. If this happens,
 		// we must always add a star
 		if (fields != null) {
-			int fieldNum = Math.min(Infoflow.getAccessPathLength(), fields.length);
+			// Access paths on static fields are limited by the class that
+			// declares the static field
+			AccessPathLengthPolicy policy = lengthPolicy;
+			Type policyType = null;
+			if (policy != null && fields.length > 0)
+				policyType = this.baseType != null ? this.baseType
+						: fields[0].getDeclaringClass().getType();
+			int maxLength = policyType == null ? Infoflow.getAccessPathLength()
+					: policy.getLength(policyType);
+			
+			int fieldNum = Math.min(maxLength, fields.length);
 			if (fields.length > fieldNum) {
 				this.taintSubFields = true;
 				this.cutOffApproximation = true;
@@ -223,10 +298,19 @@ public class AccessPath implements Cloneable {
 				this.fieldTypes = null;
 			}
 			else {
-				this.fields = new SootField[fieldNum];
-				this.fieldTypes = new Type[fieldNum];
-				System.arraycopy(fields, 0, this.fields, 0, fieldNum);
-				System.arraycopy(fieldTypes, 0, this.fieldTypes, 0, fieldNum);
+				SootField[] newFields = new SootField[fieldNum];
+				Type[] newTypes = new Type[fieldNum];
+				System.arraycopy(fields, 0, newFields, 0, fieldNum);
+				System.arraycopy(fieldTypes, 0, newTypes, 0, fieldNum);
+				
+				// Share the arrays with other access paths over the same fields
+				FieldChain chain = new FieldChain(newFields, newTypes);
+				chain = internScope.fieldChains.putIfAbsentElseGet(chain, chain);
+				this.fields = chain.fields;
+				this.fieldTypes = chain.types;
+				
+				if (policyType != null)
+					policy.registerFields(policyType, this.fields);
 			}
 		}
 		else {
@@ -290,7 +374,45 @@ public class AccessPath implements Cloneable {
 	public static Collection<Pair<SootField[], Type[]>> getBaseForType(Type tp) {
 		return baseRegister.get(tp);
 	}
+	
+	/**
+	 * Gets the canonical instance of the given access path. All structurally
+	 * equal access paths canonicalized in the same intern scope yield the
+	 * same instance, so that they can be compared by identity. The table
+	 * only references the canonical instances weakly.
+	 * @param ap The access path to canonicalize
+	 * @return The canonical access path that is equal to the given one
+	 */
+	public static AccessPath canonicalize(AccessPath ap) {
+		InternScope scope = internScope;
+		if (ap.canonicalGeneration == scope.generation)
+			return ap;
+		AccessPath canonical = scope.accessPaths.intern(ap);
+		if (canonical == ap)
+			ap.canonicalGeneration = scope.generation;
+		return canonical;
+	}
+	
+	/**
+	 * Starts a new intern scope, typically at the end of an analysis run.
+	 * Access paths canonicalized afterwards do not share instances or field
+	 * arrays with the ones canonicalized before.
+	 */
+	public static void clearInternTable() {
+		internScope = new InternScope(internScope.generation + 1);
+	}
 
+	/**
+	 * Sets the policy that limits the length of the access paths per base
+	 * type. Access paths created afterwards are cut to the length the policy
+	 * chooses for their base type.
+	 * @param policy The policy to use, or null to limit all access paths to
+	 * the global maximum length
+	 */
+	public static void setLengthPolicy(AccessPathLengthPolicy policy) {
+		lengthPolicy = policy;
+	}
+	
 	/**
 	 * Checks whether the given value can be the base value value of an access
 	 * path
@@ -378,6 +500,12 @@ public class AccessPath implements Cloneable {
 			return false;
 		
 		AccessPath other = (AccessPath) obj;
+		
+		// Two different canonical instances from the same scope can never
+		// be equal
+		if (canonicalGeneration != 0 && canonicalGeneration == other.canonicalGeneration)
+			return false;
+		
 		if (!Arrays.equals(fields, other.fields))
 			return false;
 		if (!Arrays.equals(fieldTypes, other.fieldTypes))
@@ -0,0 +1,113 @@
+package soot.jimple.infoflow.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import soot.SootField;
+import soot.Type;
+import soot.jimple.infoflow.util.ConcurrentHashSet;
+import soot.jimple.infoflow.util.MyConcurrentHashMap;
+
+/**
+ * Maximum length of the access paths on each base type. All types start
+ * with the same maximum length. The policy counts the distinct field
+ * sequences that are built on every base type. If this count exceeds the
+ * threshold for a type, the maximum length for that type is reduced by one
+ * field and the counting starts over. Types on which the data flow explodes
+ * are thus limited to short access paths, while all other types keep the
+ * full length. The limits only ever decrease during an analysis run.
+ */
+public class AccessPathLengthPolicy {
+
+	/**
+	 * The minimum length to which access paths are shortened. Access paths
+	 * on static fields need at least one field.
+	 */
+	public static final int MIN_LENGTH = 1;
+
+	private final int maxLength;
+	private final int threshold;
+
+	private final MyConcurrentHashMap<Type, TypeLimit> limits =
+			new MyConcurrentHashMap<Type, TypeLimit>();
+
+	/**
+	 * The current limit for a single base type together with the field
+	 * sequences seen since the limit was last changed
+	 */
+	private static class TypeLimit {
+		private volatile int length;
+		private final Set<Object> fieldSequences = new ConcurrentHashSet<Object>();
+
+		public TypeLimit(int length) {
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Creates a new policy
+	 * @param maxLength The maximum access path length for all types that have
+	 * not been shortened
+	 * @param threshold The number of distinct field sequences on a base type
+	 * after which the access paths on that type are shortened
+	 */
+	public AccessPathLengthPolicy(int maxLength, int threshold) {
+		assert threshold > 0;
+		this.maxLength = maxLength;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Gets the maximum length of the access paths on the given base type
+	 * @param baseType The base type of the access path
+	 * @return The maximum number of fields of an access path on the given
+	 * base type
+	 */
+	public int getLength(Type baseType) {
+		TypeLimit limit = limits.get(baseType);
+		return limit == null ? maxLength : limit.length;
+	}
+
+	/**
+	 * Registers a sequence of fields that has been built on the given base
+	 * type. If this is a new sequence and the number of sequences exceeds the
+	 * threshold, the maximum length for the given type is reduced.
+	 * @param baseType The base type of the access path
+	 * @param fields The fields of the access path after it has been cut to
+	 * the maximum length
+	 */
+	public void registerFields(Type baseType, SootField[] fields) {
+		TypeLimit limit = limits.get(baseType);
+		if (limit == null)
+			limit = limits.putIfAbsentElseGet(baseType, new TypeLimit(maxLength));
+		if (limit.length <= MIN_LENGTH)
+			return;
+		if (!limit.fieldSequences.add(Arrays.asList(fields)))
+			return;
+		if (limit.fieldSequences.size() <= threshold)
+			return;
+
+		synchronized (limit) {
+			if (limit.fieldSequences.size() > threshold && limit.length > MIN_LENGTH) {
+				limit.length--;
+				limit.fieldSequences.clear();
+			}
+		}
+	}
+
+	/**
+	 * Gets the types for which the access paths have been shortened
+	 * @return A map from the base types for which the access paths have been
+	 * shortened to their maximum access path length
+	 */
+	public Map<Type, Integer> getReducedLengths() {
+		Map<Type, Integer> reduced = new HashMap<Type, Integer>();
+		for (Map.Entry<Type, TypeLimit> entry : limits.entrySet())
+			if (entry.getValue().length < maxLength)
+				reduced.put(entry.getKey(), entry.getValue().length);
+		return reduced;
+	}
+
+}
@@ -0,0 +1,107 @@
+package soot.jimple.infoflow.data;
+
+import soot.jimple.infoflow.solver.IInfoflowCFG.UnitContainer;
+
+/**
+ * Immutable stack of the postdominators an abstraction needs to pass in order
+ * to leave the conditional branches it is in. The stack is a linked list of
+ * nodes that share their tails, so pushing and popping a postdominator does
+ * not copy anything. The empty stack is represented by null. Every node
+ * caches the hash code of the stack it heads.
+ */
+final class PostdominatorStack {
+
+	private final UnitContainer top;
+	private final PostdominatorStack next;
+	private final int size;
+	private final int hashCode;
+
+	private PostdominatorStack(UnitContainer top, PostdominatorStack next) {
+		this.top = top;
+		this.next = next;
+		this.size = next == null ? 1 : next.size + 1;
+		this.hashCode = 31 * (next == null ? 1 : next.hashCode) + top.hashCode();
+	}
+
+	/**
+	 * Pushes a postdominator onto the given stack
+	 * @param stack The stack onto which to push the postdominator, or null
+	 * for the empty stack
+	 * @param postdom The postdominator to push
+	 * @return The new stack with the given postdominator on top
+	 */
+	public static PostdominatorStack push(PostdominatorStack stack, UnitContainer postdom) {
+		assert postdom != null;
+		return new PostdominatorStack(postdom, stack);
+	}
+
+	/**
+	 * Gets the postdominator on top of this stack
+	 * @return The postdominator on top of this stack
+	 */
+	public UnitContainer getTop() {
+		return this.top;
+	}
+
+	/**
+	 * Gets the stack below the top postdominator
+	 * @return The stack without its top postdominator, or null if this stack
+	 * only contains one postdominator
+	 */
+	public PostdominatorStack pop() {
+		return this.next;
+	}
+
+	/**
+	 * Checks whether this stack contains the given postdominator
+	 * @param postdom The postdominator to look for
+	 * @return True if the given postdominator is on this stack, otherwise
+	 * false
+	 */
+	public boolean contains(UnitContainer postdom) {
+		for (PostdominatorStack node = this; node != null; node = node.next)
+			if (node.top.equals(postdom))
+				return true;
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+
+		PostdominatorStack node = this;
+		PostdominatorStack other = (PostdominatorStack) obj;
+		if (size != other.size || hashCode != other.hashCode)
+			return false;
+
+		// Stacks derived from each other share their tails, so we can stop
+		// comparing as soon as we reach a common node
+		while (node != other) {
+			if (!node.top.equals(other.top))
+				return false;
+			node = node.next;
+			other = other.next;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (PostdominatorStack node = this; node != null; node = node.next) {
+			if (node != this)
+				sb.append(", ");
+			sb.append(node.top);
+		}
+		return sb.append("]").toString();
+	}
+
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.data;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import soot.Value;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.source.SourceInfo;
+
+/**
+ * Abstraction that carries the set of sources from which it has been derived
+ * instead of a link to its predecessor. Sources of equal abstractions are
+ * merged. Abstractions of this class are only created if sources are
+ * tracked (see {@link Abstraction#setTrackSources(boolean)}), so that the
+ * other modes do not pay for the source set.
+ */
+class SourceTrackingAbstraction extends Abstraction {
+
+	private static final AtomicReferenceFieldUpdater<SourceTrackingAbstraction, SourceContext[]> SOURCES_UPDATER =
+			AtomicReferenceFieldUpdater.newUpdater(SourceTrackingAbstraction.class, SourceContext[].class, "sources");
+
+	/**
+	 * The sources from which this abstraction has been derived, or null if
+	 * this abstraction is a source itself. The array is never modified, but
+	 * replaced when new sources are merged in.
+	 */
+	private volatile SourceContext[] sources = null;
+
+	SourceTrackingAbstraction(Value taint, SourceInfo sourceInfo,
+			Value sourceVal, Stmt sourceStmt,
+			boolean exceptionThrown,
+			boolean isImplicit) {
+		super(taint, sourceInfo, sourceVal, sourceStmt, exceptionThrown, isImplicit);
+	}
+
+	/**
+	 * Creates an abstraction as a copy of an existing abstraction, only
+	 * exchanging the access path. The copy shares the sources of the
+	 * original abstraction.
+	 * @param p The access path for the new abstraction
+	 * @param original The original abstraction to copy
+	 */
+	SourceTrackingAbstraction(AccessPath p, Abstraction original) {
+		super(p, original);
+		if (original != null)
+			this.sources = original.getSourceArray();
+	}
+
+	/**
+	 * Removes all sources of this abstraction. This is only used for the
+	 * zero value, which does not stem from any source.
+	 */
+	void clearSources() {
+		this.sources = NO_SOURCES;
+	}
+
+	@Override
+	SourceContext[] getSourceArray() {
+		SourceContext[] curSources = sources;
+		if (curSources != null)
+			return curSources;
+		return super.getSourceArray();
+	}
+
+	/**
+	 * Adds the given sources to the sources of this abstraction
+	 * @param newSources The sources to add
+	 * @return True if at least one of the given sources has been new,
+	 * otherwise false
+	 */
+	private boolean addSources(SourceContext[] newSources) {
+		while (true) {
+			SourceContext[] oldSources = sources;
+			SourceContext[] curSources = oldSources == null ? getSourceArray() : oldSources;
+			
+			// The sets are small, so we do not hash them
+			SourceContext[] mergedSources = null;
+			int size = curSources.length;
+			for (SourceContext sc : newSources) {
+				boolean found = false;
+				for (int i = 0; i < size && !found; i++) {
+					SourceContext existing = mergedSources == null ? curSources[i] : mergedSources[i];
+					found = existing.equals(sc);
+				}
+				if (!found) {
+					if (mergedSources == null)
+						mergedSources = Arrays.copyOf(curSources, curSources.length + newSources.length);
+					mergedSources[size++] = sc;
+				}
+			}
+			if (mergedSources == null)
+				return false;
+			if (SOURCES_UPDATER.compareAndSet(this, oldSources, Arrays.copyOf(mergedSources, size)))
+				return true;
+		}
+	}
+
+	@Override
+	public void addNeighbor(Abstraction originalAbstraction) {
+		// Without predecessors, neighbors are useless, we only need their
+		// sources
+		merge(originalAbstraction);
+	}
+
+	@Override
+	public boolean merge(Abstraction other) {
+		assert other.equals(this);
+		if (other == this)
+			return false;
+		return addSources(other.getSourceArray());
+	}
+
+	/**
+	 * Replaces the sources of this abstraction with the ones of the given
+	 * caller-side abstraction. The solver connects abstractions returned
+	 * from a callee to the abstraction at the call site. The sources of the
+	 * callee-side abstraction are the ones of all callers, we only keep the
+	 * ones of the current caller. The zero abstraction has no sources, in
+	 * which case the sources stem from the callee. Since every caller needs
+	 * sources of its own, this must only be called on a fresh abstraction
+	 * (see {@link #deriveWithPredecessor(Abstraction)}).
+	 * @param predecessor The abstraction at the call site
+	 */
+	@Override
+	public void setPredecessor(Abstraction predecessor) {
+		SourceContext[] callerSources = predecessor.getSourceArray();
+		if (callerSources.length > 0)
+			this.sources = callerSources;
+	}
+
+}
@@ -0,0 +1,92 @@
+package soot.jimple.infoflow.data.pathBuilders;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.SourceContextAndPath;
+import soot.jimple.infoflow.util.ConcurrentHashSet;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Per-abstraction state of a path builder. The data flow solvers do not need
+ * this state, so it is not stored in the abstractions themselves, but in
+ * side tables that only live as long as the path builder. The tables are
+ * keyed by the identity of the abstractions, since equal abstractions can
+ * still lie on different paths.
+ */
+public class AbstractionPathData {
+
+	// Guava compares weak keys by identity
+	private final ConcurrentMap<Abstraction, Set<SourceContextAndPath>> pathCaches =
+			new MapMaker().concurrencyLevel(Runtime.getRuntime().availableProcessors())
+			.weakKeys().makeMap();
+	private final ConcurrentMap<Abstraction, BitSet> pathFlags =
+			new MapMaker().concurrencyLevel(Runtime.getRuntime().availableProcessors())
+			.weakKeys().makeMap();
+
+	/**
+	 * Gets the paths from the sources to the current statement of the given
+	 * abstraction that have been found so far
+	 * @param abs The abstraction for which to get the paths
+	 * @return The paths found so far for the given abstraction
+	 */
+	public Set<SourceContextAndPath> getPaths(Abstraction abs) {
+		Set<SourceContextAndPath> paths = pathCaches.get(abs);
+		if (paths == null)
+			return Collections.emptySet();
+		return paths;
+	}
+
+	/**
+	 * Gets the modifiable set of paths for the given abstraction, creating it
+	 * if necessary
+	 * @param abs The abstraction for which to get the paths
+	 * @return The set of paths for the given abstraction
+	 */
+	public Set<SourceContextAndPath> getOrMakePathCache(Abstraction abs) {
+		Set<SourceContextAndPath> paths = pathCaches.get(abs);
+		if (paths != null)
+			return paths;
+
+		paths = new ConcurrentHashSet<SourceContextAndPath>();
+		Set<SourceContextAndPath> oldPaths = pathCaches.putIfAbsent(abs, paths);
+		return oldPaths == null ? paths : oldPaths;
+	}
+
+	/**
+	 * Marks the given abstraction as visited by the given task
+	 * @param abs The abstraction to mark
+	 * @param id The unique id of the task
+	 * @return True if the task has not visited the given abstraction before,
+	 * otherwise false
+	 */
+	public boolean registerPathFlag(Abstraction abs, int id) {
+		BitSet flags = pathFlags.get(abs);
+		if (flags == null) {
+			flags = new BitSet();
+			BitSet oldFlags = pathFlags.putIfAbsent(abs, flags);
+			if (oldFlags != null)
+				flags = oldFlags;
+		}
+
+		synchronized (flags) {
+			if (flags.get(id))
+				return false;
+			flags.set(id);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes all state from this table
+	 */
+	public void clear() {
+		pathCaches.clear();
+		pathFlags.clear();
+	}
+
+}
@@ -27,6 +27,7 @@ public class RecursivePathBuilder implements IAbstractionPathBuilder {
 
     private final InfoflowResults results = new InfoflowResults();
 	private final CountingThreadPoolExecutor executor;
+	private final AbstractionPathData pathData = new AbstractionPathData();
     
 	private static int lastTaskId = 0;
 
@@ -64,7 +65,7 @@ public class RecursivePathBuilder implements IAbstractionPathBuilder {
 	 */
 	private Set<SourceContextAndPath> getPaths(int taskId, Abstraction curAbs,
 			boolean reconstructPaths, Object flagAbs) {
-		if (!curAbs.registerPathFlag(taskId))
+		if (!pathData.registerPathFlag(curAbs, taskId))
 			return Collections.emptySet();
 		
 		Set<SourceContextAndPath> cacheData = new HashSet<SourceContextAndPath>();
@@ -152,6 +153,7 @@ public class RecursivePathBuilder implements IAbstractionPathBuilder {
 
 	@Override
 	public void shutdown() {
+		pathData.clear();
 	}
 	
 }
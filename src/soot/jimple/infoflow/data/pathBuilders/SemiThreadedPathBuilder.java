@@ -39,6 +39,7 @@ public class SemiThreadedPathBuilder implements IAbstractionPathBuilder {
 			(new IdentityHashMap<Abstraction,Boolean>());
 	private Map<Abstraction, Set<Abstraction>> successors = null;
 	private Map<Abstraction, Set<Abstraction>> neighbors = null;
+	private final AbstractionPathData pathData = new AbstractionPathData();
 	
 	private static int lastTaskId = 0;
 	
@@ -144,7 +145,7 @@ public class SemiThreadedPathBuilder implements IAbstractionPathBuilder {
 								abstraction.getSourceContext().getStmt(),
 								abstraction.getSourceContext().getUserData()).extendPath
 										(abstraction.getSourceContext().getStmt());
-						abstraction.getOrMakePathCache().add(rootScap);				
+						pathData.getOrMakePathCache(abstraction).add(rootScap);				
 						addRoot(abstraction);
 					}
 					
@@ -152,12 +153,12 @@ public class SemiThreadedPathBuilder implements IAbstractionPathBuilder {
 					assert abstraction.getPredecessor() == null;
 				}
 				else
-					if (abstraction.getPredecessor().registerPathFlag(taskId))
+					if (pathData.registerPathFlag(abstraction.getPredecessor(), taskId))
 						abstractionQueue.add(abstraction.getPredecessor());
 				
 				if (abstraction.getNeighbors() != null)
 					for (Abstraction nb : abstraction.getNeighbors())
-						if (nb.registerPathFlag(taskId))
+						if (pathData.registerPathFlag(nb, taskId))
 							abstractionQueue.add(nb);
 			}
 		}
@@ -181,7 +182,7 @@ public class SemiThreadedPathBuilder implements IAbstractionPathBuilder {
 		@Override
 		public void run() {
 			// Check the paths of the parent. If we have none, we can abort
-			Set<SourceContextAndPath> parentPaths = parent.getPaths();
+			Set<SourceContextAndPath> parentPaths = pathData.getPaths(parent);
 			if (parentPaths == null || parentPaths.isEmpty())
 				return;
 				
@@ -189,7 +190,7 @@ public class SemiThreadedPathBuilder implements IAbstractionPathBuilder {
 			Set<Abstraction> nbs = neighbors.get(parent);
 			if (nbs != null)
 				for (Abstraction nb : nbs) {
-					Set<SourceContextAndPath> nbPaths = nb.getPaths();
+					Set<SourceContextAndPath> nbPaths = pathData.getPaths(nb);
 					if (nbPaths != null)
 						parentPaths.addAll(nbPaths);
 				}
@@ -201,7 +202,7 @@ public class SemiThreadedPathBuilder implements IAbstractionPathBuilder {
 				
 			for (Abstraction child : children) {
 				boolean added = false;
-				Set<SourceContextAndPath> childScaps = child.getOrMakePathCache();
+				Set<SourceContextAndPath> childScaps = pathData.getOrMakePathCache(child);
 				for (SourceContextAndPath scap : parentPaths) {
 					if (child.getCurrentStmt() != null) {
 						SourceContextAndPath extendedScap = scap.extendPath(child.getCurrentStmt());
@@ -279,12 +280,12 @@ public class SemiThreadedPathBuilder implements IAbstractionPathBuilder {
     	// Collect the results
     	for (final AbstractionAtSink abs : res) {
     		Set<SourceContextAndPath> allScaps = new HashSet<SourceContextAndPath>();
-    		if (abs.getAbstraction().getPaths() != null)
-    			allScaps.addAll(abs.getAbstraction().getPaths());
+    		if (pathData.getPaths(abs.getAbstraction()) != null)
+    			allScaps.addAll(pathData.getPaths(abs.getAbstraction()));
     		if (abs.getAbstraction().getNeighbors() != null)
     			for (Abstraction nb : abs.getAbstraction().getNeighbors())
-    				if (nb.getPaths() != null)
-    					allScaps.addAll(nb.getPaths());
+    				if (pathData.getPaths(nb) != null)
+    					allScaps.addAll(pathData.getPaths(nb));
     		
     		for (SourceContextAndPath context : allScaps)
 				results.addResult(abs.getSinkValue(), abs.getSinkStmt(),
@@ -299,6 +300,7 @@ public class SemiThreadedPathBuilder implements IAbstractionPathBuilder {
 	@Override
 	public void shutdown() {
     	executor.shutdown();		
+    	pathData.clear();
 	}
 
 	@Override
@@ -37,6 +37,7 @@ public class ThreadedPathBuilder implements IAbstractionPathBuilder {
 	private final Set<Abstraction> roots = new ConcurrentHashSet<Abstraction>();
 	private IdentityHashMap<Abstraction, Set<Abstraction>> successors = null;
 	private IdentityHashMap<Abstraction, Set<Abstraction>> neighbors = null;
+	private final AbstractionPathData pathData = new AbstractionPathData();
 	
 	private static int lastTaskId = 0;
 	
@@ -137,7 +138,7 @@ public class ThreadedPathBuilder implements IAbstractionPathBuilder {
 							abstraction.getSourceContext().getStmt(),
 							abstraction.getSourceContext().getUserData()).extendPath
 									(abstraction.getSourceContext().getStmt());
-					abstraction.getOrMakePathCache().add(rootScap);				
+					pathData.getOrMakePathCache(abstraction).add(rootScap);				
 					addRoot(abstraction);
 				}
 				
@@ -145,12 +146,12 @@ public class ThreadedPathBuilder implements IAbstractionPathBuilder {
 				assert abstraction.getPredecessor() == null;
 			}
 			else
-				if (abstraction.getPredecessor().registerPathFlag(taskId))
+				if (pathData.registerPathFlag(abstraction.getPredecessor(), taskId))
 					executor.execute(new SourceFindingTask(taskId, flagAbs, abstraction.getPredecessor()));
 			
 			if (abstraction.getNeighbors() != null)
 				for (Abstraction nb : abstraction.getNeighbors())
-					if (nb.registerPathFlag(taskId))
+					if (pathData.registerPathFlag(nb, taskId))
 						executor.execute(new SourceFindingTask(taskId, flagAbs, nb));
 		}
 	}
@@ -175,7 +176,7 @@ public class ThreadedPathBuilder implements IAbstractionPathBuilder {
 		@Override
 		public void run() {
 			// Check the paths of the parent. If we have none, we can abort
-			Set<SourceContextAndPath> parentPaths = parent.getPaths();
+			Set<SourceContextAndPath> parentPaths = pathData.getPaths(parent);
 			if (parentPaths == null || parentPaths.isEmpty())
 				return;
 			
@@ -183,7 +184,7 @@ public class ThreadedPathBuilder implements IAbstractionPathBuilder {
 			Set<Abstraction> nbs = neighbors.get(parent);
 			if (nbs != null)
 				for (Abstraction nb : nbs) {
-					Set<SourceContextAndPath> nbPaths = nb.getPaths();
+					Set<SourceContextAndPath> nbPaths = pathData.getPaths(nb);
 					if (nbPaths != null)
 						parentPaths.addAll(nbPaths);
 				}
@@ -195,7 +196,7 @@ public class ThreadedPathBuilder implements IAbstractionPathBuilder {
 			
 			for (Abstraction child : children) {
 				boolean added = false;
-				Set<SourceContextAndPath> childScaps = child.getOrMakePathCache();
+				Set<SourceContextAndPath> childScaps = pathData.getOrMakePathCache(child);
 				for (SourceContextAndPath scap : parentPaths) {
 					if (extendPath && child.getCurrentStmt() != null) {
 						SourceContextAndPath extendedScap = scap.extendPath(child.getCurrentStmt());
@@ -274,12 +275,12 @@ public class ThreadedPathBuilder implements IAbstractionPathBuilder {
     	// Collect the results
     	for (final AbstractionAtSink abs : res) {
     		Set<SourceContextAndPath> allScaps = new HashSet<SourceContextAndPath>();
-    		if (abs.getAbstraction().getPaths() != null)
-    			allScaps.addAll(abs.getAbstraction().getPaths());
+    		if (pathData.getPaths(abs.getAbstraction()) != null)
+    			allScaps.addAll(pathData.getPaths(abs.getAbstraction()));
     		if (abs.getAbstraction().getNeighbors() != null)
     			for (Abstraction nb : abs.getAbstraction().getNeighbors())
-    				if (nb.getPaths() != null)
-    					allScaps.addAll(nb.getPaths());
+    				if (pathData.getPaths(nb) != null)
+    					allScaps.addAll(pathData.getPaths(nb));
     		
     		for (SourceContextAndPath context : allScaps)
 				results.addResult(abs.getSinkValue(), abs.getSinkStmt(),
@@ -294,6 +295,7 @@ public class ThreadedPathBuilder implements IAbstractionPathBuilder {
 	@Override
 	public void shutdown() {
     	executor.shutdown();		
+    	pathData.clear();
 	}
 
 	@Override
@@ -0,0 +1,53 @@
+package soot.jimple.infoflow.handlers;
+
+/**
+ * Handler that is notified about the progress of a running information flow
+ * analysis
+ */
+public interface AnalysisProgressHandler {
+
+	/**
+	 * Enumeration containing the phases of an information flow analysis
+	 */
+	public enum AnalysisPhase {
+		/**
+		 * The callgraph and the interprocedural control flow graph are being
+		 * constructed
+		 */
+		CallgraphConstruction,
+		/**
+		 * The program is being scanned for sources and sinks
+		 */
+		SourceSinkLookup,
+		/**
+		 * Method summaries are being computed bottom-up along the callgraph
+		 */
+		SummaryComputation,
+		/**
+		 * The data flow solvers are running
+		 */
+		DataFlowAnalysis,
+		/**
+		 * The paths between the sources and the sinks are being reconstructed
+		 */
+		PathReconstruction
+	}
+
+	/**
+	 * Callback that is invoked when the analysis enters a new phase
+	 * @param phase The phase that has just been started
+	 */
+	public void onPhaseStarted(AnalysisPhase phase);
+
+	/**
+	 * Callback that is invoked periodically while the data flow solvers are
+	 * running, including the solvers that compute the bottom-up summaries.
+	 * This method is called on a background thread.
+	 * @param forwardPropagations The number of path edges the forward solver
+	 * has propagated so far
+	 * @param backwardPropagations The number of path edges the backward
+	 * solver has propagated so far
+	 */
+	public void onDataFlowProgress(long forwardPropagations, long backwardPropagations);
+
+}
@@ -488,7 +488,7 @@ public class BackwardsInfoflowProblem extends AbstractInfoflowProblem {
 					
 					@Override
 					public Set<Abstraction> computeTargets(Abstraction source,
-							Collection<Abstraction> callerD1s) {
+							Abstraction d1, Collection<Abstraction> callerD1s) {
 						if (source == getZeroValue())
 							return Collections.emptySet();
 						assert source.isAbstractionActive() || flowSensitiveAliasing;
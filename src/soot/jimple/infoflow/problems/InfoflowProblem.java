@@ -15,11 +15,13 @@ import heros.FlowFunctions;
 import heros.TwoElementSet;
 import heros.flowfunc.Identity;
 import heros.flowfunc.KillAll;
+import heros.solver.Pair;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import soot.ArrayType;
@@ -63,6 +65,7 @@ import soot.jimple.infoflow.handlers.TaintPropagationHandler;
 import soot.jimple.infoflow.handlers.TaintPropagationHandler.FlowFunctionType;
 import soot.jimple.infoflow.solver.IInfoflowCFG;
 import soot.jimple.infoflow.solver.IInfoflowCFG.UnitContainer;
+import soot.jimple.infoflow.solver.IInfoflowSolver;
 import soot.jimple.infoflow.solver.InfoflowCFG;
 import soot.jimple.infoflow.solver.functions.SolverCallFlowFunction;
 import soot.jimple.infoflow.solver.functions.SolverCallToReturnFlowFunction;
@@ -81,12 +84,14 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 	private final Aliasing aliasing;
 	private final IAliasingStrategy aliasingStrategy;
 	private final IAliasingStrategy implicitFlowAliasingStrategy;
+	private IInfoflowSolver aliasSolver = null;
     
     private final MyConcurrentHashMap<Unit, Set<Abstraction>> implicitTargets =
     		new MyConcurrentHashMap<Unit, Set<Abstraction>>();
     
 	protected final MyConcurrentHashMap<AbstractionAtSink, Abstraction> results =
 			new MyConcurrentHashMap<AbstractionAtSink, Abstraction>();
+	private MyConcurrentHashMap<Pair<SootMethod, Abstraction>, Set<AbstractionAtSink>> resultsByContext = null;
 	
 	public InfoflowProblem(ISourceSinkManager sourceSinkManager,
 			IAliasingStrategy aliasingStrategy) {
@@ -399,7 +404,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 							// This may also be a parameter access we regard as a source
 							Set<Abstraction> res = new HashSet<Abstraction>();
 							if (source == getZeroValue() && sourceInfo != null) {
-								Abstraction abs = new Abstraction(is.getLeftOp(), sourceInfo,
+								Abstraction abs = Abstraction.createSourceAbstraction(is.getLeftOp(), sourceInfo,
 										is.getRightOp(), is, false, false);
 								res.add(abs);
 								
@@ -452,7 +457,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 							// Fields can be sources in some cases
                             if (source == getZeroValue() && sourceInfo != null) {
     							Set<Abstraction> res = new HashSet<Abstraction>();
-                                final Abstraction abs = new Abstraction(assignStmt.getLeftOp(),
+                                final Abstraction abs = Abstraction.createSourceAbstraction(assignStmt.getLeftOp(),
                                 		sourceInfo, assignStmt.getRightOp(), assignStmt,
                                 		false, false);
                                 res.add(abs);
@@ -685,7 +690,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 							
 							// If this is a sink, we need to report the finding
 							if (isSink && newSource.isAbstractionActive() && newSource.getAccessPath().isEmpty())
-								addResult(new AbstractionAtSink(newSource, leftValue, assignStmt));
+								addResult(d1, new AbstractionAtSink(newSource, leftValue, assignStmt));
 							
 							Abstraction targetAB = mappedAP.equals(newSource.getAccessPath()) ? newSource
 									: newSource.deriveNewAbstraction(mappedAP, null);
@@ -718,7 +723,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 									&& source.isAbstractionActive()
 									&& sourceSinkManager.isSink(returnStmt, interproceduralCFG())
 									&& source.getAccessPath().isEmpty())
-								addResult(new AbstractionAtSink(source, returnStmt.getOp(), returnStmt));
+								addResult(d1, new AbstractionAtSink(source, returnStmt.getOp(), returnStmt));
 
 							return Collections.singleton(source);
 						}
@@ -969,12 +974,14 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 				return new SolverReturnFlowFunction() {
 
 					@Override
-					public Set<Abstraction> computeTargets(Abstraction source, Collection<Abstraction> callerD1s) {
-						Set<Abstraction> res = computeTargetsInternal(source, callerD1s);
+					public Set<Abstraction> computeTargets(Abstraction source, Abstraction calleeD1,
+							Collection<Abstraction> callerD1s) {
+						Set<Abstraction> res = computeTargetsInternal(source, calleeD1, callerD1s);
 						return notifyOutFlowHandlers(exitStmt, res, FlowFunctionType.ReturnFlowFunction);
 					}
 					
-					private Set<Abstraction> computeTargetsInternal(Abstraction source, Collection<Abstraction> callerD1s) {
+					private Set<Abstraction> computeTargetsInternal(Abstraction source, Abstraction calleeD1,
+							Collection<Abstraction> callerD1s) {
 						if (stopAfterFirstFlow && !results.isEmpty())
 							return Collections.emptySet();
 						if (source == getZeroValue())
@@ -1064,7 +1071,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 									&& aliasing.mayAlias(newSource.getAccessPath().getPlainValue(), returnStmt.getOp());
 							if (mustTaintSink && isSink
 									&& newSource.isAbstractionActive())
-								addResult(new AbstractionAtSink(newSource, returnStmt.getOp(), returnStmt));
+								addResult(calleeD1, new AbstractionAtSink(newSource, returnStmt.getOp(), returnStmt));
 						}
 						
 						// If we have no caller, we have nowhere to propagate. This
@@ -1253,7 +1260,7 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 								else
 									target = ((InstanceInvokeExpr) invExpr).getBase();
 									
-								final Abstraction abs = new Abstraction(target, sourceInfo,
+								final Abstraction abs = Abstraction.createSourceAbstraction(target, sourceInfo,
 										invExpr, iStmt, false, false);
 								res.add(abs);
 								
@@ -1368,13 +1375,13 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 								}
 								
 								if (taintedParam && newSource.isAbstractionActive())
-									addResult(new AbstractionAtSink(newSource, invExpr, iStmt));
+									addResult(d1, new AbstractionAtSink(newSource, invExpr, iStmt));
 								// if the base object which executes the method is tainted the sink is reached, too.
 								if (invExpr instanceof InstanceInvokeExpr) {
 									InstanceInvokeExpr vie = (InstanceInvokeExpr) iStmt.getInvokeExpr();
 									if (newSource.isAbstractionActive()
 											&& aliasing.mayAlias(vie.getBase(), newSource.getAccessPath().getPlainValue()))
-										addResult(new AbstractionAtSink(newSource, invExpr, iStmt));
+										addResult(d1, new AbstractionAtSink(newSource, invExpr, iStmt));
 								}
 							}
 							
@@ -1397,10 +1404,21 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 	 * Adds a new result of the data flow analysis to the collection
 	 * @param resultAbs The abstraction at the sink instruction
 	 */
-	private void addResult(AbstractionAtSink resultAbs) {
+	public void addResult(AbstractionAtSink resultAbs) {
+		addResult(null, resultAbs);
+	}
+	
+	/**
+	 * Adds a new result of the data flow analysis to the collection
+	 * @param d1 The context (abstraction at the start node of the method
+	 * containing the sink), or null if it is not known
+	 * @param resultAbs The abstraction at the sink instruction
+	 */
+	private void addResult(Abstraction d1, AbstractionAtSink resultAbs) {
 		// Check whether we need to filter a result in a system package
+		SootMethod sinkMethod = interproceduralCFG().getMethodOf(resultAbs.getSinkStmt());
 		if (ignoreFlowsInSystemPackages && SystemClassHandler.isClassInSystemPackage
-				(interproceduralCFG().getMethodOf(resultAbs.getSinkStmt()).getDeclaringClass().getName()))
+				(sinkMethod.getDeclaringClass().getName()))
 			return;
 		
 		// Make sure that the sink statement also appears inside the
@@ -1414,6 +1432,56 @@ public class InfoflowProblem extends AbstractInfoflowProblem {
 				(resultAbs, resultAbs.getAbstraction());
 		if (newAbs != resultAbs.getAbstraction())
 			newAbs.addNeighbor(resultAbs.getAbstraction());
+		
+		// The flow functions stop generating new taints once we have a
+		// result, but the edges already in the queue can be dropped as well
+		if (stopAfterFirstFlow) {
+			if (solver != null)
+				solver.forceTerminate();
+			if (aliasSolver != null)
+				aliasSolver.forceTerminate();
+		}
+		
+		// Record the context in which we have found the result
+		if (resultsByContext != null && d1 != null && d1 != getZeroValue())
+			resultsByContext.putIfAbsentElseGet(new Pair<SootMethod, Abstraction>(sinkMethod, d1),
+					new ConcurrentHashSet<AbstractionAtSink>()).add(resultAbs);
+	}
+	
+	/**
+	 * Sets the solver that computes the aliases for this problem. If the
+	 * analysis shall stop after the first flow, this solver is stopped
+	 * together with the solver for this problem.
+	 * @param aliasSolver The solver that computes the aliases, or null if
+	 * aliases are not computed by a separate solver
+	 */
+	public void setAliasSolver(IInfoflowSolver aliasSolver) {
+		this.aliasSolver = aliasSolver;
+	}
+	
+	/**
+	 * Sets whether the results shall also be recorded together with the
+	 * context (method and abstraction at the method's start node) in which
+	 * they were found
+	 * @param recordResultContexts True if the contexts of the results shall
+	 * be recorded, otherwise false
+	 */
+	public void setRecordResultContexts(boolean recordResultContexts) {
+		this.resultsByContext = recordResultContexts
+				? new MyConcurrentHashMap<Pair<SootMethod, Abstraction>, Set<AbstractionAtSink>>() : null;
+	}
+	
+	/**
+	 * Gets the results found in each context. Results found in the zero
+	 * context are not recorded.
+	 * @return A mapping from contexts (method and abstraction at the method's
+	 * start node) to the results found in these contexts, or an empty map if
+	 * recording has not been enabled
+	 */
+	public Map<Pair<SootMethod, Abstraction>, Set<AbstractionAtSink>> getResultsByContext() {
+		if (resultsByContext == null)
+			return Collections.emptyMap();
+		return resultsByContext;
 	}
 
 	/**
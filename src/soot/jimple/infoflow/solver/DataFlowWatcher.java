@@ -0,0 +1,234 @@
+package soot.jimple.infoflow.solver;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.jimple.infoflow.InfoflowResults.TerminationReason;
+import soot.jimple.infoflow.handlers.AnalysisProgressHandler;
+import soot.jimple.infoflow.util.ConcurrentHashSet;
+
+/**
+ * Background thread that watches a running data flow analysis. It stops the
+ * solvers if the wall-clock time or the heap usage exceed the configured
+ * budgets or if the analysis is cancelled, so that the results computed so
+ * far can still be processed. Additionally, it periodically reports the
+ * progress of the solvers to the registered progress handlers. Solvers can
+ * be added and removed while the watcher is running, so that a single
+ * watcher can cover an analysis phase that uses many short-lived solvers.
+ */
+public class DataFlowWatcher implements Runnable {
+
+	private static final long POLL_INTERVAL = 100;
+	private static final long PROGRESS_INTERVAL = 1000;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final Set<IInfoflowSolver> forwardSolvers = new ConcurrentHashSet<IInfoflowSolver>();
+	private final Set<IInfoflowSolver> backwardSolvers = new ConcurrentHashSet<IInfoflowSolver>();
+	private final AtomicLong finishedForwardCount = new AtomicLong();
+	private final AtomicLong finishedBackwardCount = new AtomicLong();
+	private final Set<AnalysisProgressHandler> progressHandlers = new HashSet<AnalysisProgressHandler>();
+	private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+	private long timeout = 0;
+	private long maxHeapUsage = 0;
+
+	private volatile TerminationReason terminationReason = null;
+	private volatile boolean stopped = false;
+	private Thread thread = null;
+
+	/**
+	 * Creates a new instance of the {@link DataFlowWatcher} class
+	 * @param forwardSolver The forward solver to watch
+	 * @param backwardSolver The backward solver to watch, or null if the
+	 * analysis does not use a backward solver
+	 */
+	public DataFlowWatcher(IInfoflowSolver forwardSolver,
+			IInfoflowSolver backwardSolver) {
+		addSolvers(forwardSolver, backwardSolver);
+	}
+
+	/**
+	 * Creates a new instance of the {@link DataFlowWatcher} class that does
+	 * not watch any solvers yet
+	 */
+	public DataFlowWatcher() {
+	}
+
+	/**
+	 * Starts watching the given solvers. If the watcher has already stopped
+	 * the analysis, the solvers are stopped right away.
+	 * @param forwardSolver The forward solver to watch
+	 * @param backwardSolver The backward solver to watch, or null if the
+	 * analysis does not use a backward solver
+	 */
+	public void addSolvers(IInfoflowSolver forwardSolver,
+			IInfoflowSolver backwardSolver) {
+		forwardSolvers.add(forwardSolver);
+		if (backwardSolver != null)
+			backwardSolvers.add(backwardSolver);
+
+		// The solvers must not miss a termination that happened before we
+		// have added them
+		if (terminationReason != null) {
+			forwardSolver.forceTerminate();
+			if (backwardSolver != null)
+				backwardSolver.forceTerminate();
+		}
+	}
+
+	/**
+	 * Stops watching the given solvers. Their path edges still count
+	 * towards the progress that is reported.
+	 * @param forwardSolver The forward solver to remove
+	 * @param backwardSolver The backward solver to remove, or null if the
+	 * analysis does not use a backward solver
+	 */
+	public void removeSolvers(IInfoflowSolver forwardSolver,
+			IInfoflowSolver backwardSolver) {
+		if (forwardSolvers.remove(forwardSolver))
+			finishedForwardCount.addAndGet(forwardSolver.getPropagationCount());
+		if (backwardSolver != null && backwardSolvers.remove(backwardSolver))
+			finishedBackwardCount.addAndGet(backwardSolver.getPropagationCount());
+	}
+
+	/**
+	 * Sets the maximum time the solvers may run
+	 * @param timeout The maximum time in seconds, or 0 for no limit
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout * 1000;
+	}
+
+	/**
+	 * Sets the maximum amount of heap memory the analysis may use
+	 * @param maxHeapUsage The maximum heap usage in megabytes, or 0 for no
+	 * limit
+	 */
+	public void setMaxHeapUsage(long maxHeapUsage) {
+		this.maxHeapUsage = maxHeapUsage * 1024 * 1024;
+	}
+
+	/**
+	 * Adds a handler that shall periodically be notified about the progress
+	 * of the solvers
+	 * @param handler The handler to add
+	 */
+	public void addProgressHandler(AnalysisProgressHandler handler) {
+		this.progressHandlers.add(handler);
+	}
+
+	/**
+	 * Starts watching the solvers
+	 */
+	public void start() {
+		thread = new Thread(this, "FlowDroid data flow watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching the solvers
+	 */
+	public void stop() {
+		stopped = true;
+		if (thread != null) {
+			thread.interrupt();
+			try {
+				thread.join();
+			}
+			catch (InterruptedException ex) {
+				logger.error("Could not wait for the data flow watcher to stop", ex);
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		long startTime = System.currentTimeMillis();
+		long lastProgress = startTime;
+		while (!stopped) {
+			long now = System.currentTimeMillis();
+			if (timeout > 0 && now - startTime > timeout) {
+				logger.warn("Data flow analysis timed out after {} seconds", timeout / 1000);
+				forceTerminate(TerminationReason.Timeout);
+				return;
+			}
+			if (maxHeapUsage > 0 && isHeapBudgetExceeded()) {
+				logger.warn("Data flow analysis exceeded the maximum heap usage of {} MB",
+						maxHeapUsage / (1024 * 1024));
+				forceTerminate(TerminationReason.MemoryLimit);
+				return;
+			}
+			if (!progressHandlers.isEmpty() && now - lastProgress >= PROGRESS_INTERVAL) {
+				lastProgress = now;
+				reportProgress();
+			}
+
+			try {
+				Thread.sleep(POLL_INTERVAL);
+			}
+			catch (InterruptedException ex) {
+				// We have been stopped
+			}
+		}
+	}
+
+	/**
+	 * Notifies the progress handlers about the number of path edges the
+	 * solvers have propagated so far
+	 */
+	private void reportProgress() {
+		long forwardCount = finishedForwardCount.get();
+		for (IInfoflowSolver solver : forwardSolvers)
+			forwardCount += solver.getPropagationCount();
+		long backwardCount = finishedBackwardCount.get();
+		for (IInfoflowSolver solver : backwardSolvers)
+			backwardCount += solver.getPropagationCount();
+		for (AnalysisProgressHandler handler : progressHandlers)
+			handler.onDataFlowProgress(forwardCount, backwardCount);
+	}
+
+	/**
+	 * Checks whether the heap usage exceeds the budget. The used heap also
+	 * contains garbage, so we only give up if the budget is still exceeded
+	 * after a collection.
+	 * @return True if the heap budget is exceeded, otherwise false
+	 */
+	private boolean isHeapBudgetExceeded() {
+		if (memoryBean.getHeapMemoryUsage().getUsed() <= maxHeapUsage)
+			return false;
+		Runtime.getRuntime().gc();
+		return memoryBean.getHeapMemoryUsage().getUsed() > maxHeapUsage;
+	}
+
+	/**
+	 * Stops the solvers. Tasks that are already running still complete, but
+	 * no new path edges are processed.
+	 * @param reason The reason for which the solvers are stopped
+	 */
+	public void forceTerminate(TerminationReason reason) {
+		if (terminationReason == null)
+			terminationReason = reason;
+		for (IInfoflowSolver solver : forwardSolvers)
+			solver.forceTerminate();
+		for (IInfoflowSolver solver : backwardSolvers)
+			solver.forceTerminate();
+	}
+
+	/**
+	 * Gets the reason for which the solvers have been terminated
+	 * @return The reason for which the solvers have been stopped, or null if
+	 * the solvers have not been terminated by this watcher
+	 */
+	public TerminationReason getTerminationReason() {
+		return terminationReason;
+	}
+
+}
@@ -18,4 +18,37 @@ public interface IInfoflowSolver {
 	 */
 	public void cleanup();	
 	
+	/**
+	 * Runs the solver on the configured problem
+	 */
+	public void solve();
+	
+	/**
+	 * Gets the number of path edges this solver has propagated so far
+	 * @return The number of propagated path edges
+	 */
+	public long getPropagationCount();
+	
+	/**
+	 * Sets the maximum number of path edges this solver may propagate. Once
+	 * this number is reached, the solver terminates as if
+	 * {@link #forceTerminate()} had been called.
+	 * @param maxPropagationCount The maximum number of propagations, or 0 for
+	 * no limit
+	 */
+	public void setMaxPropagationCount(long maxPropagationCount);
+	
+	/**
+	 * Forces this solver to terminate. No new path edges are processed, but
+	 * the results computed so far remain available.
+	 */
+	public void forceTerminate();
+	
+	/**
+	 * Gets whether this solver has been forced to terminate before it could
+	 * process all path edges
+	 * @return True if the solver has been killed, otherwise false
+	 */
+	public boolean isKilled();
+	
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package soot.jimple.infoflow.solver;
+
+import soot.jimple.infoflow.problems.AbstractInfoflowProblem;
+import soot.jimple.infoflow.solver.executors.IInfoflowExecutor;
+
+/**
+ * Factory for creating the IFDS solvers that compute the data flows. The
+ * same factory is used for the forward taint analysis and for the backward
+ * alias analysis.
+ */
+public interface IInfoflowSolverFactory {
+
+	/**
+	 * Creates a new solver for the given problem
+	 * @param problem The data flow problem to solve
+	 * @param executor The executor on which the solver shall run its tasks.
+	 * The forward and the backward solver share the same executor.
+	 * @return The new solver
+	 */
+	public IInfoflowSolver createSolver(AbstractInfoflowProblem problem,
+			IInfoflowExecutor executor);
+
+}
@@ -0,0 +1,55 @@
+package soot.jimple.infoflow.solver;
+
+import heros.solver.IDESolver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import soot.SootMethod;
+import soot.Unit;
+
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Interprocedural control flow graph that hides all callees outside of a
+ * given set of methods. The analysis treats calls to hidden methods like
+ * calls to methods without a body, i.e. taints are passed over the call and
+ * the taint wrapper is applied if there is one. Callers are not restricted,
+ * so the analysis can still return from any method.
+ */
+public class RestrictedInfoflowCFG extends InfoflowCFG {
+
+	private final Set<SootMethod> allowedCallees;
+
+	private final LoadingCache<Unit, Collection<SootMethod>> unitToAllowedCallees =
+			IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<Unit, Collection<SootMethod>>() {
+				@Override
+				public Collection<SootMethod> load(Unit unit) throws Exception {
+					Collection<SootMethod> callees = delegate.getCalleesOfCallAt(unit);
+					List<SootMethod> allowed = new ArrayList<SootMethod>(callees.size());
+					for (SootMethod callee : callees)
+						if (allowedCallees.contains(callee))
+							allowed.add(callee);
+					return allowed.size() == callees.size() ? callees : allowed;
+				}
+			});
+
+	/**
+	 * Creates a new instance of the {@link RestrictedInfoflowCFG} class
+	 * @param baseCFG The control flow graph to restrict
+	 * @param allowedCallees The methods that may still be called
+	 */
+	public RestrictedInfoflowCFG(IInfoflowCFG baseCFG, Set<SootMethod> allowedCallees) {
+		super(baseCFG);
+		this.allowedCallees = allowedCallees;
+	}
+
+	@Override
+	public Collection<SootMethod> getCalleesOfCallAt(Unit u) {
+		return unitToAllowedCallees.getUnchecked(u);
+	}
+
+}
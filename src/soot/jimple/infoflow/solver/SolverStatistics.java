@@ -0,0 +1,75 @@
+package soot.jimple.infoflow.solver;
+
+/**
+ * Statistics on a run of the data flow solvers
+ */
+public class SolverStatistics {
+
+	private final long forwardPropagationCount;
+	private final long backwardPropagationCount;
+	private final long dataFlowTime;
+	private final long peakHeapUsage;
+
+	/**
+	 * Creates a new instance of the {@link SolverStatistics} class
+	 * @param forwardPropagationCount The number of path edges propagated by
+	 * the forward solver
+	 * @param backwardPropagationCount The number of path edges propagated by
+	 * the backward solver
+	 * @param dataFlowTime The time in milliseconds the solvers have run
+	 * @param peakHeapUsage The peak heap usage in bytes during the analysis
+	 */
+	public SolverStatistics(long forwardPropagationCount, long backwardPropagationCount,
+			long dataFlowTime, long peakHeapUsage) {
+		this.forwardPropagationCount = forwardPropagationCount;
+		this.backwardPropagationCount = backwardPropagationCount;
+		this.dataFlowTime = dataFlowTime;
+		this.peakHeapUsage = peakHeapUsage;
+	}
+
+	/**
+	 * Gets the number of path edges propagated by the forward solver
+	 * @return The number of forward path edges
+	 */
+	public long getForwardPropagationCount() {
+		return this.forwardPropagationCount;
+	}
+
+	/**
+	 * Gets the number of path edges propagated by the backward solver
+	 * @return The number of backward path edges
+	 */
+	public long getBackwardPropagationCount() {
+		return this.backwardPropagationCount;
+	}
+
+	/**
+	 * Gets the time the solvers have run
+	 * @return The time the solvers have run in milliseconds
+	 */
+	public long getDataFlowTime() {
+		return this.dataFlowTime;
+	}
+
+	/**
+	 * Gets the peak heap usage during the analysis
+	 * @return The peak heap usage in bytes
+	 */
+	public long getPeakHeapUsage() {
+		return this.peakHeapUsage;
+	}
+
+	/**
+	 * Combines these statistics with the ones of another run that was
+	 * executed after this one
+	 * @param other The statistics of the other run
+	 * @return The statistics of both runs together
+	 */
+	public SolverStatistics add(SolverStatistics other) {
+		return new SolverStatistics(forwardPropagationCount + other.forwardPropagationCount,
+				backwardPropagationCount + other.backwardPropagationCount,
+				dataFlowTime + other.dataFlowTime,
+				Math.max(peakHeapUsage, other.peakHeapUsage));
+	}
+
+}
@@ -0,0 +1,67 @@
+package soot.jimple.infoflow.solver.executors;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Common interface for all executors that can run the path edge processing
+ * tasks of the data flow solvers. The forward and the backward solver share
+ * one instance of this executor, so completion means that neither of them
+ * has any work left.
+ */
+public interface IInfoflowExecutor extends Executor {
+
+	/**
+	 * Waits until all tasks submitted to this executor (including the ones
+	 * spawned by running tasks) have been processed
+	 * @throws InterruptedException Thrown if the current thread was
+	 * interrupted while waiting
+	 */
+	public void awaitCompletion() throws InterruptedException;
+
+	/**
+	 * Gets the exception that was thrown by one of the worker threads
+	 * @return The exception that was thrown by one of the worker threads, or
+	 * null if all tasks completed normally
+	 */
+	public Throwable getException();
+
+	/**
+	 * Gets whether this executor is shutting down and does not accept new
+	 * tasks anymore
+	 * @return True if this executor is shutting down, otherwise false
+	 */
+	public boolean isTerminating();
+
+	/**
+	 * Gets whether this executor has been shut down and all of its worker
+	 * threads have terminated
+	 * @return True if this executor has terminated, otherwise false
+	 */
+	public boolean isTerminated();
+
+	/**
+	 * Gets the approximate number of worker threads that are currently
+	 * processing tasks
+	 * @return The approximate number of active worker threads
+	 */
+	public int getActiveCount();
+
+	/**
+	 * Shuts down this executor. Tasks that have already been submitted are
+	 * still processed, but new ones are rejected.
+	 */
+	public void shutdown();
+
+	/**
+	 * Waits until all worker threads have terminated after a shutdown
+	 * @param timeout The maximum time to wait
+	 * @param unit The time unit of the timeout
+	 * @return True if the executor has terminated, false if the timeout
+	 * elapsed before
+	 * @throws InterruptedException Thrown if the current thread was
+	 * interrupted while waiting
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+
+}
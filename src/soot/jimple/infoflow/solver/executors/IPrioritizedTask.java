@@ -0,0 +1,16 @@
+package soot.jimple.infoflow.solver.executors;
+
+/**
+ * Task that can tell an executor with a priority queue how urgent it is.
+ * Tasks with lower priority values are run first.
+ */
+public interface IPrioritizedTask extends Runnable {
+
+	/**
+	 * Gets the priority of this task, typically the estimated distance of
+	 * the task's target statement to the nearest sink
+	 * @return The priority of this task. Lower values are run first.
+	 */
+	public int getPriority();
+
+}
@@ -0,0 +1,17 @@
+package soot.jimple.infoflow.solver.executors;
+
+/**
+ * Task that can tell a {@link MethodShardedExecutor} on which shard it must
+ * be run. All tasks with equal shard keys are processed by the same worker
+ * thread in the order in which they were submitted.
+ */
+public interface IShardedTask extends Runnable {
+
+	/**
+	 * Gets the key that determines the shard on which this task is run,
+	 * typically the method to which the task's target statement belongs
+	 * @return The shard key of this task
+	 */
+	public Object getShardKey();
+
+}
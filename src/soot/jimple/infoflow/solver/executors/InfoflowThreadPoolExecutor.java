@@ -0,0 +1,20 @@
+package soot.jimple.infoflow.solver.executors;
+
+import heros.solver.CountingThreadPoolExecutor;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor in which all worker threads take their tasks from one shared
+ * queue. This is the classic scheduling of the Heros solvers.
+ */
+public class InfoflowThreadPoolExecutor extends CountingThreadPoolExecutor
+		implements IInfoflowExecutor {
+
+	public InfoflowThreadPoolExecutor(int corePoolSize, int maximumPoolSize,
+			long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue) {
+		super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+	}
+
+}
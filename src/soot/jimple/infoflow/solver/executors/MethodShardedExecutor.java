@@ -0,0 +1,164 @@
+package soot.jimple.infoflow.solver.executors;
+
+import heros.solver.CountLatch;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor that partitions its tasks into shards, each of which is processed
+ * by exactly one worker thread. Tasks implementing {@link IShardedTask} are
+ * routed by their shard key, so that all path edges of one method are
+ * handled by the same thread. The per-method solver state (end summaries,
+ * incoming edges, jump functions) is then only written by this thread,
+ * which removes the contention on these shared structures. Interactions
+ * between methods (calls and returns) become tasks sent to the respective
+ * other shard.
+ * 
+ * Completion is derived from a counter of submitted and not yet finished
+ * tasks, in the same way as in the {@link WorkStealingExecutor}.
+ */
+public class MethodShardedExecutor implements IInfoflowExecutor {
+
+	private static final Logger logger = LoggerFactory.getLogger(MethodShardedExecutor.class);
+
+	private final ThreadPoolExecutor[] shards;
+	private final AtomicLongArray shardLoad;
+	private final AtomicInteger nextUnkeyedShard = new AtomicInteger();
+	private final CountLatch numRunningTasks = new CountLatch(0);
+	private volatile Throwable exception = null;
+	private volatile boolean terminating = false;
+
+	/**
+	 * Task wrapper that keeps track of the number of outstanding tasks and
+	 * records exceptions thrown by the worker threads
+	 */
+	private class ShardTask implements Runnable {
+
+		private final Runnable runnable;
+
+		public ShardTask(Runnable runnable) {
+			this.runnable = runnable;
+		}
+
+		@Override
+		public void run() {
+			try {
+				runnable.run();
+				numRunningTasks.decrement();
+			}
+			catch (Throwable t) {
+				exception = t;
+				logger.error("Worker thread execution failed: " + t.getMessage(), t);
+				terminating = true;
+				for (ThreadPoolExecutor shard : shards)
+					shard.shutdownNow();
+				numRunningTasks.resetAndInterrupt();
+			}
+		}
+
+	}
+
+	/**
+	 * Creates a new instance of the {@link MethodShardedExecutor} class
+	 * @param numShards The number of shards and thus worker threads to use
+	 */
+	public MethodShardedExecutor(int numShards) {
+		this.shards = new ThreadPoolExecutor[Math.max(1, numShards)];
+		for (int i = 0; i < shards.length; i++)
+			shards[i] = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>());
+		this.shardLoad = new AtomicLongArray(shards.length);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (terminating)
+			throw new RejectedExecutionException("Executor is shutting down");
+
+		int shard;
+		if (command instanceof IShardedTask) {
+			Object key = ((IShardedTask) command).getShardKey();
+			shard = key == null ? 0 : (key.hashCode() & Integer.MAX_VALUE) % shards.length;
+		}
+		else
+			shard = (nextUnkeyedShard.getAndIncrement() & Integer.MAX_VALUE) % shards.length;
+
+		numRunningTasks.increment();
+		shardLoad.incrementAndGet(shard);
+		try {
+			shards[shard].execute(new ShardTask(command));
+		}
+		catch (RejectedExecutionException ex) {
+			numRunningTasks.decrement();
+			throw ex;
+		}
+	}
+
+	@Override
+	public void awaitCompletion() throws InterruptedException {
+		numRunningTasks.awaitZero();
+	}
+
+	@Override
+	public Throwable getException() {
+		return exception;
+	}
+
+	@Override
+	public boolean isTerminating() {
+		return terminating && !isTerminated();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		for (ThreadPoolExecutor shard : shards)
+			if (!shard.isTerminated())
+				return false;
+		return true;
+	}
+
+	@Override
+	public int getActiveCount() {
+		int count = 0;
+		for (ThreadPoolExecutor shard : shards)
+			count += shard.getActiveCount();
+		return count;
+	}
+
+	@Override
+	public void shutdown() {
+		terminating = true;
+		for (ThreadPoolExecutor shard : shards)
+			shard.shutdown();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (ThreadPoolExecutor shard : shards)
+			if (!shard.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Gets the number of tasks that have been run on each shard. This can be
+	 * used to judge how evenly the methods are distributed over the shards.
+	 * @return The number of tasks per shard
+	 */
+	public long[] getShardLoad() {
+		long[] load = new long[shards.length];
+		for (int i = 0; i < load.length; i++)
+			load[i] = shardLoad.get(i);
+		return load;
+	}
+
+}
@@ -0,0 +1,86 @@
+package soot.jimple.infoflow.solver.executors;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor that does not use any worker threads. Submitted tasks are put on
+ * a plain worklist which is processed in FIFO order on the thread that waits
+ * for completion. Since there is only one thread, the solvers can use
+ * non-concurrent data structures and the order in which path edges are
+ * processed is reproducible.
+ *
+ * This executor is not thread-safe. All tasks must be submitted either
+ * before {@link #awaitCompletion()} is called or by the tasks themselves.
+ */
+public class SequentialExecutor implements IInfoflowExecutor {
+
+	private static final Logger logger = LoggerFactory.getLogger(SequentialExecutor.class);
+
+	private final ArrayDeque<Runnable> workList = new ArrayDeque<Runnable>();
+	private Throwable exception = null;
+	private boolean terminating = false;
+	private boolean running = false;
+
+	@Override
+	public void execute(Runnable command) {
+		if (terminating)
+			throw new RejectedExecutionException("Executor is shutting down");
+		workList.add(command);
+	}
+
+	@Override
+	public void awaitCompletion() throws InterruptedException {
+		running = true;
+		try {
+			Runnable task;
+			while ((task = workList.poll()) != null)
+				task.run();
+		}
+		catch (Throwable t) {
+			exception = t;
+			logger.error("Task execution failed: " + t.getMessage(), t);
+			terminating = true;
+			workList.clear();
+		}
+		finally {
+			running = false;
+		}
+	}
+
+	@Override
+	public Throwable getException() {
+		return exception;
+	}
+
+	@Override
+	public boolean isTerminating() {
+		return terminating && !isTerminated();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return terminating && !running && workList.isEmpty();
+	}
+
+	@Override
+	public int getActiveCount() {
+		return running ? 1 : 0;
+	}
+
+	@Override
+	public void shutdown() {
+		terminating = true;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) {
+		// There are no worker threads to wait for
+		return isTerminated();
+	}
+
+}
@@ -0,0 +1,24 @@
+package soot.jimple.infoflow.solver.executors;
+
+import java.util.Comparator;
+
+/**
+ * Comparator for the queue of an executor that runs the tasks with the
+ * lowest priority values first. Tasks that do not implement
+ * {@link IPrioritizedTask} are run before all prioritized ones.
+ */
+public class TaskPriorityComparator implements Comparator<Runnable> {
+
+	@Override
+	public int compare(Runnable r1, Runnable r2) {
+		int p1 = getPriority(r1);
+		int p2 = getPriority(r2);
+		return p1 < p2 ? -1 : (p1 == p2 ? 0 : 1);
+	}
+
+	private int getPriority(Runnable r) {
+		return r instanceof IPrioritizedTask ? ((IPrioritizedTask) r).getPriority()
+				: Integer.MIN_VALUE;
+	}
+
+}
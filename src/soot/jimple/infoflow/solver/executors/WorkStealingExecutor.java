@@ -0,0 +1,144 @@
+package soot.jimple.infoflow.solver.executors;
+
+import heros.solver.CountLatch;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor based on a work-stealing fork/join pool. Every worker thread owns
+ * a deque. Tasks spawned by a worker are pushed onto its own deque and
+ * processed depth-first, idle workers steal the oldest tasks from the other
+ * deques. This avoids the contention on the single queue of the
+ * {@link InfoflowThreadPoolExecutor} when running on many cores.
+ * 
+ * Completion is not derived from the pool's own quiescence, but from a
+ * counter of submitted and not yet finished tasks. Since a task can only be
+ * submitted by the client or by another running task, the counter reaching
+ * zero means that no more work can ever arrive.
+ */
+public class WorkStealingExecutor implements IInfoflowExecutor {
+
+	private static final Logger logger = LoggerFactory.getLogger(WorkStealingExecutor.class);
+
+	private final ForkJoinPool pool;
+	private final CountLatch numRunningTasks = new CountLatch(0);
+	private volatile Throwable exception = null;
+	private volatile boolean terminating = false;
+
+	/**
+	 * Task wrapper that keeps track of the number of outstanding tasks and
+	 * records exceptions thrown by the worker threads
+	 */
+	private class SolverTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -5164722591632346187L;
+
+		private final Runnable runnable;
+
+		public SolverTask(Runnable runnable) {
+			this.runnable = runnable;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				runnable.run();
+				numRunningTasks.decrement();
+			}
+			catch (Throwable t) {
+				exception = t;
+				logger.error("Worker thread execution failed: " + t.getMessage(), t);
+				terminating = true;
+				pool.shutdownNow();
+				numRunningTasks.resetAndInterrupt();
+			}
+		}
+
+	}
+
+	/**
+	 * Creates a new instance of the {@link WorkStealingExecutor} class
+	 * @param numThreads The number of worker threads to use
+	 */
+	public WorkStealingExecutor(int numThreads) {
+		this.pool = new ForkJoinPool(numThreads,
+				ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (terminating)
+			throw new RejectedExecutionException("Executor is shutting down");
+
+		numRunningTasks.increment();
+		SolverTask task = new SolverTask(command);
+
+		// Tasks spawned by one of our own workers go to that worker's deque,
+		// everything else is an external submission
+		Thread curThread = Thread.currentThread();
+		try {
+			if (curThread instanceof ForkJoinWorkerThread
+					&& ((ForkJoinWorkerThread) curThread).getPool() == pool)
+				task.fork();
+			else
+				pool.execute(task);
+		}
+		catch (RejectedExecutionException ex) {
+			numRunningTasks.decrement();
+			throw ex;
+		}
+	}
+
+	@Override
+	public void awaitCompletion() throws InterruptedException {
+		numRunningTasks.awaitZero();
+	}
+
+	@Override
+	public Throwable getException() {
+		return exception;
+	}
+
+	@Override
+	public boolean isTerminating() {
+		return terminating && !pool.isTerminated();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return pool.isTerminated();
+	}
+
+	@Override
+	public int getActiveCount() {
+		return pool.getActiveThreadCount();
+	}
+
+	@Override
+	public void shutdown() {
+		terminating = true;
+		pool.shutdown();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return pool.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Gets the number of tasks that have been stolen by idle workers from
+	 * other workers' deques
+	 * @return The number of stolen tasks
+	 */
+	public long getStealCount() {
+		return pool.getStealCount();
+	}
+
+}
@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.solver.fastSolver;
+
+import heros.ThreadSafe;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Jump function store that does not allocate an object per path edge.
+ * Statements and facts are given dense integer ids, and every (d1, n, d2)
+ * triple is packed into a single long which is stored in a segmented
+ * open-addressing hash table. Insertions are lock-free. Only the resizing
+ * of a segment blocks the writers that hit this segment in the meantime.
+ * 
+ * If the ids do not fit into the packed key anymore, the store falls back
+ * to the map-based implementation of {@link JumpFunctions}.
+ * 
+ * @param <N> The type of nodes in the interprocedural control-flow graph
+ * @param <D> The type of data-flow facts
+ */
+@ThreadSafe
+public class CompactJumpFunctions<N,D> extends JumpFunctions<N,D> {
+
+	private static final int UNIT_BITS = 22;
+	private static final int FACT_BITS = 21;
+	private static final int MAX_UNIT_ID = (1 << UNIT_BITS) - 1;
+	private static final int MAX_FACT_ID = (1 << FACT_BITS) - 1;
+
+	private static final long EMPTY = 0L;
+	private static final long MOVED = -1L;
+
+	private static final int NUM_SEGMENTS = 64;
+	private static final int INITIAL_SEGMENT_CAPACITY = 1024;
+
+	/**
+	 * One open-addressing table with linear probing. Keys and values are
+	 * kept in parallel arrays.
+	 */
+	private static class Table {
+		private final AtomicLongArray keys;
+		private final AtomicReferenceArray<Object> values;
+		private final AtomicInteger size = new AtomicInteger();
+		private final int mask;
+
+		public Table(int capacity) {
+			this.keys = new AtomicLongArray(capacity);
+			this.values = new AtomicReferenceArray<Object>(capacity);
+			this.mask = capacity - 1;
+		}
+	}
+
+	/**
+	 * A segment of the store. Segments are resized independently of each
+	 * other.
+	 */
+	private static class Segment {
+		private volatile Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+	}
+
+	private ConcurrentHashMap<N, Integer> unitIds = new ConcurrentHashMap<N, Integer>();
+	private ConcurrentHashMap<D, Integer> factIds = new ConcurrentHashMap<D, Integer>();
+	private final AtomicInteger nextUnitId = new AtomicInteger(1);
+	private final AtomicInteger nextFactId = new AtomicInteger(1);
+
+	private Segment[] segments = createSegments();
+
+	public CompactJumpFunctions() {
+	}
+
+	private static Segment[] createSegments() {
+		Segment[] segments = new Segment[NUM_SEGMENTS];
+		for (int i = 0; i < segments.length; i++)
+			segments[i] = new Segment();
+		return segments;
+	}
+
+	@Override
+	public D addFunction(WeakPathEdge<N, D> edge) {
+		return addFunction(edge.factAtSource(), edge.getTarget(), edge.factAtTarget());
+	}
+
+	@Override
+	public D addFunction(D sourceVal, N target, D targetVal) {
+		int unitId = getId(unitIds, nextUnitId, target);
+		int sourceId = getId(factIds, nextFactId, sourceVal);
+		int targetId = getId(factIds, nextFactId, targetVal);
+		// The highest ids are reserved, all ones in the packed key would
+		// collide with the MOVED marker
+		if (unitId >= MAX_UNIT_ID || sourceId >= MAX_FACT_ID || targetId >= MAX_FACT_ID)
+			return super.addFunction(sourceVal, target, targetVal);
+
+		long key = ((long) unitId << (2 * FACT_BITS))
+				| ((long) sourceId << FACT_BITS)
+				| targetId;
+		return put(key, targetVal);
+	}
+
+	/**
+	 * Gets the dense id of the given object. If the object does not have an
+	 * id yet, a new one is assigned.
+	 * @param ids The map of already assigned ids
+	 * @param nextId The counter from which new ids are taken
+	 * @param obj The object for which to get the id
+	 * @return The id of the given object
+	 */
+	private static <T> int getId(ConcurrentHashMap<T, Integer> ids,
+			AtomicInteger nextId, T obj) {
+		Integer id = ids.get(obj);
+		if (id != null)
+			return id;
+		Integer newId = nextId.getAndIncrement();
+		id = ids.putIfAbsent(obj, newId);
+		return id == null ? newId : id;
+	}
+
+	/**
+	 * Spreads the bits of the given key over the whole integer range
+	 */
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	/**
+	 * Records the given key if it is not present yet
+	 * @param key The packed jump function
+	 * @param value The fact at the target of the jump function
+	 * @return The fact that was previously recorded for the key, or null if
+	 * the key is new
+	 */
+	@SuppressWarnings("unchecked")
+	private D put(long key, D value) {
+		final int hash = hash(key);
+		final Segment segment = segments[(hash >>> 26) & (NUM_SEGMENTS - 1)];
+
+		retry: while (true) {
+			final Table table = segment.table;
+			int idx = hash & table.mask;
+			for (int probes = 0; probes <= table.mask; probes++) {
+				long k = table.keys.get(idx);
+				if (k == EMPTY) {
+					if (!table.keys.compareAndSet(idx, EMPTY, key)) {
+						// Somebody else was faster, look at this slot again
+						probes--;
+						continue;
+					}
+					table.values.set(idx, value);
+					if (table.size.incrementAndGet() > (table.mask + 1) / 2)
+						resize(segment, table);
+					return null;
+				}
+				if (k == MOVED) {
+					awaitResize(segment, table);
+					continue retry;
+				}
+				if (k == key)
+					return (D) awaitValue(table, idx);
+				idx = (idx + 1) & table.mask;
+			}
+
+			// The table is full, which can only happen while it is being
+			// resized
+			awaitResize(segment, table);
+		}
+	}
+
+	/**
+	 * Waits until the value of a freshly inserted key has been published
+	 */
+	private static Object awaitValue(Table table, int idx) {
+		Object val = table.values.get(idx);
+		while (val == null) {
+			Thread.yield();
+			val = table.values.get(idx);
+		}
+		return val;
+	}
+
+	/**
+	 * Waits until the given table has been replaced in the given segment
+	 */
+	private static void awaitResize(Segment segment, Table table) {
+		while (segment.table == table)
+			Thread.yield();
+	}
+
+	/**
+	 * Replaces the given table with one of twice its size. Empty slots in
+	 * the old table are marked as moved so that no writer can insert into
+	 * them while the copy is in progress. Writers that find a moved slot
+	 * wait for the new table to be published.
+	 */
+	private void resize(Segment segment, Table table) {
+		synchronized (segment) {
+			if (segment.table != table)
+				return;
+
+			Table newTable = new Table((table.mask + 1) * 2);
+			int size = 0;
+			for (int i = 0; i <= table.mask; i++) {
+				long k = table.keys.get(i);
+				while (k == EMPTY) {
+					if (table.keys.compareAndSet(i, EMPTY, MOVED))
+						break;
+					k = table.keys.get(i);
+				}
+				if (k == EMPTY || k == MOVED)
+					continue;
+
+				// The new table is not shared yet, so we can fill it without
+				// any synchronization
+				int idx = hash(k) & newTable.mask;
+				while (newTable.keys.get(idx) != EMPTY)
+					idx = (idx + 1) & newTable.mask;
+				newTable.keys.set(idx, k);
+				newTable.values.set(idx, awaitValue(table, i));
+				size++;
+			}
+			newTable.size.set(size);
+			segment.table = newTable;
+		}
+	}
+
+	/**
+	 * Gets the number of jump functions in this store
+	 * @return The number of jump functions in this store
+	 */
+	public int size() {
+		int size = nonEmptyReverseLookup.size();
+		for (Segment segment : segments)
+			size += segment.table.size.get();
+		return size;
+	}
+
+	@Override
+	public synchronized void clear() {
+		super.clear();
+		this.segments = createSegments();
+		this.unitIds = new ConcurrentHashMap<N, Integer>();
+		this.factIds = new ConcurrentHashMap<D, Integer>();
+	}
+
+}
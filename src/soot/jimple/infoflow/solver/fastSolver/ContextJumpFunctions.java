@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.solver.fastSolver;
+
+import heros.InterproceduralCFG;
+import heros.ThreadSafe;
+import heros.solver.Pair;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import soot.jimple.infoflow.util.MyConcurrentHashMap;
+import soot.jimple.infoflow.util.SmallConcurrentMap;
+
+/**
+ * Jump function store that keeps the jump functions of every calling
+ * context, i.e., method and fact at the method's start point, in a map of
+ * its own. All jump functions of a context can thus be removed at once
+ * without looking at the other contexts. The self-loops at the start points
+ * are kept in the shared map of {@link JumpFunctions}, since they are never
+ * removed.
+ *
+ * @param <N> The type of nodes in the interprocedural control-flow graph
+ * @param <D> The type of data-flow facts
+ * @param <M> The type of objects used to represent methods
+ */
+@ThreadSafe
+public class ContextJumpFunctions<N,D,M> extends JumpFunctions<N,D> {
+
+	private final InterproceduralCFG<N, M> icfg;
+
+	private volatile Map<Pair<M, D>, Map<WeakPathEdge<N, D>, D>> contextFunctions = createContextMap();
+
+	/**
+	 * Creates a new jump function store
+	 * @param icfg The control flow graph used to find the method to which a
+	 * jump function belongs
+	 * @param concurrent True if the store may be accessed by multiple
+	 * threads at the same time, false if it is only used by a single thread
+	 */
+	public ContextJumpFunctions(InterproceduralCFG<N, M> icfg, boolean concurrent) {
+		super(concurrent);
+		this.icfg = icfg;
+	}
+
+	@Override
+	public D addFunction(WeakPathEdge<N, D> edge) {
+		N target = edge.getTarget();
+		if (icfg.isStartPoint(target))
+			return super.addFunction(edge);
+
+		Pair<M, D> context = new Pair<M, D>(icfg.getMethodOf(target), edge.factAtSource());
+		Map<WeakPathEdge<N, D>, D> functions = contextFunctions.get(context);
+		if (!concurrent) {
+			if (functions == null) {
+				functions = new HashMap<WeakPathEdge<N, D>, D>();
+				contextFunctions.put(context, functions);
+			}
+			D oldVal = functions.get(edge);
+			if (oldVal == null)
+				functions.put(edge, edge.factAtTarget());
+			return oldVal;
+		}
+		
+		if (functions == null)
+			functions = ((MyConcurrentHashMap<Pair<M, D>, Map<WeakPathEdge<N, D>, D>>) contextFunctions)
+					.putIfAbsentElseGet(context, new SmallConcurrentMap<WeakPathEdge<N, D>, D>());
+		return ((ConcurrentMap<WeakPathEdge<N, D>, D>) functions).putIfAbsent(edge, edge.factAtTarget());
+	}
+
+	@Override
+	protected Map<?, D> getFunctions(D sourceVal, N target) {
+		if (icfg.isStartPoint(target))
+			return super.getFunctions(sourceVal, target);
+		return contextFunctions.get(new Pair<M, D>(icfg.getMethodOf(target), sourceVal));
+	}
+
+	/**
+	 * Removes all jump functions of the given context except for the
+	 * self-loops at the method's start points
+	 * @param method The method
+	 * @param d1 The fact at the start point of the method
+	 * @return The number of jump functions that have been removed
+	 */
+	public int removeContext(M method, D d1) {
+		Map<WeakPathEdge<N, D>, D> functions = contextFunctions.remove(new Pair<M, D>(method, d1));
+		return functions == null ? 0 : functions.size();
+	}
+
+	/**
+	 * Gets the number of contexts for which jump functions are stored
+	 * @return The number of contexts for which jump functions are stored
+	 */
+	public int getContextCount() {
+		return contextFunctions.size();
+	}
+
+	@Override
+	public synchronized void clear() {
+		super.clear();
+		this.contextFunctions = createContextMap();
+	}
+
+	private Map<Pair<M, D>, Map<WeakPathEdge<N, D>, D>> createContextMap() {
+		return concurrent ? new MyConcurrentHashMap<Pair<M, D>, Map<WeakPathEdge<N, D>, D>>()
+				: new HashMap<Pair<M, D>, Map<WeakPathEdge<N, D>, D>>();
+	}
+
+}
@@ -0,0 +1,21 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import soot.jimple.infoflow.problems.AbstractInfoflowProblem;
+import soot.jimple.infoflow.solver.IInfoflowSolver;
+import soot.jimple.infoflow.solver.IInfoflowSolverFactory;
+import soot.jimple.infoflow.solver.executors.IInfoflowExecutor;
+
+/**
+ * Factory for the fast solver. This is the default solver, and the only
+ * one that supports all scheduling strategies, summaries and memory
+ * optimizations.
+ */
+public class FastSolverFactory implements IInfoflowSolverFactory {
+
+	@Override
+	public IInfoflowSolver createSolver(AbstractInfoflowProblem problem,
+			IInfoflowExecutor executor) {
+		return new InfoflowSolver(problem, executor);
+	}
+
+}
@@ -12,4 +12,26 @@ public interface FastSolverLinkedNode<D> extends LinkedNode<D> {
 
 	public void setPredecessor(D predecessor);
 	
+	/**
+	 * Merges the given node, which is equal to this one, but has been reached
+	 * over a different path, into this node. The solver uses this method
+	 * instead of {@link #addNeighbor(Object)} if it has been configured to
+	 * merge facts.
+	 * @param other The node to merge into this one
+	 * @return True if this node has changed and its successors must be
+	 * computed again, otherwise false
+	 */
+	public boolean merge(D other);
+	
+	/**
+	 * Derives a new node that is equal to this one, but has the given
+	 * predecessor. The solver uses this method instead of
+	 * {@link #setPredecessor(Object)} if it has been configured to merge
+	 * facts, because a node that is returned from a callee into several
+	 * calling contexts must not carry the information of all of them.
+	 * @param predecessor The predecessor of the new node
+	 * @return The new node
+	 */
+	public D deriveWithPredecessor(D predecessor);
+	
 }
@@ -21,27 +21,37 @@ import heros.FlowFunctions;
 import heros.IFDSTabulationProblem;
 import heros.SynchronizedBy;
 import heros.ZeroedFlowFunctions;
-import heros.solver.CountingThreadPoolExecutor;
 import heros.solver.Pair;
 import heros.solver.PathEdge;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import soot.SootMethod;
 import soot.Unit;
-import soot.jimple.infoflow.util.ConcurrentHashSet;
+import soot.jimple.infoflow.solver.executors.IInfoflowExecutor;
+import soot.jimple.infoflow.solver.executors.IPrioritizedTask;
+import soot.jimple.infoflow.solver.executors.IShardedTask;
+import soot.jimple.infoflow.solver.executors.InfoflowThreadPoolExecutor;
+import soot.jimple.infoflow.solver.executors.MethodShardedExecutor;
+import soot.jimple.infoflow.solver.executors.SequentialExecutor;
 import soot.jimple.infoflow.util.MyConcurrentHashMap;
+import soot.jimple.infoflow.util.SmallConcurrentMap;
+import soot.jimple.infoflow.util.SmallConcurrentSet;
 import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
 
 import com.google.common.cache.CacheBuilder;
@@ -63,17 +73,23 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 			(Runtime.getRuntime().availableProcessors()).initialCapacity(10000).softValues();
 	
     protected static final Logger logger = LoggerFactory.getLogger(IFDSSolver.class);
+    
+    /**
+     * The maximum number of edges a thread may process inline on its own
+     * stack when the queue is full, before it enqueues new edges regardless
+     */
+    private static final int MAX_INLINE_DEPTH = 16;
 
     //enable with -Dorg.slf4j.simpleLogger.defaultLogLevel=trace
     public static final boolean DEBUG = logger.isDebugEnabled();
 
-	protected CountingThreadPoolExecutor executor;
+	protected IInfoflowExecutor executor;
 	
 	@DontSynchronize("only used by single thread")
 	protected int numThreads;
 	
 	@SynchronizedBy("thread safe data structure, consistent locking when used")
-	protected final JumpFunctions<N,D> jumpFn;
+	protected JumpFunctions<N,D> jumpFn;
 	
 	@SynchronizedBy("thread safe data structure, only modified internally")
 	protected final I icfg;
@@ -81,14 +97,17 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 	//stores summaries that were queried before they were computed
 	//see CC 2010 paper by Naeem, Lhotak and Rodriguez
 	@SynchronizedBy("consistent lock on 'incoming'")
-	protected final MyConcurrentHashMap<Pair<M,D>,Set<Pair<N,D>>> endSummary =
+	protected Map<Pair<M,D>,Set<Pair<N,D>>> endSummary =
 			new MyConcurrentHashMap<Pair<M,D>, Set<Pair<N,D>>>();
 	
 	//edges going along calls
 	//see CC 2010 paper by Naeem, Lhotak and Rodriguez
 	@SynchronizedBy("consistent lock on field")
-	protected final MyConcurrentHashMap<Pair<M,D>,MyConcurrentHashMap<N,Map<D, D>>> incoming =
-			new MyConcurrentHashMap<Pair<M,D>,MyConcurrentHashMap<N,Map<D, D>>>();
+	protected Map<Pair<M,D>,Map<N,Map<D, D>>> incoming =
+			new MyConcurrentHashMap<Pair<M,D>,Map<N,Map<D, D>>>();
+	
+	@DontSynchronize("readOnly")
+	private boolean sequential = false;
 	
 	@DontSynchronize("stateless")
 	protected final FlowFunctions<N, D, M> flowFunctions;
@@ -99,6 +118,9 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 	@DontSynchronize("benign races")
 	public long propagationCount;
 	
+	@DontSynchronize("benign races")
+	public long localPropagationCount;
+	
 	@DontSynchronize("stateless")
 	protected final D zeroValue;
 	
@@ -114,6 +136,50 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 	@DontSynchronize("readOnly")
 	private boolean enableMergePointChecking = false;
 	
+	@DontSynchronize("readOnly")
+	private boolean mergeFacts = false;
+	
+	@DontSynchronize("readOnly")
+	private int runToCompletionBudget = 0;
+	
+	@DontSynchronize("readOnly")
+	private long maxPropagationCount = 0;
+	
+	@DontSynchronize("only ever set to true")
+	protected volatile boolean killFlag = false;
+	
+	@SynchronizedBy("thread safe data structure")
+	private JumpFunctionCollector<N,D,M> jumpFunctionCollector = null;
+	
+	@DontSynchronize("only accessed by the owning thread")
+	private final ThreadLocal<PathEdgeProcessingTask> currentTask =
+			new ThreadLocal<PathEdgeProcessingTask>();
+	
+	@DontSynchronize("readOnly")
+	private int maxQueueDepth = 0;
+	
+	@DontSynchronize("readOnly")
+	private Map<M, Integer> methodPriorities = null;
+	
+	@SynchronizedBy("thread safe data structure")
+	private final AtomicInteger queuedTasks = new AtomicInteger();
+	
+	@SynchronizedBy("thread safe data structure")
+	private final AtomicInteger queueHighWaterMark = new AtomicInteger();
+	
+	@DontSynchronize("benign races")
+	public long inlinePropagationCount;
+	
+	@DontSynchronize("only accessed by the owning thread")
+	private final ThreadLocal<int[]> inlineDepth = new ThreadLocal<int[]>() {
+		
+		@Override
+		protected int[] initialValue() {
+			return new int[1];
+		}
+		
+	};
+	
 	/**
 	 * Creates a solver for the given problem, which caches flow functions and edge functions.
 	 * The solver must then be started by calling {@link #solve()}.
@@ -129,6 +195,19 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 	 * @param edgeFunctionCacheBuilder A valid {@link CacheBuilder} or <code>null</code> if no caching is to be used for edge functions.
 	 */
 	public IFDSSolver(IFDSTabulationProblem<N,D,M,I> tabulationProblem, @SuppressWarnings("rawtypes") CacheBuilder flowFunctionCacheBuilder) {
+		this(tabulationProblem, flowFunctionCacheBuilder, null);
+	}
+
+	/**
+	 * Creates a solver for the given problem that runs on the given executor.
+	 * The data structures are created only once the executor is known, since
+	 * they depend on whether the executor is sequential.
+	 * @param flowFunctionCacheBuilder A valid {@link CacheBuilder} or <code>null</code> if no caching is to be used for flow functions.
+	 * @param executor The executor on which to run the solver's tasks, or
+	 * <code>null</code> to create one with {@link #getExecutor()}
+	 */
+	protected IFDSSolver(IFDSTabulationProblem<N,D,M,I> tabulationProblem, @SuppressWarnings("rawtypes") CacheBuilder flowFunctionCacheBuilder,
+			IInfoflowExecutor executor) {
 		if(logger.isDebugEnabled())
 			flowFunctionCacheBuilder = flowFunctionCacheBuilder.recordStats();
 		this.zeroValue = tabulationProblem.zeroValue();
@@ -143,10 +222,31 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 		}
 		this.flowFunctions = flowFunctions;
 		this.initialSeeds = tabulationProblem.initialSeeds();
-		this.jumpFn = new JumpFunctions<N,D>();
 		this.followReturnsPastSeeds = tabulationProblem.followReturnsPastSeeds();
 		this.numThreads = Math.max(1,tabulationProblem.numThreads());
-		this.executor = getExecutor();
+		this.executor = executor == null ? getExecutor() : executor;
+		initDataStructures();
+	}
+	
+	/**
+	 * Creates the data structures for the jump functions, the end summaries
+	 * and the incoming edges. If the solver runs on a
+	 * {@link SequentialExecutor}, all edges are processed on one thread, so
+	 * plain collections are used instead of the concurrent ones. This must be
+	 * called again if the executor is replaced before the solver is started.
+	 */
+	protected void initDataStructures() {
+		this.sequential = executor instanceof SequentialExecutor;
+		if (sequential) {
+			this.jumpFn = new JumpFunctions<N,D>(false);
+			this.endSummary = new HashMap<Pair<M,D>, Set<Pair<N,D>>>();
+			this.incoming = new HashMap<Pair<M,D>, Map<N,Map<D, D>>>();
+		}
+		else {
+			this.jumpFn = new JumpFunctions<N,D>();
+			this.endSummary = new MyConcurrentHashMap<Pair<M,D>, Set<Pair<N,D>>>();
+			this.incoming = new MyConcurrentHashMap<Pair<M,D>, Map<N,Map<D, D>>>();
+		}
 	}
 
 	/**
@@ -167,7 +267,7 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 			N startPoint = seed.getKey();
 			for(D val: seed.getValue())
 				propagate(zeroValue, startPoint, val, null, false);
-			jumpFn.addFunction(new WeakPathEdge<N, D>(zeroValue, startPoint, zeroValue));
+			jumpFn.addFunction(zeroValue, startPoint, zeroValue);
 		}
 	}
 
@@ -214,11 +314,104 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
     protected void scheduleEdgeProcessing(PathEdge<N,D> edge){
     	// If the executor has been killed, there is little point
     	// in submitting new tasks
-    	if (executor.isTerminating())
+    	if (executor.isTerminating() || killFlag)
+    		return;
+    	if (maxPropagationCount > 0 && propagationCount >= maxPropagationCount) {
+    		logger.warn("Maximum number of {} propagations reached, terminating the solver",
+    				maxPropagationCount);
+    		forceTerminate();
     		return;
-    	executor.execute(new PathEdgeProcessingTask(edge));
+    	}
+    	
+    	if (jumpFunctionCollector != null)
+    		jumpFunctionCollector.edgeScheduled(icfg.getMethodOf(edge.getTarget()),
+    				edge.factAtSource());
+    	
+    	// If we are running inside one of our own tasks, we try to keep the
+    	// edge on that task's local worklist to save the executor handoff
+    	if (runToCompletionBudget > 0) {
+    		PathEdgeProcessingTask task = currentTask.get();
+    		if (task != null && task.offerLocalEdge(edge)) {
+    			localPropagationCount++;
+    			propagationCount++;
+    			return;
+    		}
+    	}
+    	
+    	// If too many of our tasks are already waiting, the submitting thread
+    	// has to do the work itself instead of growing the queue any further
+    	PathEdgeProcessingTask task = new PathEdgeProcessingTask(edge);
+    	if (!tryRunInline(task))
+    		enqueueTask(task);
     	propagationCount++;
     }
+    
+    /**
+     * Hands the given task to the executor
+     * @param task The task to schedule
+     */
+    private void enqueueTask(Runnable task) {
+    	int depth = queuedTasks.incrementAndGet();
+    	int highWaterMark = queueHighWaterMark.get();
+    	while (depth > highWaterMark && !queueHighWaterMark.compareAndSet(highWaterMark, depth))
+    		highWaterMark = queueHighWaterMark.get();
+    	executor.execute(task);
+    }
+    
+    /**
+     * Runs the given task on the current thread if this solver already has
+     * the maximum number of tasks waiting in the executor's queue
+     * @param task The task to run
+     * @return True if the task has been run, false if it must be handed to
+     * the executor
+     */
+    private boolean tryRunInline(PathEdgeProcessingTask task) {
+    	if (maxQueueDepth <= 0 || queuedTasks.get() < maxQueueDepth)
+    		return false;
+    	// With method-affinity sharding, only the owning shard may touch the
+    	// state of a method
+    	if (isShardedExecution())
+    		return false;
+    	// Make sure that we do not overflow the stack
+    	int[] depth = inlineDepth.get();
+    	if (depth[0] >= MAX_INLINE_DEPTH)
+    		return false;
+    	
+    	depth[0]++;
+    	try {
+    		task.runInline();
+    	}
+    	finally {
+    		depth[0]--;
+    	}
+    	inlinePropagationCount++;
+    	return true;
+    }
+	
+    /**
+     * Dispatch the callee-side processing of a call edge to the shard that
+     * owns the callee
+     * @param task The task that processes the callee side of the call edge
+     */
+    private void scheduleCalleeProcessing(CalleeProcessingTask task) {
+    	if (executor.isTerminating() || killFlag)
+    		return;
+    	// The caller's context must not be collected before the callee has
+    	// seen the call
+    	if (jumpFunctionCollector != null)
+    		jumpFunctionCollector.edgeScheduled(icfg.getMethodOf(task.n), task.d1);
+    	enqueueTask(task);
+    }
+    
+    /**
+     * Gets whether the path edges are distributed over the worker threads
+     * by the method to which they belong. In that case, all accesses to the
+     * state of a method must happen on the thread that owns this method.
+     * @return True if method-affinity sharding is enabled, otherwise false
+     */
+    protected boolean isShardedExecution() {
+    	return executor instanceof MethodShardedExecutor;
+    }
 	
 	/**
 	 * Lines 13-20 of the algorithm; processing a call site in the caller's context.
@@ -236,6 +429,7 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 
 		final D d2 = edge.factAtTarget();
 		assert d2 != null;
+		final boolean changed = edge instanceof ChangedPathEdge;
 		Collection<N> returnSiteNs = icfg.getReturnSitesOfCallAt(n);
 		
 		//for each possible callee
@@ -245,53 +439,15 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 			FlowFunction<D> function = flowFunctions.getCallFlowFunction(n, sCalledProcN);
 			Set<D> res = computeCallFlowFunction(function, d1, d2);
 			
-			Collection<N> startPointsOf = icfg.getStartPointsOf(sCalledProcN);
 			//for each result node of the call-flow function
 			for(D d3: res) {
-				//for each callee's start point(s)
-				for(N sP: startPointsOf) {
-					//create initial self-loop
-					propagate(d3, sP, d3, n, false); //line 15
-				}
-				
-				//register the fact that <sp,d3> has an incoming edge from <n,d2>
-				//line 15.1 of Naeem/Lhotak/Rodriguez
-				if (!addIncoming(sCalledProcN,d3,n,d1,d2))
-					continue;
-				
-				//line 15.2
-				Set<Pair<N, D>> endSumm = endSummary(sCalledProcN, d3);
-					
-				//still line 15.2 of Naeem/Lhotak/Rodriguez
-				//for each already-queried exit value <eP,d4> reachable from <sP,d3>,
-				//create new caller-side jump functions to the return sites
-				//because we have observed a potentially new incoming edge into <sP,d3>
-				if (endSumm != null)
-					for(Pair<N, D> entry: endSumm) {
-						N eP = entry.getO1();
-						D d4 = entry.getO2();
-						//for each return site
-						for(N retSiteN: returnSiteNs) {
-							//compute return-flow function
-							FlowFunction<D> retFunction = flowFunctions.getReturnFlowFunction(n, sCalledProcN, eP, retSiteN);
-							//for each target value of the function
-							for(D d5: computeReturnFlowFunction(retFunction, d4, n, Collections.singleton(d2))) {
-								// If we have not changed anything in the callee, we do not need the facts
-								// from there. Even if we change something: If we don't need the concrete
-								// path, we can skip the callee in the predecessor chain
-								D d5p = d5;
-								if (d5.equals(d2))
-									d5p = d2;
-								else if (setJumpPredecessors)
-									d5.setPredecessor(d2);
-								
-								// Set the calling context
-								D d5p_restoredCtx = restoreContextOnReturnedFact(d2, d5p);
-								
-								propagate(d1, retSiteN, d5p_restoredCtx, n, false);
-							}
-						}
-					}
+				// With method-affinity sharding, the callee's state must only
+				// be touched by the callee's shard, so we send it a message
+				if (isShardedExecution())
+					scheduleCalleeProcessing(new CalleeProcessingTask(d1, n, d2,
+							sCalledProcN, d3, returnSiteNs, changed));
+				else
+					processCallee(d1, n, d2, sCalledProcN, d3, returnSiteNs, changed);
 			}
 		}
 		//line 17-19 of Naeem/Lhotak/Rodriguez		
@@ -303,6 +459,94 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 		}
 	}
 
+	/**
+	 * Processes the callee side of a call edge: creates the initial self-loop
+	 * at the callee's start points, registers the incoming edge, and applies
+	 * the end summaries that have already been computed for the callee.
+	 * @param d1 The abstraction at the caller's start node
+	 * @param n The call site
+	 * @param d2 The abstraction at the call site
+	 * @param sCalledProcN The callee
+	 * @param d3 The abstraction at the callee's start node
+	 * @param returnSiteNs The return sites of the call site
+	 * @param changed True if the abstraction at the call site has already
+	 * been processed before, but has changed since
+	 */
+	private void processCallee(D d1, N n, D d2, M sCalledProcN, D d3,
+			Collection<N> returnSiteNs, boolean changed) {
+		//if the callee's summary for d3 is already known, there is no need
+		//to look into the callee
+		if (!applyPrecomputedSummary(sCalledProcN, d3)) {
+			Collection<N> startPointsOf = icfg.getStartPointsOf(sCalledProcN);
+			//for each callee's start point(s)
+			for(N sP: startPointsOf) {
+				//create initial self-loop
+				propagate(d3, sP, d3, n, false); //line 15
+			}
+		}
+		
+		// The caller's jump functions must be kept as long as the callee
+		// can still return new facts
+		if (jumpFunctionCollector != null)
+			jumpFunctionCollector.calleeEntered(icfg.getMethodOf(n), d1, sCalledProcN, d3);
+		
+		//register the fact that <sp,d3> has an incoming edge from <n,d2>
+		//line 15.1 of Naeem/Lhotak/Rodriguez. If d2 has changed, the
+		//summaries must be applied again even for a known edge.
+		if (!addIncoming(sCalledProcN,d3,n,d1,d2) && !changed)
+			return;
+		
+		//line 15.2
+		Set<Pair<N, D>> endSumm = endSummary(sCalledProcN, d3);
+			
+		//still line 15.2 of Naeem/Lhotak/Rodriguez
+		//for each already-queried exit value <eP,d4> reachable from <sP,d3>,
+		//create new caller-side jump functions to the return sites
+		//because we have observed a potentially new incoming edge into <sP,d3>
+		if (endSumm != null)
+			for(Pair<N, D> entry: endSumm) {
+				N eP = entry.getO1();
+				D d4 = entry.getO2();
+				//for each return site
+				for(N retSiteN: returnSiteNs) {
+					//compute return-flow function
+					FlowFunction<D> retFunction = flowFunctions.getReturnFlowFunction(n, sCalledProcN, eP, retSiteN);
+					//for each target value of the function
+					for(D d5: computeReturnFlowFunction(retFunction, d3, d4, n, Collections.singleton(d2))) {
+						// If we have not changed anything in the callee, we do not need the facts
+						// from there. Even if we change something: If we don't need the concrete
+						// path, we can skip the callee in the predecessor chain
+						D d5p = d5;
+						if (d5.equals(d2))
+							d5p = d2;
+						else if (mergeFacts)
+							d5p = d5.deriveWithPredecessor(d2);
+						else if (setJumpPredecessors)
+							d5.setPredecessor(d2);
+						
+						// Set the calling context
+						D d5p_restoredCtx = restoreContextOnReturnedFact(d2, d5p);
+						
+						propagate(d1, retSiteN, d5p_restoredCtx, n, false);
+					}
+				}
+			}
+	}
+
+	/**
+	 * Checks whether the end summary of the given callee for the given
+	 * incoming abstraction is available without exploring the callee, and if
+	 * so, registers it. Subclasses can override this method to plug in
+	 * summaries that have been computed elsewhere.
+	 * @param callee The callee
+	 * @param d3 The abstraction at the callee's start point
+	 * @return True if the summary has been registered and the callee need
+	 * not be explored, otherwise false
+	 */
+	protected boolean applyPrecomputedSummary(M callee, D d3) {
+		return false;
+	}
+
 	/**
 	 * Computes the call flow function for the given call-site abstraction
 	 * @param callFlowFunction The call flow function to compute
@@ -349,7 +593,8 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 		
 		//line 21.1 of Naeem/Lhotak/Rodriguez
 		//register end-summary
-		if (!addEndSummary(methodThatNeedsSummary, d1, n, d2))
+		if (!addEndSummary(methodThatNeedsSummary, d1, n, d2)
+				&& !(edge instanceof ChangedPathEdge))
 			return;
 		Map<N,Map<D, D>> inc = incoming(d1, methodThatNeedsSummary);
 		
@@ -363,7 +608,7 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 				for(N retSiteC: icfg.getReturnSitesOfCallAt(c)) {
 					//compute return-flow function
 					FlowFunction<D> retFunction = flowFunctions.getReturnFlowFunction(c, methodThatNeedsSummary,n,retSiteC);
-					Set<D> targets = computeReturnFlowFunction(retFunction, d2, c, entry.getValue().keySet());
+					Set<D> targets = computeReturnFlowFunction(retFunction, d1, d2, c, entry.getValue().keySet());
 					//for each incoming-call value
 					for(D d4: entry.getValue().keySet())
 						for(D d5: targets) {
@@ -374,6 +619,10 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 							D predVal = entry.getValue().get(d4);
 							if (d5.equals(predVal))
 								d5p = predVal;
+							else if (mergeFacts)
+								// The targets are shared by all incoming calls, but
+								// every caller needs a fact of its own
+								d5p = d5.deriveWithPredecessor(predVal);
 							else if (setJumpPredecessors)
 								d5.setPredecessor(predVal);
 							
@@ -393,7 +642,7 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 			for(N c: callers) {
 				for(N retSiteC: icfg.getReturnSitesOfCallAt(c)) {
 					FlowFunction<D> retFunction = flowFunctions.getReturnFlowFunction(c, methodThatNeedsSummary,n,retSiteC);
-					Set<D> targets = computeReturnFlowFunction(retFunction, d2, c, Collections.singleton(zeroValue));
+					Set<D> targets = computeReturnFlowFunction(retFunction, d1, d2, c, Collections.singleton(zeroValue));
 					for(D d5: targets)
 						propagate(zeroValue, retSiteC, d5, c, true);
 				}
@@ -412,13 +661,14 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 	 * Computes the return flow function for the given set of caller-side
 	 * abstractions.
 	 * @param retFunction The return flow function to compute
+	 * @param d1 The abstraction at the start node of the callee
 	 * @param d2 The abstraction at the exit node in the callee
 	 * @param callSite The call site
 	 * @param callerSideDs The abstractions at the call site
 	 * @return The set of caller-side abstractions at the return site
 	 */
 	protected Set<D> computeReturnFlowFunction
-			(FlowFunction<D> retFunction, D d2, N callSite, Collection<D> callerSideDs) {
+			(FlowFunction<D> retFunction, D d1, D d2, N callSite, Collection<D> callerSideDs) {
 		return retFunction.computeTargets(d2);
 	}
 
@@ -435,11 +685,33 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 		for (N m : icfg.getSuccsOf(n)) {
 			FlowFunction<D> flowFunction = flowFunctions.getNormalFlowFunction(n,m);
 			Set<D> res = computeNormalFlowFunction(flowFunction, d1, d2);
-			for (D d3 : res)
-				propagate(d1, m, d3, null, false); 
+			for (D d3 : res) {
+				Collection<N> sparseTargets = getSparseTargets(m, d3);
+				if (sparseTargets == null)
+					propagate(d1, m, d3, null, false);
+				else
+					// The targets need not be merge points, but we may reach
+					// them several times, e.g., inside a loop
+					for (N target : sparseTargets)
+						propagate(d1, target, d3, null, false, true);
+			}
 		}
 	}
 	
+	/**
+	 * Gets the statements to which the given fact can directly be propagated
+	 * instead of the given successor statement. The flow functions of all
+	 * statements that are skipped must be the identity for this fact.
+	 * @param succ The successor statement to which the fact would normally
+	 * be propagated
+	 * @param fact The fact to propagate
+	 * @return The statements to which the fact shall be propagated instead,
+	 * or null to propagate it to the successor statement as usual
+	 */
+	protected Collection<N> getSparseTargets(N succ, D fact) {
+		return null;
+	}
+	
 	/**
 	 * Computes the normal flow function for the given set of start and end
 	 * abstractions.
@@ -503,15 +775,21 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 			/* deliberately exposed to clients */ N relatedCallSite,
 			/* deliberately exposed to clients */ boolean isUnbalancedReturn,
 			boolean forceRegister) {
-		final PathEdge<N,D> edge = new PathEdge<N,D>(sourceVal, target, targetVal);
-		final D existingVal = (forceRegister || !enableMergePointChecking || isMergePoint(target)) ?
-				jumpFn.addFunction(new WeakPathEdge<N, D>(sourceVal, target, targetVal)) : null;
+		// Merged facts must meet at the exit statements, since the end
+		// summaries only keep the first one of several equal facts
+		final D existingVal = (forceRegister || !enableMergePointChecking || isMergePoint(target)
+				|| (mergeFacts && icfg.isExitStmt(target))) ?
+				jumpFn.addFunction(sourceVal, target, targetVal) : null;
 		if (existingVal != null) {
-			if (existingVal != targetVal)
-				existingVal.addNeighbor(targetVal);
+			if (existingVal != targetVal) {
+				if (!mergeFacts)
+					existingVal.addNeighbor(targetVal);
+				else if (existingVal.merge(targetVal))
+					scheduleEdgeProcessing(new ChangedPathEdge<N,D>(sourceVal, target, existingVal));
+			}
 		}
 		else {
-			scheduleEdgeProcessing(edge);
+			scheduleEdgeProcessing(new PathEdge<N,D>(sourceVal, target, targetVal));
 			if(targetVal!=zeroValue)
 				logger.trace("EDGE: <{},{}> -> <{},{}>", icfg.getMethodOf(target), sourceVal, target, targetVal);
 //				logger.info("EDGE: <{},{}> -> <{},{}>", icfg.getMethodOf(target), sourceVal, target, targetVal);
@@ -545,9 +823,12 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 		return map;
 	}
 
-	private boolean addEndSummary(M m, D d1, N eP, D d2) {
-		Set<Pair<N, D>> summaries = endSummary.putIfAbsentElseGet
-				(new Pair<M, D>(m, d1), new ConcurrentHashSet<Pair<N, D>>());
+	protected boolean addEndSummary(M m, D d1, N eP, D d2) {
+		Pair<M, D> key = new Pair<M, D>(m, d1);
+		Set<Pair<N, D>> summaries = endSummary.get(key);
+		if (summaries == null)
+			summaries = putIfAbsentElseGet(endSummary, key, sequential
+					? new HashSet<Pair<N, D>>() : new SmallConcurrentSet<Pair<N, D>>());
 		return summaries.add(new Pair<N, D>(eP, d2));
 	}	
 	
@@ -557,17 +838,45 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 	}
 	
 	protected boolean addIncoming(M m, D d3, N n, D d1, D d2) {
-		MyConcurrentHashMap<N, Map<D, D>> summaries = incoming.putIfAbsentElseGet
-				(new Pair<M, D>(m, d3), new MyConcurrentHashMap<N, Map<D, D>>());
-		Map<D, D> set = summaries.putIfAbsentElseGet(n, new ConcurrentHashMap<D, D>());
+		Pair<M, D> key = new Pair<M, D>(m, d3);
+		Map<N, Map<D, D>> summaries = incoming.get(key);
+		if (summaries == null)
+			summaries = putIfAbsentElseGet(incoming, key, sequential
+					? new HashMap<N, Map<D, D>>() : new SmallConcurrentMap<N, Map<D, D>>());
+		Map<D, D> set = summaries.get(n);
+		if (set == null)
+			set = putIfAbsentElseGet(summaries, n, sequential
+					? new HashMap<D, D>() : new SmallConcurrentMap<D, D>());
 		return set.put(d1, d2) == null;
 	}
 	
+	/**
+	 * Puts the new key/value-pair if no mapping for the given key was in the
+	 * map before, otherwise returns the existing mapping. Plain maps are only
+	 * used in sequential mode and thus need no atomic update.
+	 * @param map The map to modify
+	 * @param key The key to check and put if it is not already in the map
+	 * @param value The value to put
+	 * @return The old value if one was present in the map for the given key,
+	 * otherwise, the newly registered value
+	 */
+	private static <K, V> V putIfAbsentElseGet(Map<K, V> map, K key, V value) {
+		if (map instanceof ConcurrentMap) {
+			V oldVal = ((ConcurrentMap<K, V>) map).putIfAbsent(key, value);
+			return oldVal == null ? value : oldVal;
+		}
+		V oldVal = map.get(key);
+		if (oldVal != null)
+			return oldVal;
+		map.put(key, value);
+		return value;
+	}
+	
 	/**
 	 * Factory method for this solver's thread-pool executor.
 	 */
-	protected CountingThreadPoolExecutor getExecutor() {
-		return new CountingThreadPoolExecutor(1, this.numThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+	protected IInfoflowExecutor getExecutor() {
+		return new InfoflowThreadPoolExecutor(1, this.numThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
 	}
 	
 	/**
@@ -587,26 +896,165 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 		}
 	}
 	
-	private class PathEdgeProcessingTask implements Runnable {
+	private class PathEdgeProcessingTask implements IShardedTask, IPrioritizedTask {
 		private final PathEdge<N,D> edge;
+		
+		private M method = null;
+		private int priority = -1;
+		private ArrayDeque<PathEdge<N,D>> localEdges = null;
+		private int remainingBudget = 0;
 
 		public PathEdgeProcessingTask(PathEdge<N,D> edge) {
 			this.edge = edge;
 		}
 
+		@Override
+		public Object getShardKey() {
+			if (method == null)
+				method = icfg.getMethodOf(edge.getTarget());
+			return method;
+		}
+		
+		@Override
+		public int getPriority() {
+			// The queue compares tasks many times, so we only look up the
+			// priority once
+			if (priority < 0) {
+				Integer methodPriority = methodPriorities == null ? null
+						: methodPriorities.get(getShardKey());
+				priority = methodPriority == null ? Integer.MAX_VALUE : methodPriority;
+			}
+			return priority;
+		}
+		
 		public void run() {
-			if(icfg.isCallStmt(edge.getTarget())) {
-				processCall(edge);
-			} else {
-				//note that some statements, such as "throw" may be
-				//both an exit statement and a "normal" statement
-				if(icfg.isExitStmt(edge.getTarget())) {
-					processExit(edge);
+			queuedTasks.decrementAndGet();
+			runInline();
+		}
+		
+		/**
+		 * Processes the edge of this task on the current thread
+		 */
+		private void runInline() {
+			// If the solver has been killed, we drain the queue without doing
+			// any further work
+			if (killFlag)
+				return;
+			if (runToCompletionBudget <= 0) {
+				processEdge(edge);
+				return;
+			}
+			
+			// Keep processing the successors in the same method on our own
+			// worklist until the budget is exhausted. If we run inline, the
+			// task we interrupted gets its worklist back afterwards.
+			PathEdgeProcessingTask previousTask = currentTask.get();
+			currentTask.set(this);
+			try {
+				remainingBudget = runToCompletionBudget;
+				processEdge(edge);
+				while (localEdges != null && !localEdges.isEmpty()) {
+					if (executor.isTerminating() || killFlag)
+						break;
+					processEdge(localEdges.removeFirst());
 				}
-				if(!icfg.getSuccsOf(edge.getTarget()).isEmpty()) {
-					processNormalFlow(edge);
+			}
+			finally {
+				currentTask.set(previousTask);
+			}
+		}
+		
+		/**
+		 * Tries to put the given edge onto this task's local worklist
+		 * @param newEdge The edge to process
+		 * @return True if the edge has been accepted and will be processed by
+		 * this task, false if it must be handed to the executor
+		 */
+		private boolean offerLocalEdge(PathEdge<N,D> newEdge) {
+			if (remainingBudget <= 0)
+				return false;
+			if (icfg.getMethodOf(newEdge.getTarget()) != getShardKey())
+				return false;
+			
+			if (localEdges == null)
+				localEdges = new ArrayDeque<PathEdge<N,D>>();
+			localEdges.add(newEdge);
+			remainingBudget--;
+			return true;
+		}
+		
+		private void processEdge(PathEdge<N,D> curEdge) {
+			try {
+				if(icfg.isCallStmt(curEdge.getTarget())) {
+					processCall(curEdge);
+				} else {
+					//note that some statements, such as "throw" may be
+					//both an exit statement and a "normal" statement
+					if(icfg.isExitStmt(curEdge.getTarget())) {
+						processExit(curEdge);
+					}
+					if(!icfg.getSuccsOf(curEdge.getTarget()).isEmpty()) {
+						processNormalFlow(curEdge);
+					}
 				}
 			}
+			finally {
+				edgeProcessed(icfg.getMethodOf(curEdge.getTarget()),
+						curEdge.factAtSource());
+			}
+		}
+	}
+	
+	/**
+	 * Notifies the jump function collector (if any) that a task in the given
+	 * context has been processed
+	 * @param method The method in which the task has been processed
+	 * @param d1 The fact at the start point of the method
+	 */
+	private void edgeProcessed(M method, D d1) {
+		if (jumpFunctionCollector != null)
+			jumpFunctionCollector.edgeProcessed(method, d1);
+	}
+	
+	/**
+	 * Message that asks the shard owning a callee to process the callee side
+	 * of a call edge
+	 */
+	private class CalleeProcessingTask implements IShardedTask {
+		private final D d1;
+		private final N n;
+		private final D d2;
+		private final M callee;
+		private final D d3;
+		private final Collection<N> returnSiteNs;
+		private final boolean changed;
+		
+		public CalleeProcessingTask(D d1, N n, D d2, M callee, D d3,
+				Collection<N> returnSiteNs, boolean changed) {
+			this.d1 = d1;
+			this.n = n;
+			this.d2 = d2;
+			this.callee = callee;
+			this.d3 = d3;
+			this.returnSiteNs = returnSiteNs;
+			this.changed = changed;
+		}
+		
+		@Override
+		public Object getShardKey() {
+			return callee;
+		}
+		
+		@Override
+		public void run() {
+			queuedTasks.decrementAndGet();
+			try {
+				if (!killFlag)
+					processCallee(d1, n, d2, callee, d3, returnSiteNs, changed);
+			}
+			finally {
+				edgeProcessed(icfg.getMethodOf(n), d1);
+			}
 		}
 	}
 	
@@ -620,6 +1068,30 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 		this.setJumpPredecessors = setJumpPredecessors;
 	}
 	
+	/**
+	 * Edge whose target fact has already been processed, but has changed since,
+	 * because an equal fact has been merged into it. Such an edge must be
+	 * processed again even where the solver has already seen an equal edge.
+	 */
+	private static class ChangedPathEdge<N,D> extends PathEdge<N,D> {
+		
+		public ChangedPathEdge(D dSource, N target, D dTarget) {
+			super(dSource, target, dTarget);
+		}
+		
+	}
+	
+	/**
+	 * Sets whether facts that are equal to facts the solver has already seen
+	 * shall be merged into the existing ones instead of being registered as
+	 * their neighbors. Whenever a merge changes a fact, the solver processes
+	 * it again, so that its successors are updated as well.
+	 * @param mergeFacts True if equal facts shall be merged, otherwise false
+	 */
+	public void setMergeFacts(boolean mergeFacts) {
+		this.mergeFacts = mergeFacts;
+	}
+	
 	/**
 	 * Sets whether only abstractions at merge points shall be recorded to jumpFn.
 	 * @param enableMergePointChecking True if only abstractions at merge points
@@ -628,5 +1100,154 @@ public class IFDSSolver<N,D extends FastSolverLinkedNode<D>,M,I extends BiDiInte
 	public void setEnableMergePointChecking(boolean enableMergePointChecking) {
 		this.enableMergePointChecking = enableMergePointChecking;
 	}
+	
+	/**
+	 * Sets whether the jump functions shall be stored in the compact,
+	 * primitive-encoded {@link CompactJumpFunctions} store instead of the
+	 * default map-based one. This must be called before the solver is
+	 * started.
+	 * @param compactJumpFunctions True if the compact jump function store
+	 * shall be used, otherwise false
+	 */
+	public void setCompactJumpFunctions(boolean compactJumpFunctions) {
+		this.jumpFn = compactJumpFunctions ? new CompactJumpFunctions<N,D>()
+				: new JumpFunctions<N,D>(!sequential);
+	}
+	
+	/**
+	 * Gets the number of path edges that found their jump function already
+	 * recorded, so that no path edge had to be allocated for the lookup
+	 * @return The number of lookups that found an existing jump function
+	 */
+	public long getJumpFunctionHitCount() {
+		return jumpFn.getProbeHitCount();
+	}
+	
+	/**
+	 * Gets the number of path edges whose jump function was looked up before
+	 * it was recorded. The compact jump function store does not use lookups.
+	 * @return The number of lookups of jump functions
+	 */
+	public long getJumpFunctionLookupCount() {
+		return jumpFn.getProbeCount();
+	}
+	
+	/**
+	 * Sets whether the jump functions of methods that cannot receive any new
+	 * edges in a given context shall be removed while the solver is still
+	 * running. This reduces the peak memory consumption. The jump functions
+	 * are then kept in a {@link ContextJumpFunctions} store, which replaces
+	 * the compact store if one has been configured. This must be called
+	 * before the solver is started.
+	 * @param enableJumpFunctionGC True if the jump functions of finished
+	 * contexts shall be garbage-collected, otherwise false
+	 */
+	public void setEnableJumpFunctionGC(boolean enableJumpFunctionGC) {
+		if (enableJumpFunctionGC) {
+			ContextJumpFunctions<N,D,M> contextJumpFn =
+					new ContextJumpFunctions<N,D,M>(icfg, !sequential);
+			this.jumpFn = contextJumpFn;
+			this.jumpFunctionCollector = new JumpFunctionCollector<N,D,M>(contextJumpFn);
+		}
+		else
+			this.jumpFunctionCollector = null;
+	}
+	
+	/**
+	 * Gets the number of jump functions that have been removed by the
+	 * garbage collector
+	 * @return The number of jump functions that have been removed
+	 */
+	public long getCollectedJumpFunctionCount() {
+		return jumpFunctionCollector == null ? 0
+				: jumpFunctionCollector.getRemovedFunctionCount();
+	}
+	
+	/**
+	 * Gets the number of calling contexts whose jump functions have been
+	 * removed by the garbage collector
+	 * @return The number of calling contexts that have been collected
+	 */
+	public long getCollectedContextCount() {
+		return jumpFunctionCollector == null ? 0
+				: jumpFunctionCollector.getCollectedContextCount();
+	}
+	
+	/**
+	 * Sets the number of path edges a worker may process on its own local
+	 * worklist before handing new edges to the executor. Only edges within the
+	 * same method as the edge the worker started with are kept locally.
+	 * @param runToCompletionBudget The maximum number of edges to process
+	 * locally per task, or 0 to hand every edge to the executor
+	 */
+	public void setRunToCompletionBudget(int runToCompletionBudget) {
+		this.runToCompletionBudget = runToCompletionBudget;
+	}
+	
+	/**
+	 * Sets the maximum number of path edges this solver may propagate. Once
+	 * this number is reached, the solver terminates as if
+	 * {@link #forceTerminate()} had been called.
+	 * @param maxPropagationCount The maximum number of propagations, or 0 for
+	 * no limit
+	 */
+	public void setMaxPropagationCount(long maxPropagationCount) {
+		this.maxPropagationCount = maxPropagationCount;
+	}
+	
+	/**
+	 * Sets the maximum number of tasks of this solver that may wait in the
+	 * executor's queue. If the queue is full, new path edges are processed
+	 * directly on the thread that produces them. This is a soft limit: to
+	 * bound the stack depth, and with method-affinity sharding where edges
+	 * must not leave their shard, edges are still enqueued.
+	 * @param maxQueueDepth The maximum number of waiting tasks, or 0 for no
+	 * limit
+	 */
+	public void setMaxQueueDepth(int maxQueueDepth) {
+		this.maxQueueDepth = maxQueueDepth;
+	}
+	
+	/**
+	 * Sets the priorities with which the path edges in the given methods are
+	 * processed. If the executor orders its tasks by priority, edges in
+	 * methods with lower values are processed first. This must be called
+	 * before the solver is started.
+	 * @param methodPriorities The non-negative priorities of the methods.
+	 * Methods that are not in the map get the lowest priority. Pass null to
+	 * give all edges the same priority.
+	 */
+	public void setMethodPriorities(Map<M, Integer> methodPriorities) {
+		this.methodPriorities = methodPriorities;
+	}
+	
+	/**
+	 * Gets the maximum number of tasks of this solver that have been waiting
+	 * in the executor's queue at the same time
+	 * @return The high-water mark of this solver's queue
+	 */
+	public int getQueueHighWaterMark() {
+		return queueHighWaterMark.get();
+	}
+	
+	/**
+	 * Forces this solver to terminate. No new path edges are scheduled, and
+	 * the edges that are still waiting in the executor's queue are dropped,
+	 * so that {@link #solve()} returns as soon as the running tasks have
+	 * finished their current edge. The results computed so far remain
+	 * available, but are incomplete.
+	 */
+	public void forceTerminate() {
+		this.killFlag = true;
+	}
+	
+	/**
+	 * Gets whether this solver has been forced to terminate before it could
+	 * process all path edges
+	 * @return True if the solver has been killed, otherwise false
+	 */
+	public boolean isKilled() {
+		return this.killFlag;
+	}
 
 }
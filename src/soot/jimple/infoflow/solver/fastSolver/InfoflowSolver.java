@@ -11,21 +11,35 @@
 package soot.jimple.infoflow.solver.fastSolver;
 
 import heros.FlowFunction;
-import heros.solver.CountingThreadPoolExecutor;
+import heros.solver.Pair;
 import heros.solver.PathEdge;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import soot.SootMethod;
 import soot.Unit;
 import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AbstractionAtSink;
+import soot.jimple.infoflow.data.AccessPath;
 import soot.jimple.infoflow.problems.AbstractInfoflowProblem;
 import soot.jimple.infoflow.solver.IInfoflowSolver;
+import soot.jimple.infoflow.solver.executors.IInfoflowExecutor;
 import soot.jimple.infoflow.solver.functions.SolverCallFlowFunction;
 import soot.jimple.infoflow.solver.functions.SolverCallToReturnFlowFunction;
 import soot.jimple.infoflow.solver.functions.SolverNormalFlowFunction;
 import soot.jimple.infoflow.solver.functions.SolverReturnFlowFunction;
+import soot.jimple.infoflow.summaries.MethodSummary;
+import soot.jimple.infoflow.summaries.MethodSummaryCache;
+import soot.jimple.infoflow.util.ConcurrentHashSet;
+import soot.jimple.infoflow.util.MyConcurrentHashMap;
 import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
 /**
  * We are subclassing the JimpleIFDSSolver because we need the same executor for both the forward and the backward analysis
@@ -35,19 +49,27 @@ import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
 public class InfoflowSolver extends IFDSSolver<Unit, Abstraction, SootMethod, BiDiInterproceduralCFG<Unit, SootMethod>>
 		implements IInfoflowSolver {
 
-	public InfoflowSolver(AbstractInfoflowProblem problem, CountingThreadPoolExecutor executor) {
-		super(problem);
-		this.executor = executor;
+	public InfoflowSolver(AbstractInfoflowProblem problem, IInfoflowExecutor executor) {
+		super(problem, DEFAULT_CACHE_BUILDER, executor);
 		problem.setSolver(this);		
 	}
 	
 	@Override
-	protected CountingThreadPoolExecutor getExecutor() {
+	protected IInfoflowExecutor getExecutor() {
 		return executor;
 	}
 
+	private MethodSummaryCache summaryCache = null;
+	private MyConcurrentHashMap<Pair<SootMethod, Abstraction>, MethodSummary> appliedSummaries = null;
+	private Set<SootMethod> injectedMethods = null;
+	private final Set<Pair<SootMethod, Abstraction>> summarizedContexts =
+			new ConcurrentHashSet<Pair<SootMethod, Abstraction>>();
+	private SparseDefUseGraph sparseGraph = null;
+	
 	@Override
 	public boolean processEdge(PathEdge<Unit, Abstraction> edge){
+		if (injectedMethods != null)
+			injectedMethods.add(icfg.getMethodOf(edge.getTarget()));
 		propagate(edge.factAtSource(), edge.getTarget(), edge.factAtTarget(), null, false, true);
 		return true;
 	}
@@ -60,10 +82,11 @@ public class InfoflowSolver extends IFDSSolver<Unit, Abstraction, SootMethod, Bi
 	
 	@Override
 	protected Set<Abstraction> computeReturnFlowFunction
-			(FlowFunction<Abstraction> retFunction, Abstraction d2, Unit callSite, Collection<Abstraction> callerSideDs) {
+			(FlowFunction<Abstraction> retFunction, Abstraction d1, Abstraction d2, Unit callSite,
+			Collection<Abstraction> callerSideDs) {
 		if (retFunction instanceof SolverReturnFlowFunction) {
 			// Get the d1s at the start points of the caller
-			return ((SolverReturnFlowFunction) retFunction).computeTargets(d2, callerSideDs);
+			return ((SolverReturnFlowFunction) retFunction).computeTargets(d2, d1, callerSideDs);
 		}
 		else
 			return retFunction.computeTargets(d2);
@@ -96,6 +119,209 @@ public class InfoflowSolver extends IFDSSolver<Unit, Abstraction, SootMethod, Bi
 			return flowFunction.computeTargets(d2);		
 	}
 	
+	@Override
+	protected boolean applyPrecomputedSummary(SootMethod callee, Abstraction d3) {
+		if (summaryCache == null || d3 == zeroValue)
+			return false;
+		
+		Pair<SootMethod, Abstraction> context = new Pair<SootMethod, Abstraction>(callee, d3);
+		MethodSummary summary = appliedSummaries.get(context);
+		if (summary == null) {
+			summary = summaryCache.getSummary(callee, d3);
+			if (summary == null)
+				return false;
+			summary = appliedSummaries.putIfAbsentElseGet(context, summary);
+		}
+		
+		// The exits and results of the summary have been derived from the
+		// first incoming abstraction. Make sure that we do not lose the path
+		// through the current one.
+		if (summary.getIncomingAbstraction() != d3)
+			summary.getIncomingAbstraction().addNeighbor(d3);
+		
+		for (Pair<Unit, Abstraction> exit : summary.getExits())
+			addEndSummary(callee, d3, exit.getO1(), exit.getO2());
+		return true;
+	}
+	
+	/**
+	 * Schedules the exploration of the given method for the given abstraction
+	 * at its start points, independent of any caller. Once {@link #solve()}
+	 * has finished, the end summary of this context is complete and is
+	 * stored by {@link #storeSummaries(Set, Map)} like the summaries of the
+	 * callees.
+	 * @param method The method to summarize
+	 * @param d3 The abstraction at the start points of the method
+	 */
+	public void summarizeMethod(SootMethod method, Abstraction d3) {
+		summarizedContexts.add(new Pair<SootMethod, Abstraction>(method, d3));
+		for (Unit sP : icfg.getStartPointsOf(method))
+			propagate(d3, sP, d3, null, false);
+	}
+	
+	/**
+	 * Sets the cache from which to take the end summaries of methods instead
+	 * of exploring them
+	 * @param summaryCache The summary cache to use, or null to always explore
+	 * all callees
+	 */
+	public void setSummaryCache(MethodSummaryCache summaryCache) {
+		this.summaryCache = summaryCache;
+		this.appliedSummaries = summaryCache == null ? null
+				: new MyConcurrentHashMap<Pair<SootMethod, Abstraction>, MethodSummary>();
+	}
+	
+	/**
+	 * Gets the summaries that have been taken from the summary cache instead
+	 * of exploring the respective methods. The results contained in these
+	 * summaries must be reported separately.
+	 * @return The summaries taken from the summary cache
+	 */
+	public Collection<MethodSummary> getAppliedSummaries() {
+		if (appliedSummaries == null)
+			return Collections.emptySet();
+		return appliedSummaries.values();
+	}
+	
+	/**
+	 * Puts the end summaries of all methods explored by this solver into the
+	 * summary cache
+	 * @param excludedMethods Methods whose summaries must not be cached, e.g.
+	 * because their exploration has triggered an alias analysis
+	 * @param resultsByContext The results found in each context (method and
+	 * abstraction at the method's start node)
+	 * @return The number of summaries that have been put into the cache
+	 */
+	public int storeSummaries(Set<SootMethod> excludedMethods,
+			Map<Pair<SootMethod, Abstraction>, Set<AbstractionAtSink>> resultsByContext) {
+		if (summaryCache == null)
+			return 0;
+		
+		// Collect the results found in each context itself
+		Map<Pair<SootMethod, Abstraction>, Set<AbstractionAtSink>> results =
+				new HashMap<Pair<SootMethod, Abstraction>, Set<AbstractionAtSink>>();
+		for (Entry<Pair<SootMethod, Abstraction>, Set<AbstractionAtSink>> entry : resultsByContext.entrySet())
+			results.put(entry.getKey(), new HashSet<AbstractionAtSink>(entry.getValue()));
+		for (Entry<Pair<SootMethod, Abstraction>, MethodSummary> entry : appliedSummaries.entrySet()) {
+			Set<AbstractionAtSink> ctxResults = results.get(entry.getKey());
+			if (ctxResults == null) {
+				ctxResults = new HashSet<AbstractionAtSink>();
+				results.put(entry.getKey(), ctxResults);
+			}
+			ctxResults.addAll(entry.getValue().getResults());
+		}
+		
+		// Get the callers of each context
+		Map<Pair<SootMethod, Abstraction>, Set<Pair<SootMethod, Abstraction>>> callers =
+				new HashMap<Pair<SootMethod, Abstraction>, Set<Pair<SootMethod, Abstraction>>>();
+		for (Entry<Pair<SootMethod, Abstraction>, Map<Unit, Map<Abstraction, Abstraction>>> entry
+				: incoming.entrySet()) {
+			Set<Pair<SootMethod, Abstraction>> ctxCallers = new HashSet<Pair<SootMethod, Abstraction>>();
+			for (Entry<Unit, Map<Abstraction, Abstraction>> inc : entry.getValue().entrySet())
+				for (Abstraction d1 : inc.getValue().keySet())
+					if (d1 != zeroValue)
+						ctxCallers.add(new Pair<SootMethod, Abstraction>(icfg.getMethodOf(inc.getKey()), d1));
+			callers.put(entry.getKey(), ctxCallers);
+		}
+		
+		// The results of a context also comprise the results of all contexts
+		// transitively reachable from it
+		List<Pair<SootMethod, Abstraction>> workList =
+				new ArrayList<Pair<SootMethod, Abstraction>>(results.keySet());
+		while (!workList.isEmpty()) {
+			Pair<SootMethod, Abstraction> context = workList.remove(workList.size() - 1);
+			Set<Pair<SootMethod, Abstraction>> ctxCallers = callers.get(context);
+			if (ctxCallers == null)
+				continue;
+			Set<AbstractionAtSink> ctxResults = results.get(context);
+			for (Pair<SootMethod, Abstraction> caller : ctxCallers) {
+				Set<AbstractionAtSink> callerResults = results.get(caller);
+				if (callerResults == null) {
+					callerResults = new HashSet<AbstractionAtSink>();
+					results.put(caller, callerResults);
+				}
+				if (callerResults.addAll(ctxResults))
+					workList.add(caller);
+			}
+		}
+		
+		Set<Pair<SootMethod, Abstraction>> contexts =
+				new HashSet<Pair<SootMethod, Abstraction>>(incoming.keySet());
+		contexts.addAll(summarizedContexts);
+		int count = 0;
+		for (Pair<SootMethod, Abstraction> context : contexts) {
+			if (context.getO2() == zeroValue || excludedMethods.contains(context.getO1()))
+				continue;
+			Set<Pair<Unit, Abstraction>> summary = endSummary.get(context);
+			if (summary == null)
+				summary = Collections.emptySet();
+			Set<AbstractionAtSink> ctxResults = results.get(context);
+			if (ctxResults == null)
+				ctxResults = Collections.emptySet();
+			if (summaryCache.putSummary(context.getO1(), context.getO2(), summary, ctxResults))
+				count++;
+		}
+		return count;
+	}
+	
+	/**
+	 * Sets whether this solver shall record the methods into which edges
+	 * have been injected from the outside, e.g. by the alias analysis
+	 * @param recordInjectedMethods True if the methods into which edges have
+	 * been injected shall be recorded, otherwise false
+	 */
+	public void setRecordInjectedMethods(boolean recordInjectedMethods) {
+		this.injectedMethods = recordInjectedMethods
+				? new ConcurrentHashSet<SootMethod>() : null;
+	}
+	
+	/**
+	 * Gets the methods into which edges have been injected from the outside
+	 * @return The methods into which edges have been injected, or an empty
+	 * set if recording has not been enabled
+	 */
+	public Set<SootMethod> getInjectedMethods() {
+		if (injectedMethods == null)
+			return Collections.emptySet();
+		return injectedMethods;
+	}
+	
+	/**
+	 * Sets whether facts shall be propagated sparsely. In sparse mode, a
+	 * fact on a local jumps directly to the next statements that read or
+	 * write this local instead of passing through all statements in between.
+	 * Facts whose flow functions may differ from the identity on statements
+	 * that do not reference their base local, e.g. static fields, inactive
+	 * or implicit taints, and thrown exceptions, are always propagated
+	 * densely. Sparse propagation requires that the aliasing strategy does
+	 * not answer may-alias queries between different locals.
+	 * @param sparsePropagation True if facts shall be propagated sparsely,
+	 * otherwise false
+	 */
+	public void setSparsePropagation(boolean sparsePropagation) {
+		this.sparseGraph = sparsePropagation ? new SparseDefUseGraph(icfg) : null;
+	}
+	
+	@Override
+	protected Collection<Unit> getSparseTargets(Unit succ, Abstraction fact) {
+		if (sparseGraph == null)
+			return null;
+		if (!fact.isAbstractionActive()
+				|| fact.isImplicit()
+				|| fact.getExceptionThrown()
+				|| fact.getTopPostdominator() != null)
+			return null;
+		AccessPath ap = fact.getAccessPath();
+		if (ap.isEmpty() || ap.isStaticFieldRef())
+			return null;
+		return sparseGraph.getNextRelevant(succ, ap.getPlainValue(), ap.isInstanceFieldRef());
+	}
+	
+	@Override
+	public long getPropagationCount() {
+		return propagationCount;
+	}
+	
 	@Override
 	public void cleanup() {
 		this.jumpFn.clear();
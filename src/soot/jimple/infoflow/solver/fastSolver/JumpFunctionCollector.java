@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.solver.fastSolver;
+
+import heros.solver.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import soot.jimple.infoflow.util.MyConcurrentHashMap;
+import soot.jimple.infoflow.util.SmallConcurrentSet;
+
+/**
+ * Garbage collector for the jump functions of the solver. It keeps track of
+ * the number of path edges that are pending in every calling context
+ * (i.e., method and fact at the method's start point), and of the callee
+ * contexts every context is waiting for. A context is finished if it has
+ * no pending edges and all the callee contexts it has entered are finished
+ * as well, because only those could still return new facts into it. As soon
+ * as a context is finished, its intraprocedural jump functions are removed
+ * from the {@link ContextJumpFunctions} store. This takes time proportional
+ * to the size of the context only. The self-loops at the start points are
+ * kept, as are the end summaries and incoming edges, so new calls into a
+ * finished context are still answered from the summaries.
+ *
+ * The bookkeeping of a finished context is dropped together with its jump
+ * functions. If an edge is injected into a context after its jump
+ * functions have been removed (e.g. by the alias analysis), the context is
+ * re-explored. This
+ * costs time, but does not affect the results. Contexts that call each
+ * other recursively wait for each other and are never collected.
+ *
+ * @param <N> The type of nodes in the interprocedural control-flow graph
+ * @param <D> The type of data-flow facts
+ * @param <M> The type of objects used to represent methods
+ */
+public class JumpFunctionCollector<N,D,M> {
+
+	private final ContextJumpFunctions<N, D, M> jumpFn;
+
+	private final MyConcurrentHashMap<Pair<M, D>, Context> contexts =
+			new MyConcurrentHashMap<Pair<M, D>, Context>();
+
+	private final AtomicLong removedFunctions = new AtomicLong();
+	private final AtomicLong collectedContexts = new AtomicLong();
+
+	/**
+	 * The value of the pending edge counter of a context that has been
+	 * collected. A collected context never receives new edges, they go to a
+	 * new context for the same method and fact instead.
+	 */
+	private static final int COLLECTED = Integer.MIN_VALUE;
+
+	/**
+	 * The bookkeeping for a single calling context
+	 */
+	private class Context {
+		private final M method;
+		private final D d1;
+		private final AtomicInteger pending = new AtomicInteger();
+
+		/**
+		 * The callee contexts this context is waiting for
+		 */
+		private final Set<Context> openCallees = new SmallConcurrentSet<Context>();
+
+		/**
+		 * The caller contexts that are waiting for this context
+		 */
+		private final Set<Context> callers = new SmallConcurrentSet<Context>();
+
+		public Context(M method, D d1) {
+			this.method = method;
+			this.d1 = d1;
+		}
+
+		/**
+		 * Gets whether this context may still receive new edges
+		 * @return True if this context has pending edges or waits for a
+		 * callee, otherwise false
+		 */
+		public boolean isBusy() {
+			return pending.get() > 0 || !openCallees.isEmpty();
+		}
+
+		/**
+		 * Gets whether this context has been collected
+		 * @return True if this context has been collected, otherwise false
+		 */
+		public boolean isCollected() {
+			return pending.get() == COLLECTED;
+		}
+	}
+
+	/**
+	 * Creates a new collector
+	 * @param jumpFn The jump function store from which to remove the jump
+	 * functions of finished contexts
+	 */
+	public JumpFunctionCollector(ContextJumpFunctions<N, D, M> jumpFn) {
+		this.jumpFn = jumpFn;
+	}
+
+	private Context getContext(M method, D d1) {
+		Pair<M, D> key = new Pair<M, D>(method, d1);
+		Context context = contexts.get(key);
+		if (context == null)
+			context = contexts.putIfAbsentElseGet(key, new Context(method, d1));
+		return context;
+	}
+
+	/**
+	 * Notifies the collector that a new edge has been scheduled in the
+	 * given context
+	 * @param method The method in which the edge has been scheduled
+	 * @param d1 The fact at the start point of the method
+	 */
+	public void edgeScheduled(M method, D d1) {
+		while (true) {
+			Context context = getContext(method, d1);
+			int curPending = context.pending.get();
+			if (curPending == COLLECTED) {
+				// The collector is about to remove this context from the map,
+				// make sure that we get a fresh one on the next attempt
+				contexts.remove(new Pair<M, D>(method, d1), context);
+				continue;
+			}
+			if (context.pending.compareAndSet(curPending, curPending + 1))
+				return;
+		}
+	}
+
+	/**
+	 * Notifies the collector that an edge in the given context has been
+	 * processed. If this was the last pending edge of the context and the
+	 * context does not wait for any callees, its jump functions are removed.
+	 * @param method The method in which the edge has been processed
+	 * @param d1 The fact at the start point of the method
+	 */
+	public void edgeProcessed(M method, D d1) {
+		Context context = getContext(method, d1);
+		if (context.pending.decrementAndGet() == 0 && context.openCallees.isEmpty())
+			collect(context);
+	}
+
+	/**
+	 * Notifies the collector that a calling context has entered a callee.
+	 * The caller must be processing an edge while it calls this method. The
+	 * caller cannot finish before the callee has finished.
+	 * @param callerMethod The calling method
+	 * @param callerD1 The fact at the start point of the calling method
+	 * @param callee The called method
+	 * @param calleeD1 The fact at the start point of the called method
+	 */
+	public void calleeEntered(M callerMethod, D callerD1, M callee, D calleeD1) {
+		Context caller = getContext(callerMethod, callerD1);
+		Context calleeContext = getContext(callee, calleeD1);
+
+		// A context does not need to wait for itself
+		if (caller == calleeContext)
+			return;
+
+		// A callee that has already finished cannot return anything new
+		synchronized (calleeContext) {
+			if (calleeContext.isBusy() && calleeContext.callers.add(caller))
+				caller.openCallees.add(calleeContext);
+		}
+	}
+
+	/**
+	 * Removes the jump functions of the given context if it is finished, and
+	 * then checks whether this also finishes the callers that have been
+	 * waiting for it
+	 * @param context The context that might have finished
+	 */
+	private void collect(Context context) {
+		List<Context> workList = new ArrayList<Context>();
+		workList.add(context);
+		while (!workList.isEmpty()) {
+			Context curContext = workList.remove(workList.size() - 1);
+
+			// The callers must stop waiting for us before a new call can
+			// register them again
+			List<Context> callers;
+			synchronized (curContext) {
+				// A context that receives a new edge at the same time is not
+				// finished yet
+				if (curContext.isBusy() || !curContext.pending.compareAndSet(0, COLLECTED))
+					continue;
+				callers = new ArrayList<Context>(curContext.callers);
+				curContext.callers.clear();
+				for (Context caller : callers)
+					caller.openCallees.remove(curContext);
+			}
+
+			contexts.remove(new Pair<M, D>(curContext.method, curContext.d1), curContext);
+			int removed = jumpFn.removeContext(curContext.method, curContext.d1);
+			if (removed > 0) {
+				removedFunctions.addAndGet(removed);
+				collectedContexts.incrementAndGet();
+			}
+
+			for (Context caller : callers)
+				if (!caller.isBusy())
+					workList.add(caller);
+		}
+	}
+
+	/**
+	 * Gets the number of contexts for which the collector currently keeps
+	 * its bookkeeping, i.e., the contexts that have not been collected yet
+	 * @return The number of contexts that have not been collected yet
+	 */
+	public int getContextCount() {
+		return contexts.size();
+	}
+
+	/**
+	 * Gets the total number of jump functions removed by this collector
+	 * @return The number of jump functions removed by this collector
+	 */
+	public long getRemovedFunctionCount() {
+		return removedFunctions.get();
+	}
+
+	/**
+	 * Gets the number of contexts whose jump functions have been removed.
+	 * A context that is collected, explored again and collected again is
+	 * counted twice.
+	 * @return The number of contexts whose jump functions have been removed
+	 */
+	public long getCollectedContextCount() {
+		return collectedContexts.get();
+	}
+
+}
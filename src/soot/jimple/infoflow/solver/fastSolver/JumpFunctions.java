@@ -13,6 +13,12 @@ package soot.jimple.infoflow.solver.fastSolver;
 import heros.SynchronizedBy;
 import heros.ThreadSafe;
 import heros.solver.PathEdge;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
 import soot.jimple.infoflow.util.MyConcurrentHashMap;
 
 
@@ -28,10 +34,41 @@ public class JumpFunctions<N,D> {
 	//where the list is implemented as a mapping from the source value to the function
 	//we exclude empty default functions
 	@SynchronizedBy("consistent lock on this")
-	protected MyConcurrentHashMap<WeakPathEdge<N, D>,D> nonEmptyReverseLookup =
-			new MyConcurrentHashMap<WeakPathEdge<N,D>, D>();
+	protected Map<WeakPathEdge<N, D>,D> nonEmptyReverseLookup;
+	
+	protected final boolean concurrent;
+	
+	//every thread looks up existing jump functions with its own probe, so
+	//that no path edge needs to be allocated unless the jump function is new
+	private final Queue<PathEdgeProbe<N, D>> probes = new ConcurrentLinkedQueue<PathEdgeProbe<N, D>>();
+	private final ThreadLocal<PathEdgeProbe<N, D>> threadProbe = new ThreadLocal<PathEdgeProbe<N, D>>() {
+		
+		@Override
+		protected PathEdgeProbe<N, D> initialValue() {
+			PathEdgeProbe<N, D> probe = new PathEdgeProbe<N, D>();
+			probes.add(probe);
+			return probe;
+		}
+		
+	};
 	
 	public JumpFunctions() {
+		this(true);
+	}
+	
+	/**
+	 * Creates a new jump function store
+	 * @param concurrent True if the store may be accessed by multiple
+	 * threads at the same time, false if it is only used by a single thread
+	 */
+	public JumpFunctions(boolean concurrent) {
+		this.concurrent = concurrent;
+		this.nonEmptyReverseLookup = createMap();
+	}
+	
+	private Map<WeakPathEdge<N, D>, D> createMap() {
+		return concurrent ? new MyConcurrentHashMap<WeakPathEdge<N, D>, D>()
+				: new HashMap<WeakPathEdge<N, D>, D>();
 	}
 
 	/**
@@ -39,14 +76,81 @@ public class JumpFunctions<N,D> {
 	 * @see PathEdge
 	 */
 	public D addFunction(WeakPathEdge<N, D> edge) {
-		return nonEmptyReverseLookup.putIfAbsent(edge, edge.factAtTarget());
+		if (concurrent)
+			return ((MyConcurrentHashMap<WeakPathEdge<N, D>, D>) nonEmptyReverseLookup)
+					.putIfAbsent(edge, edge.factAtTarget());
+		D oldVal = nonEmptyReverseLookup.get(edge);
+		if (oldVal == null)
+			nonEmptyReverseLookup.put(edge, edge.factAtTarget());
+		return oldVal;
+	}
+	
+	/**
+	 * Records a jump function from the given source value to the given target
+	 * statement and value
+	 * @param sourceVal The fact at the start point of the method
+	 * @param target The target statement
+	 * @param targetVal The fact at the target statement
+	 * @return The fact that was previously recorded for an equal jump
+	 * function, or null if the jump function is new
+	 */
+	public D addFunction(D sourceVal, N target, D targetVal) {
+		// Most jump functions already exist. We only need to allocate a path
+		// edge if the lookup does not find one.
+		Map<?, D> functions = getFunctions(sourceVal, target);
+		if (functions != null) {
+			D oldVal = threadProbe.get().get(functions, sourceVal, target, targetVal);
+			if (oldVal != null)
+				return oldVal;
+		}
+		return addFunction(new WeakPathEdge<N, D>(sourceVal, target, targetVal));
+	}
+	
+	/**
+	 * Gets the map in which the jump function from the given source value to
+	 * the given target statement is stored. Subclasses that keep their jump
+	 * functions elsewhere must override this method.
+	 * @param sourceVal The fact at the start point of the method
+	 * @param target The target statement
+	 * @return The map in which the jump function is stored, or null if no
+	 * map holds jump functions for the given source value and target
+	 * statement yet
+	 */
+	protected Map<?, D> getFunctions(D sourceVal, N target) {
+		return nonEmptyReverseLookup;
+	}
+	
+	/**
+	 * Gets the number of times an existing jump function was looked up
+	 * without allocating a path edge. The number is only exact once no
+	 * thread is adding jump functions anymore.
+	 * @return The number of lookups that found an existing jump function
+	 */
+	public long getProbeHitCount() {
+		long hits = 0;
+		for (PathEdgeProbe<N, D> probe : probes)
+			hits += probe.hitCount;
+		return hits;
+	}
+	
+	/**
+	 * Gets the number of times a jump function was looked up before it was
+	 * added. The number is only exact once no thread is adding jump
+	 * functions anymore.
+	 * @return The number of lookups of jump functions
+	 */
+	public long getProbeCount() {
+		long lookups = 0;
+		for (PathEdgeProbe<N, D> probe : probes)
+			lookups += probe.lookupCount;
+		return lookups;
 	}
 	
 	/**
 	 * Removes all jump functions
 	 */
 	public synchronized void clear() {
-		this.nonEmptyReverseLookup = new MyConcurrentHashMap<WeakPathEdge<N,D>, D>();
+		this.nonEmptyReverseLookup = createMap();
 	}
 
 }
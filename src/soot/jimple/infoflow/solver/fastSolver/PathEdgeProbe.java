@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.solver.fastSolver;
+
+import java.util.Map;
+
+/**
+ * Reusable lookup key for the maps of jump functions. It is equal to every
+ * {@link WeakPathEdge} that connects the same facts and target statement,
+ * so an existing jump function can be found without allocating a new path
+ * edge and its weak references. A probe belongs to a single thread and is
+ * never stored in a map. It only holds on to the facts while a lookup is
+ * running.
+ *
+ * @param <N> The type of nodes in the interprocedural control-flow graph
+ * @param <D> The type of data-flow facts
+ */
+class PathEdgeProbe<N,D> {
+
+	private D dSource;
+	private N target;
+	private D dTarget;
+	private int hashCode;
+
+	/**
+	 * The number of lookups done with this probe
+	 */
+	long lookupCount = 0;
+	/**
+	 * The number of lookups that found an existing jump function
+	 */
+	long hitCount = 0;
+
+	/**
+	 * Looks up the jump function with the given facts and target statement
+	 * @param functions The map of jump functions in which to look
+	 * @param dSource The fact at the source.
+	 * @param target The target statement.
+	 * @param dTarget The fact at the target.
+	 * @return The fact recorded for the jump function, or null if there is
+	 * no such jump function in the given map
+	 */
+	D get(Map<?, D> functions, D dSource, N target, D dTarget) {
+		this.dSource = dSource;
+		this.target = target;
+		this.dTarget = dTarget;
+		this.hashCode = WeakPathEdge.computeHashCode(dSource, target, dTarget);
+		try {
+			D oldVal = functions.get(this);
+			lookupCount++;
+			if (oldVal != null)
+				hitCount++;
+			return oldVal;
+		}
+		finally {
+			// Do not keep the facts alive
+			this.dSource = null;
+			this.target = null;
+			this.dTarget = null;
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof WeakPathEdge))
+			return false;
+		return ((WeakPathEdge<?, ?>) obj).matches(dSource, target, dTarget);
+	}
+
+}
@@ -0,0 +1,147 @@
+package soot.jimple.infoflow.solver.fastSolver;
+
+import heros.solver.IDESolver;
+import heros.solver.Pair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import soot.Local;
+import soot.SootMethod;
+import soot.Unit;
+import soot.ValueBox;
+import soot.jimple.DefinitionStmt;
+import soot.jimple.InstanceFieldRef;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.util.MyConcurrentHashMap;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Def-use view of the control flow graph for sparse propagation. For a fact
+ * on a local, only the statements that read or write this local change the
+ * fact. All statements in between can be skipped. Calls and exit statements
+ * are always relevant, since the solver handles them separately. For facts
+ * with fields, all writes to instance fields are relevant as well, because
+ * they can kill the fact through a must-alias of its base.
+ */
+public class SparseDefUseGraph {
+
+	/**
+	 * The locals read or written by the statements of a method
+	 */
+	private static class MethodInfo {
+		private final Map<Unit, Set<Local>> unitLocals = new HashMap<Unit, Set<Local>>();
+		private final Set<Unit> barriers = new HashSet<Unit>();
+		private final Set<Unit> fieldWrites = new HashSet<Unit>();
+	}
+
+	private final BiDiInterproceduralCFG<Unit, SootMethod> icfg;
+
+	private final LoadingCache<SootMethod, MethodInfo> methodToInfo =
+			IDESolver.DEFAULT_CACHE_BUILDER.build(new CacheLoader<SootMethod, MethodInfo>() {
+				@Override
+				public MethodInfo load(SootMethod method) throws Exception {
+					return computeMethodInfo(method);
+				}
+			});
+
+	private final MyConcurrentHashMap<Pair<Unit, Local>, Collection<Unit>> localTargets =
+			new MyConcurrentHashMap<Pair<Unit, Local>, Collection<Unit>>();
+	private final MyConcurrentHashMap<Pair<Unit, Local>, Collection<Unit>> fieldTargets =
+			new MyConcurrentHashMap<Pair<Unit, Local>, Collection<Unit>>();
+
+	/**
+	 * Creates a new instance of the {@link SparseDefUseGraph} class
+	 * @param icfg The interprocedural control flow graph
+	 */
+	public SparseDefUseGraph(BiDiInterproceduralCFG<Unit, SootMethod> icfg) {
+		this.icfg = icfg;
+	}
+
+	private MethodInfo computeMethodInfo(SootMethod method) {
+		MethodInfo info = new MethodInfo();
+		for (Unit u : method.getActiveBody().getUnits()) {
+			Set<Local> locals = new HashSet<Local>();
+			for (ValueBox box : u.getUseAndDefBoxes())
+				if (box.getValue() instanceof Local)
+					locals.add((Local) box.getValue());
+			info.unitLocals.put(u, locals);
+
+			if (((Stmt) u).containsInvokeExpr()
+					|| icfg.isExitStmt(u)
+					|| icfg.getSuccsOf(u).isEmpty())
+				info.barriers.add(u);
+			if (u instanceof DefinitionStmt
+					&& ((DefinitionStmt) u).getLeftOp() instanceof InstanceFieldRef)
+				info.fieldWrites.add(u);
+		}
+		return info;
+	}
+
+	/**
+	 * Gets the next statements at which a fact on the given local must be
+	 * processed, starting at the given statement
+	 * @param u The statement at which the fact arrives
+	 * @param base The base local of the fact
+	 * @param hasFields True if the fact's access path has fields, otherwise
+	 * false
+	 * @return The first statements on every path starting at the given one
+	 * that are relevant for the fact. If the given statement is relevant
+	 * itself, this is only the given statement.
+	 */
+	public Collection<Unit> getNextRelevant(Unit u, Local base, boolean hasFields) {
+		MethodInfo info = methodToInfo.getUnchecked(icfg.getMethodOf(u));
+		if (isRelevant(info, u, base, hasFields))
+			return Collections.singleton(u);
+
+		MyConcurrentHashMap<Pair<Unit, Local>, Collection<Unit>> targets =
+				hasFields ? fieldTargets : localTargets;
+		Pair<Unit, Local> key = new Pair<Unit, Local>(u, base);
+		Collection<Unit> res = targets.get(key);
+		if (res == null) {
+			res = computeNextRelevant(info, u, base, hasFields);
+			Collection<Unit> oldRes = targets.putIfAbsent(key, res);
+			if (oldRes != null)
+				res = oldRes;
+		}
+		return res;
+	}
+
+	private Collection<Unit> computeNextRelevant(MethodInfo info, Unit u, Local base,
+			boolean hasFields) {
+		Set<Unit> res = new LinkedHashSet<Unit>();
+		Set<Unit> visited = new HashSet<Unit>();
+		List<Unit> workList = new ArrayList<Unit>();
+		visited.add(u);
+		workList.add(u);
+		while (!workList.isEmpty()) {
+			Unit cur = workList.remove(workList.size() - 1);
+			for (Unit succ : icfg.getSuccsOf(cur)) {
+				if (!visited.add(succ))
+					continue;
+				if (isRelevant(info, succ, base, hasFields))
+					res.add(succ);
+				else
+					workList.add(succ);
+			}
+		}
+		return res;
+	}
+
+	private boolean isRelevant(MethodInfo info, Unit u, Local base, boolean hasFields) {
+		return info.barriers.contains(u)
+				|| info.unitLocals.get(u).contains(base)
+				|| (hasFields && info.fieldWrites.contains(u));
+	}
+
+}
@@ -43,13 +43,24 @@ public class WeakPathEdge<N,D> {
 		this.target = target == null ? null : new WeakReference<N>(target);
 		this.dSource = dSource == null ? null : new WeakReference<D>(dSource);
 		this.dTarget = dTarget == null ? null : new WeakReference<D>(dTarget);
-		
+		this.hashCode = computeHashCode(dSource, target, dTarget);
+	}
+	
+	/**
+	 * Computes the hash code of the path edge with the given facts and target
+	 * statement
+	 * @param dSource The fact at the source.
+	 * @param target The target statement.
+	 * @param dTarget The fact at the target.
+	 * @return The hash code of the path edge
+	 */
+	static int computeHashCode(Object dSource, Object target, Object dTarget) {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + ((dSource == null) ? 0 : dSource.hashCode());
 		result = prime * result + ((dTarget == null) ? 0 : dTarget.hashCode());
 		result = prime * result + ((target == null) ? 0 : target.hashCode());
-		this.hashCode = result;
+		return result;
 	}
 	
 	public N getTarget() {
@@ -73,12 +84,37 @@ public class WeakPathEdge<N,D> {
 		return hashCode;
 	}
 
+	/**
+	 * Checks whether this path edge connects the given facts and target
+	 * statement. Edges whose references have already been cleared never
+	 * match.
+	 * @param dSource The fact at the source.
+	 * @param target The target statement.
+	 * @param dTarget The fact at the target.
+	 * @return True if this path edge connects the given facts and target
+	 * statement, otherwise false
+	 */
+	boolean matches(Object dSource, Object target, Object dTarget) {
+		return refEquals(this.dSource, dSource)
+				&& refEquals(this.dTarget, dTarget)
+				&& refEquals(this.target, target);
+	}
+	
+	private static boolean refEquals(WeakReference<?> ref, Object obj) {
+		if (ref == null)
+			return obj == null;
+		Object refObj = ref.get();
+		return refObj != null && refObj.equals(obj);
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
 			return true;
 		if (obj == null)
 			return false;
+		if (obj instanceof PathEdgeProbe)
+			return obj.equals(this);
 		if (getClass() != obj.getClass())
 			return false;
 		@SuppressWarnings("rawtypes")
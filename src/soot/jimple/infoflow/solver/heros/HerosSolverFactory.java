@@ -0,0 +1,24 @@
+package soot.jimple.infoflow.solver.heros;
+
+import heros.solver.CountingThreadPoolExecutor;
+import soot.jimple.infoflow.problems.AbstractInfoflowProblem;
+import soot.jimple.infoflow.solver.IInfoflowSolver;
+import soot.jimple.infoflow.solver.IInfoflowSolverFactory;
+import soot.jimple.infoflow.solver.executors.IInfoflowExecutor;
+
+/**
+ * Factory for the path-tracking solver from Heros. This solver runs on a
+ * plain thread pool and thus requires the shared-queue scheduling strategy.
+ */
+public class HerosSolverFactory implements IInfoflowSolverFactory {
+
+	@Override
+	public IInfoflowSolver createSolver(AbstractInfoflowProblem problem,
+			IInfoflowExecutor executor) {
+		if (!(executor instanceof CountingThreadPoolExecutor))
+			throw new RuntimeException("The Heros solver requires the shared-queue "
+					+ "scheduling strategy");
+		return new InfoflowSolver(problem, (CountingThreadPoolExecutor) executor);
+	}
+
+}
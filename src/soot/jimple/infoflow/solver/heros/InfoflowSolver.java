@@ -39,6 +39,9 @@ import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
 public class InfoflowSolver extends PathTrackingIFDSSolver<Unit, Abstraction, SootMethod, BiDiInterproceduralCFG<Unit, SootMethod>>
 		implements IInfoflowSolver {
 
+	private long maxPropagationCount = 0;
+	private volatile boolean killFlag = false;
+	
 	public InfoflowSolver(AbstractInfoflowProblem problem, CountingThreadPoolExecutor executor) {
 		super(problem);
 		this.executor = executor;
@@ -49,6 +52,17 @@ public class InfoflowSolver extends PathTrackingIFDSSolver<Unit, Abstraction, So
 	protected CountingThreadPoolExecutor getExecutor() {
 		return executor;
 	}
+	
+	@Override
+	protected void scheduleEdgeProcessing(PathEdge<Unit, Abstraction> edge) {
+		if (killFlag)
+			return;
+		if (maxPropagationCount > 0 && propagationCount >= maxPropagationCount) {
+			forceTerminate();
+			return;
+		}
+		super.scheduleEdgeProcessing(edge);
+	}
 
 	public boolean processEdge(PathEdge<Unit, Abstraction> edge){
 		// We are generating a fact out of thin air here. If we have an
@@ -101,7 +115,7 @@ public class InfoflowSolver extends PathTrackingIFDSSolver<Unit, Abstraction, So
 						d1s.addAll(jumpFn.reverseLookup(callSite, d4).keySet());
 					}
 			
-			return ((SolverReturnFlowFunction) retFunction).computeTargets(d2, d1s);
+			return ((SolverReturnFlowFunction) retFunction).computeTargets(d2, null, d1s);
 		}
 		else
 			return retFunction.computeTargets(d2);
@@ -169,4 +183,24 @@ public class InfoflowSolver extends PathTrackingIFDSSolver<Unit, Abstraction, So
 		this.cache.clear();
 	}
 	
+	@Override
+	public long getPropagationCount() {
+		return propagationCount;
+	}
+	
+	@Override
+	public void setMaxPropagationCount(long maxPropagationCount) {
+		this.maxPropagationCount = maxPropagationCount;
+	}
+	
+	@Override
+	public void forceTerminate() {
+		this.killFlag = true;
+	}
+	
+	@Override
+	public boolean isKilled() {
+		return killFlag;
+	}
+	
 }
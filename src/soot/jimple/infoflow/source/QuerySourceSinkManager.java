@@ -0,0 +1,42 @@
+package soot.jimple.infoflow.source;
+
+import heros.InterproceduralCFG;
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.InfoflowQuery;
+
+/**
+ * SourceSinkManager that restricts another SourceSinkManager to the sources
+ * and sinks requested by an {@link InfoflowQuery}
+ */
+public class QuerySourceSinkManager implements ISourceSinkManager {
+
+	private final ISourceSinkManager delegate;
+	private final InfoflowQuery query;
+
+	/**
+	 * Creates a new instance of the {@link QuerySourceSinkManager} class
+	 * @param delegate The SourceSinkManager that decides whether a statement
+	 * is a source or sink at all
+	 * @param query The query that selects the sources and sinks to use
+	 */
+	public QuerySourceSinkManager(ISourceSinkManager delegate, InfoflowQuery query) {
+		this.delegate = delegate;
+		this.query = query;
+	}
+
+	@Override
+	public SourceInfo getSourceInfo(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
+		if (!query.isQueriedSource(sCallSite, cfg))
+			return null;
+		return delegate.getSourceInfo(sCallSite, cfg);
+	}
+
+	@Override
+	public boolean isSink(Stmt sCallSite, InterproceduralCFG<Unit, SootMethod> cfg) {
+		return query.isQueriedSink(sCallSite, cfg)
+				&& delegate.isSink(sCallSite, cfg);
+	}
+
+}
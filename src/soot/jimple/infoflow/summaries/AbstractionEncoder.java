@@ -0,0 +1,196 @@
+package soot.jimple.infoflow.summaries;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import soot.Body;
+import soot.Local;
+import soot.Scene;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AccessPath;
+
+/**
+ * Class for translating abstractions into a symbolic representation that is
+ * independent of the current Soot instance, and back again. Locals are
+ * identified by their names, fields by their signatures, types by their
+ * names, and statements by their index in the method body.
+ * 
+ * Only abstractions without any context beyond their access path can be
+ * encoded, i.e. active, explicit abstractions that are neither thrown as an
+ * exception nor inside a conditional and do not carry a source context.
+ */
+public class AbstractionEncoder {
+	
+	private static final String PART_SEPARATOR = "|";
+	private static final String LIST_SEPARATOR = ";";
+	
+	private final Map<SootMethod, Unit[]> methodUnits =
+			new ConcurrentHashMap<SootMethod, Unit[]>();
+	private final Map<SootMethod, Map<String, Local>> methodLocals =
+			new ConcurrentHashMap<SootMethod, Map<String, Local>>();
+	private final Map<SootMethod, Integer> bodyHashes =
+			new ConcurrentHashMap<SootMethod, Integer>();
+	
+	/**
+	 * Encodes the given abstraction into its symbolic representation
+	 * @param abs The abstraction to encode
+	 * @return The symbolic representation of the given abstraction, or null
+	 * if the abstraction cannot be encoded
+	 */
+	public String encode(Abstraction abs) {
+		if (!abs.isAbstractionActive()
+				|| abs.isImplicit()
+				|| abs.getExceptionThrown()
+				|| abs.getTopPostdominator() != null
+				|| abs.getSourceContext() != null)
+			return null;
+		
+		AccessPath ap = abs.getAccessPath();
+		if (ap.isEmpty())
+			return null;
+		
+		StringBuilder sb = new StringBuilder();
+		if (ap.getPlainValue() != null)
+			sb.append(ap.getPlainValue().getName());
+		sb.append(PART_SEPARATOR);
+		if (ap.getBaseType() != null)
+			sb.append(ap.getBaseType().toString());
+		sb.append(PART_SEPARATOR);
+		if (ap.getFields() != null)
+			for (int i = 0; i < ap.getFields().length; i++) {
+				if (i > 0)
+					sb.append(LIST_SEPARATOR);
+				sb.append(ap.getFields()[i].getSignature());
+			}
+		sb.append(PART_SEPARATOR);
+		if (ap.getFieldTypes() != null)
+			for (int i = 0; i < ap.getFieldTypes().length; i++) {
+				if (i > 0)
+					sb.append(LIST_SEPARATOR);
+				sb.append(ap.getFieldTypes()[i].toString());
+			}
+		sb.append(PART_SEPARATOR);
+		sb.append(ap.getTaintSubFields() ? "1" : "0");
+		return sb.toString();
+	}
+	
+	/**
+	 * Decodes the given symbolic representation into an access path inside
+	 * the given method
+	 * @param shape The symbolic representation of the abstraction
+	 * @param method The method in which the abstraction is valid
+	 * @return The access path described by the given symbolic representation,
+	 * or null if it does not match the current program
+	 */
+	public AccessPath decodeAccessPath(String shape, SootMethod method) {
+		String[] parts = shape.split("\\" + PART_SEPARATOR, -1);
+		if (parts.length != 5)
+			return null;
+		
+		try {
+			Local base = null;
+			if (!parts[0].isEmpty()) {
+				base = getLocals(method).get(parts[0]);
+				if (base == null)
+					return null;
+			}
+			Type baseType = parts[1].isEmpty() ? null : Scene.v().getType(parts[1]);
+			
+			SootField[] fields = null;
+			if (!parts[2].isEmpty()) {
+				String[] fieldSigs = parts[2].split(LIST_SEPARATOR);
+				fields = new SootField[fieldSigs.length];
+				for (int i = 0; i < fieldSigs.length; i++)
+					fields[i] = Scene.v().getField(fieldSigs[i]);
+			}
+			Type[] fieldTypes = null;
+			if (!parts[3].isEmpty()) {
+				String[] typeNames = parts[3].split(LIST_SEPARATOR);
+				fieldTypes = new Type[typeNames.length];
+				for (int i = 0; i < typeNames.length; i++)
+					fieldTypes[i] = Scene.v().getType(typeNames[i]);
+			}
+			if (base == null && fields == null)
+				return null;
+			
+			return new AccessPath(base, fields, baseType, fieldTypes,
+					parts[4].equals("1"), false, false);
+		}
+		catch (RuntimeException ex) {
+			// The field or type does not exist in the current program
+			return null;
+		}
+	}
+	
+	/**
+	 * Gets the index of the given statement in the body of the given method
+	 * @param method The method containing the statement
+	 * @param u The statement
+	 * @return The index of the given statement, or -1 if the statement is
+	 * not part of the given method
+	 */
+	public int getUnitIndex(SootMethod method, Unit u) {
+		Unit[] units = getUnits(method);
+		for (int i = 0; i < units.length; i++)
+			if (units[i] == u)
+				return i;
+		return -1;
+	}
+	
+	/**
+	 * Gets the statement at the given index in the body of the given method
+	 * @param method The method containing the statement
+	 * @param idx The index of the statement
+	 * @return The statement at the given index, or null if the index is
+	 * invalid
+	 */
+	public Unit getUnitAt(SootMethod method, int idx) {
+		Unit[] units = getUnits(method);
+		return idx >= 0 && idx < units.length ? units[idx] : null;
+	}
+	
+	/**
+	 * Computes a hash code over the statements in the body of the given
+	 * method. If the body changes, the hash code changes as well.
+	 * @param method The method for which to compute the body hash
+	 * @return The hash code of the given method's body
+	 */
+	public int getBodyHash(SootMethod method) {
+		Integer hash = bodyHashes.get(method);
+		if (hash == null) {
+			int result = method.getSignature().hashCode();
+			for (Unit u : getUnits(method))
+				result = 31 * result + u.toString().hashCode();
+			hash = result;
+			bodyHashes.put(method, hash);
+		}
+		return hash;
+	}
+	
+	private Unit[] getUnits(SootMethod method) {
+		Unit[] units = methodUnits.get(method);
+		if (units == null) {
+			Body body = method.getActiveBody();
+			units = body.getUnits().toArray(new Unit[body.getUnits().size()]);
+			methodUnits.put(method, units);
+		}
+		return units;
+	}
+	
+	private Map<String, Local> getLocals(SootMethod method) {
+		Map<String, Local> locals = methodLocals.get(method);
+		if (locals == null) {
+			locals = new HashMap<String, Local>();
+			for (Local l : method.getActiveBody().getLocals())
+				locals.put(l.getName(), l);
+			methodLocals.put(method, locals);
+		}
+		return locals;
+	}
+	
+}
@@ -0,0 +1,163 @@
+package soot.jimple.infoflow.summaries;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+/**
+ * Orders methods bottom-up along the callgraph. The methods are grouped into
+ * the strongly connected components of the callgraph, and every component is
+ * assigned to a level such that all components it calls are on lower levels.
+ * The components on the same level do not depend on each other and can thus
+ * be processed in parallel once all lower levels are done.
+ */
+public class BottomUpSchedule {
+
+	/**
+	 * Frame of the depth-first search in Tarjan's algorithm. We keep our own
+	 * stack instead of using recursion, because call chains can be deeper
+	 * than the Java stack permits.
+	 */
+	private static class Frame {
+		private final SootMethod method;
+		private final Iterator<SootMethod> callees;
+
+		public Frame(SootMethod method, Iterator<SootMethod> callees) {
+			this.method = method;
+			this.callees = callees;
+		}
+	}
+
+	private final Set<SootMethod> methods;
+	private final BiDiInterproceduralCFG<Unit, SootMethod> icfg;
+
+	private final Map<SootMethod, Integer> index = new HashMap<SootMethod, Integer>();
+	private final Map<SootMethod, Integer> lowLink = new HashMap<SootMethod, Integer>();
+	private final List<SootMethod> sccStack = new ArrayList<SootMethod>();
+	private final Set<SootMethod> onStack = new HashSet<SootMethod>();
+	private final Map<SootMethod, Integer> methodToLevel = new HashMap<SootMethod, Integer>();
+	private final List<List<SootMethod>> levels = new ArrayList<List<SootMethod>>();
+	private int sccCount = 0;
+
+	/**
+	 * Computes the bottom-up schedule for the given methods
+	 * @param methods The methods to schedule. Calls to other methods are
+	 * ignored.
+	 * @param icfg The interprocedural control flow graph
+	 */
+	public BottomUpSchedule(Collection<SootMethod> methods,
+			BiDiInterproceduralCFG<Unit, SootMethod> icfg) {
+		this.methods = new LinkedHashSet<SootMethod>(methods);
+		this.icfg = icfg;
+		for (SootMethod sm : this.methods)
+			if (!index.containsKey(sm))
+				computeComponents(sm);
+	}
+
+	/**
+	 * Gets the scheduled methods grouped by level. The first level contains
+	 * the methods that do not call any other scheduled methods outside their
+	 * own strongly connected component.
+	 * @return The scheduled methods grouped by level
+	 */
+	public List<List<SootMethod>> getLevels() {
+		return levels;
+	}
+
+	/**
+	 * Gets the number of strongly connected components in the callgraph
+	 * @return The number of strongly connected components
+	 */
+	public int getComponentCount() {
+		return sccCount;
+	}
+
+	/**
+	 * Runs Tarjan's algorithm starting at the given method. Tarjan's
+	 * algorithm emits every component after all components reachable from
+	 * it, so the levels of the callees are always known when a component is
+	 * completed.
+	 * @param root The method at which to start the depth-first search
+	 */
+	private void computeComponents(SootMethod root) {
+		List<Frame> dfsStack = new ArrayList<Frame>();
+		visit(root, dfsStack);
+		while (!dfsStack.isEmpty()) {
+			Frame frame = dfsStack.get(dfsStack.size() - 1);
+			if (frame.callees.hasNext()) {
+				SootMethod callee = frame.callees.next();
+				if (!index.containsKey(callee))
+					visit(callee, dfsStack);
+				else if (onStack.contains(callee))
+					lowLink.put(frame.method, Math.min(lowLink.get(frame.method), index.get(callee)));
+				continue;
+			}
+
+			dfsStack.remove(dfsStack.size() - 1);
+			if (!dfsStack.isEmpty()) {
+				SootMethod caller = dfsStack.get(dfsStack.size() - 1).method;
+				lowLink.put(caller, Math.min(lowLink.get(caller), lowLink.get(frame.method)));
+			}
+			if (lowLink.get(frame.method).equals(index.get(frame.method)))
+				completeComponent(frame.method);
+		}
+	}
+
+	private void visit(SootMethod sm, List<Frame> dfsStack) {
+		index.put(sm, index.size());
+		lowLink.put(sm, index.get(sm));
+		sccStack.add(sm);
+		onStack.add(sm);
+		dfsStack.add(new Frame(sm, getCallees(sm).iterator()));
+	}
+
+	/**
+	 * Pops the component with the given root off the stack and assigns it
+	 * to the level above its highest callee
+	 * @param root The root method of the component
+	 */
+	private void completeComponent(SootMethod root) {
+		List<SootMethod> component = new ArrayList<SootMethod>();
+		SootMethod sm;
+		do {
+			sm = sccStack.remove(sccStack.size() - 1);
+			onStack.remove(sm);
+			component.add(sm);
+		} while (sm != root);
+		sccCount++;
+
+		int level = 0;
+		for (SootMethod member : component)
+			for (SootMethod callee : getCallees(member)) {
+				Integer calleeLevel = methodToLevel.get(callee);
+				if (calleeLevel != null)
+					level = Math.max(level, calleeLevel + 1);
+			}
+		for (SootMethod member : component)
+			methodToLevel.put(member, level);
+
+		while (levels.size() <= level)
+			levels.add(new ArrayList<SootMethod>());
+		levels.get(level).addAll(component);
+	}
+
+	private Collection<SootMethod> getCallees(SootMethod sm) {
+		Set<SootMethod> callees = new LinkedHashSet<SootMethod>();
+		for (Unit callSite : icfg.getCallsFromWithin(sm))
+			for (SootMethod callee : icfg.getCalleesOfCallAt(callSite))
+				if (methods.contains(callee))
+					callees.add(callee);
+		return callees;
+	}
+
+}
@@ -0,0 +1,205 @@
+package soot.jimple.infoflow.summaries;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import soot.SootMethod;
+import soot.Unit;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.source.ISourceSinkManager;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+/**
+ * Class for computing hash codes over the code reachable from a method. The
+ * closure hash of a method covers the method's own body, the sources and
+ * sinks in it, and the closure hashes of all of its callees. If any method
+ * changes, the closure hashes of this method and of all of its transitive
+ * callers change as well.
+ *
+ * Recursive methods are handled by hashing the strongly connected
+ * components of the callgraph as a whole.
+ */
+public class MethodClosureHasher {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final BiDiInterproceduralCFG<Unit, SootMethod> icfg;
+	private final ISourceSinkManager sourceSinkManager;
+	private final Map<SootMethod, Long> closureHashes =
+			new ConcurrentHashMap<SootMethod, Long>();
+
+	/**
+	 * Creates a new instance of the {@link MethodClosureHasher} class
+	 * @param icfg The interprocedural control flow graph from which to take
+	 * the callees of each method
+	 * @param sourceSinkManager The source and sink manager that defines the
+	 * sources and sinks in the method bodies, or null if sources and sinks
+	 * shall not be considered
+	 */
+	public MethodClosureHasher(BiDiInterproceduralCFG<Unit, SootMethod> icfg,
+			ISourceSinkManager sourceSinkManager) {
+		this.icfg = icfg;
+		this.sourceSinkManager = sourceSinkManager;
+	}
+
+	/**
+	 * Gets the closure hash of the given method
+	 * @param method The method for which to get the closure hash
+	 * @return The hash over the given method and all methods transitively
+	 * reachable from it
+	 */
+	public long getClosureHash(SootMethod method) {
+		Long hash = closureHashes.get(method);
+		if (hash == null) {
+			computeClosureHashes(method);
+			hash = closureHashes.get(method);
+		}
+		return hash;
+	}
+
+	/**
+	 * Computes the closure hashes for the given method and all methods
+	 * reachable from it using an iterative version of Tarjan's algorithm for
+	 * strongly connected components
+	 * @param root The method at which to start
+	 */
+	private synchronized void computeClosureHashes(SootMethod root) {
+		if (closureHashes.containsKey(root))
+			return;
+
+		Map<SootMethod, Integer> index = new HashMap<SootMethod, Integer>();
+		Map<SootMethod, Integer> lowLink = new HashMap<SootMethod, Integer>();
+		Map<SootMethod, Set<SootMethod>> callees = new HashMap<SootMethod, Set<SootMethod>>();
+		Deque<SootMethod> stack = new ArrayDeque<SootMethod>();
+		Set<SootMethod> onStack = new HashSet<SootMethod>();
+		Deque<SootMethod> callStack = new ArrayDeque<SootMethod>();
+		Deque<Iterator<SootMethod>> iteratorStack = new ArrayDeque<Iterator<SootMethod>>();
+
+		index.put(root, 0);
+		lowLink.put(root, 0);
+		stack.push(root);
+		onStack.add(root);
+		callStack.push(root);
+		iteratorStack.push(getCallees(root, callees).iterator());
+
+		while (!callStack.isEmpty()) {
+			SootMethod sm = callStack.peek();
+			Iterator<SootMethod> it = iteratorStack.peek();
+			if (it.hasNext()) {
+				SootMethod callee = it.next();
+				if (closureHashes.containsKey(callee))
+					continue;
+				if (!index.containsKey(callee)) {
+					index.put(callee, index.size());
+					lowLink.put(callee, index.get(callee));
+					stack.push(callee);
+					onStack.add(callee);
+					callStack.push(callee);
+					iteratorStack.push(getCallees(callee, callees).iterator());
+				}
+				else if (onStack.contains(callee))
+					lowLink.put(sm, Math.min(lowLink.get(sm), index.get(callee)));
+				continue;
+			}
+
+			callStack.pop();
+			iteratorStack.pop();
+			if (!callStack.isEmpty()) {
+				SootMethod caller = callStack.peek();
+				lowLink.put(caller, Math.min(lowLink.get(caller), lowLink.get(sm)));
+			}
+
+			// If this method is the root of a component, all callees outside
+			// the component have already been hashed
+			if (lowLink.get(sm).equals(index.get(sm))) {
+				Set<SootMethod> component = new HashSet<SootMethod>();
+				SootMethod member;
+				do {
+					member = stack.pop();
+					onStack.remove(member);
+					component.add(member);
+				} while (member != sm);
+
+				List<Long> ownHashes = new ArrayList<Long>(component.size());
+				Set<Long> calleeHashes = new HashSet<Long>();
+				for (SootMethod m : component) {
+					ownHashes.add(getBodyHash(m));
+					for (SootMethod callee : callees.get(m))
+						if (!component.contains(callee))
+							calleeHashes.add(closureHashes.get(callee));
+				}
+				List<Long> sortedCalleeHashes = new ArrayList<Long>(calleeHashes);
+				Collections.sort(ownHashes);
+				Collections.sort(sortedCalleeHashes);
+
+				long hash = FNV_OFFSET;
+				for (long h : ownHashes)
+					hash = (hash ^ h) * FNV_PRIME;
+				for (long h : sortedCalleeHashes)
+					hash = (hash ^ h) * FNV_PRIME;
+				for (SootMethod m : component)
+					closureHashes.put(m, hash);
+			}
+		}
+	}
+
+	/**
+	 * Gets the callees of the given method
+	 * @param method The method for which to get the callees
+	 * @param callees A cache for the callees of the methods visited so far
+	 * @return The callees of the given method
+	 */
+	private Set<SootMethod> getCallees(SootMethod method, Map<SootMethod, Set<SootMethod>> callees) {
+		Set<SootMethod> res = callees.get(method);
+		if (res == null) {
+			res = new HashSet<SootMethod>();
+			if (method.hasActiveBody())
+				for (Unit u : method.getActiveBody().getUnits())
+					if (icfg.isCallStmt(u))
+						res.addAll(icfg.getCalleesOfCallAt(u));
+			callees.put(method, res);
+		}
+		return res;
+	}
+
+	/**
+	 * Computes a hash code over the signature and the statements of the given
+	 * method, including the information which of these statements are
+	 * sources or sinks
+	 * @param method The method for which to compute the hash code
+	 * @return The hash code of the given method
+	 */
+	private long getBodyHash(SootMethod method) {
+		long hash = hashString(FNV_OFFSET, method.getSignature());
+		if (method.hasActiveBody())
+			for (Unit u : method.getActiveBody().getUnits()) {
+				hash = hashString(hash, u.toString());
+				if (sourceSinkManager != null && u instanceof Stmt) {
+					Stmt s = (Stmt) u;
+					if (sourceSinkManager.getSourceInfo(s, icfg) != null)
+						hash = (hash ^ 'S') * FNV_PRIME;
+					if (sourceSinkManager.isSink(s, icfg))
+						hash = (hash ^ 'K') * FNV_PRIME;
+				}
+			}
+		return hash;
+	}
+
+	private static long hashString(long hash, String str) {
+		for (int i = 0; i < str.length(); i++)
+			hash = (hash ^ str.charAt(i)) * FNV_PRIME;
+		// Separate consecutive strings
+		return (hash ^ 0xff) * FNV_PRIME;
+	}
+
+}
@@ -0,0 +1,68 @@
+package soot.jimple.infoflow.summaries;
+
+import heros.solver.Pair;
+
+import java.util.Set;
+
+import soot.Unit;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AbstractionAtSink;
+
+/**
+ * The summary of a method for one incoming abstraction as taken from a
+ * {@link MethodSummaryCache}. It consists of the abstractions at the exit
+ * statements of the method and of the results that are found when exploring
+ * the method and its transitive callees with the incoming abstraction.
+ */
+public class MethodSummary {
+
+	private final Abstraction incomingAbstraction;
+	private final Set<Pair<Unit, Abstraction>> exits;
+	private final Set<AbstractionAtSink> results;
+
+	/**
+	 * Creates a new method summary
+	 * @param incomingAbstraction The abstraction at the start point of the
+	 * method from which the exit abstractions and results are derived
+	 * @param exits The pairs of exit statements and abstractions at these
+	 * exit statements
+	 * @param results The results found in the method and its transitive
+	 * callees
+	 */
+	public MethodSummary(Abstraction incomingAbstraction,
+			Set<Pair<Unit, Abstraction>> exits,
+			Set<AbstractionAtSink> results) {
+		this.incomingAbstraction = incomingAbstraction;
+		this.exits = exits;
+		this.results = results;
+	}
+
+	/**
+	 * Gets the abstraction at the start point of the method from which the
+	 * exit abstractions and results are derived
+	 * @return The incoming abstraction
+	 */
+	public Abstraction getIncomingAbstraction() {
+		return this.incomingAbstraction;
+	}
+
+	/**
+	 * Gets the abstractions at the exit statements of the method
+	 * @return The pairs of exit statements and abstractions at these exit
+	 * statements
+	 */
+	public Set<Pair<Unit, Abstraction>> getExits() {
+		return this.exits;
+	}
+
+	/**
+	 * Gets the results found when exploring the method and its transitive
+	 * callees
+	 * @return The abstractions at the sinks reached from the incoming
+	 * abstraction
+	 */
+	public Set<AbstractionAtSink> getResults() {
+		return this.results;
+	}
+
+}
@@ -0,0 +1,528 @@
+package soot.jimple.infoflow.summaries;
+
+import heros.solver.Pair;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import soot.Scene;
+import soot.SootMethod;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.AssignStmt;
+import soot.jimple.ReturnStmt;
+import soot.jimple.Stmt;
+import soot.jimple.infoflow.data.Abstraction;
+import soot.jimple.infoflow.data.AbstractionAtSink;
+import soot.jimple.infoflow.data.AccessPath;
+import soot.jimple.infoflow.util.MyConcurrentHashMap;
+import soot.jimple.infoflow.util.SystemClassHandler;
+import soot.jimple.toolkits.ide.icfg.BiDiInterproceduralCFG;
+
+/**
+ * Cache for the end summaries of library methods. The summaries are stored
+ * symbolically (see {@link AbstractionEncoder}), keyed by the method
+ * signature, a hash of the method body and the shape of the incoming
+ * abstraction, so that they can be written to disk and reused when analyzing
+ * other applications against the same library.
+ * 
+ * A summary may only replace the exploration of a method if no statement
+ * outside the system packages is reachable from this method, and if the
+ * exploration of the method did not trigger any alias analysis. Methods
+ * violating the first condition in the current program can be excluded
+ * using {@link #setExcludedMethods(Set)}. Summaries violating the second
+ * condition must not be added to the cache.
+ * 
+ * For incremental analyses, a {@link MethodClosureHasher} can be set. The
+ * cache then covers all methods, including the ones in the application, and
+ * keys the summaries by the hash over all code reachable from the method
+ * instead of the method's own body. Next to the exit abstractions, every
+ * summary then also contains the results found in the method and its
+ * transitive callees, so that they can be reported again without exploring
+ * the method.
+ * 
+ * The cache file records the configuration of the data flow analysis with
+ * which the summaries were computed. If the configuration changes, the old
+ * summaries are discarded.
+ */
+public class MethodSummaryCache {
+	
+	private static final Logger logger = LoggerFactory.getLogger(MethodSummaryCache.class);
+	
+	private static final String HEADER = "# FlowDroid method summary cache";
+	private static final String CONFIG_PREFIX = "config\t";
+	private static final String SUMMARY_PREFIX = "summary\t";
+	private static final String EXIT_PREFIX = "\texit\t";
+	private static final String RESULT_PREFIX = "\tresult\t";
+	
+	private static final String SINK_INVOKE = "invoke";
+	private static final String SINK_RETURN = "return";
+	private static final String SINK_ASSIGN = "assign";
+	
+	/**
+	 * A single exit of a method in symbolic form
+	 */
+	private static class CachedExit {
+		private final int unitIndex;
+		private final String shape;
+		
+		public CachedExit(int unitIndex, String shape) {
+			this.unitIndex = unitIndex;
+			this.shape = shape;
+		}
+		
+		@Override
+		public String toString() {
+			return unitIndex + "\t" + shape;
+		}
+	}
+	
+	/**
+	 * A single result (sink reached with the incoming abstraction) in
+	 * symbolic form
+	 */
+	private static class CachedResult {
+		private final String methodSignature;
+		private final int unitIndex;
+		private final String sinkKind;
+		
+		public CachedResult(String methodSignature, int unitIndex, String sinkKind) {
+			this.methodSignature = methodSignature;
+			this.unitIndex = unitIndex;
+			this.sinkKind = sinkKind;
+		}
+		
+		@Override
+		public String toString() {
+			return unitIndex + "\t" + sinkKind + "\t" + methodSignature;
+		}
+	}
+	
+	/**
+	 * The symbolic form of a method summary
+	 */
+	private static class CachedSummary {
+		private final List<CachedExit> exits = new ArrayList<CachedExit>();
+		private final List<CachedResult> results = new ArrayList<CachedResult>();
+	}
+	
+	private final String configuration;
+	private final AbstractionEncoder encoder = new AbstractionEncoder();
+	private final MyConcurrentHashMap<String, CachedSummary> summaries =
+			new MyConcurrentHashMap<String, CachedSummary>();
+	private Set<SootMethod> excludedMethods = Collections.emptySet();
+	private BiDiInterproceduralCFG<Unit, SootMethod> icfg = null;
+	private MethodClosureHasher closureHasher = null;
+	
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+	
+	/**
+	 * Creates a new, empty summary cache
+	 * @param configuration A string describing the configuration of the data
+	 * flow analysis. Summaries are only valid for the configuration with which
+	 * they were computed.
+	 */
+	public MethodSummaryCache(String configuration) {
+		this.configuration = configuration;
+	}
+	
+	/**
+	 * Loads a summary cache from the given file. If the file does not exist
+	 * or was created with a different configuration, an empty cache is
+	 * returned.
+	 * @param file The file from which to load the summaries
+	 * @param configuration A string describing the configuration of the
+	 * current data flow analysis
+	 * @return The summary cache
+	 */
+	public static MethodSummaryCache load(File file, String configuration) {
+		MethodSummaryCache cache = new MethodSummaryCache(configuration);
+		if (!file.exists())
+			return cache;
+		
+		BufferedReader rdr = null;
+		try {
+			rdr = new BufferedReader(new FileReader(file));
+			String line = rdr.readLine();
+			if (!HEADER.equals(line))
+				throw new IOException("Invalid summary cache file header");
+			line = rdr.readLine();
+			if (line == null || !line.equals(CONFIG_PREFIX + configuration)) {
+				logger.info("Summary cache {} was created with a different configuration, "
+						+ "discarding it", file);
+				return cache;
+			}
+			
+			CachedSummary curSummary = null;
+			while ((line = rdr.readLine()) != null) {
+				if (line.startsWith(SUMMARY_PREFIX)) {
+					curSummary = new CachedSummary();
+					cache.summaries.put(line.substring(SUMMARY_PREFIX.length()), curSummary);
+				}
+				else if (line.startsWith(EXIT_PREFIX) && curSummary != null) {
+					String[] parts = line.substring(EXIT_PREFIX.length()).split("\t", 2);
+					if (parts.length != 2)
+						throw new IOException("Invalid exit in summary cache: " + line);
+					curSummary.exits.add(new CachedExit(Integer.parseInt(parts[0]), parts[1]));
+				}
+				else if (line.startsWith(RESULT_PREFIX) && curSummary != null) {
+					String[] parts = line.substring(RESULT_PREFIX.length()).split("\t", 3);
+					if (parts.length != 3)
+						throw new IOException("Invalid result in summary cache: " + line);
+					curSummary.results.add(new CachedResult(parts[2], Integer.parseInt(parts[0]),
+							parts[1]));
+				}
+				else
+					throw new IOException("Invalid line in summary cache: " + line);
+			}
+			logger.info("Loaded {} method summaries from {}", cache.summaries.size(), file);
+		}
+		catch (IOException ex) {
+			logger.error("Could not read summary cache " + file + ", starting with an "
+					+ "empty cache", ex);
+			cache.summaries.clear();
+		}
+		catch (NumberFormatException ex) {
+			logger.error("Corrupt summary cache " + file + ", starting with an "
+					+ "empty cache", ex);
+			cache.summaries.clear();
+		}
+		finally {
+			if (rdr != null)
+				try {
+					rdr.close();
+				}
+				catch (IOException ex) {
+					logger.error("Could not close summary cache file", ex);
+				}
+		}
+		return cache;
+	}
+	
+	/**
+	 * Writes all summaries in this cache to the given file
+	 * @param file The file to which to write the summaries
+	 * @throws IOException Thrown if the file could not be written
+	 */
+	public void save(File file) throws IOException {
+		BufferedWriter wr = new BufferedWriter(new FileWriter(file));
+		try {
+			wr.write(HEADER);
+			wr.newLine();
+			wr.write(CONFIG_PREFIX + configuration);
+			wr.newLine();
+			for (Entry<String, CachedSummary> entry : summaries.entrySet()) {
+				wr.write(SUMMARY_PREFIX + entry.getKey());
+				wr.newLine();
+				for (CachedExit exit : entry.getValue().exits) {
+					wr.write(EXIT_PREFIX + exit);
+					wr.newLine();
+				}
+				for (CachedResult result : entry.getValue().results) {
+					wr.write(RESULT_PREFIX + result);
+					wr.newLine();
+				}
+			}
+		}
+		finally {
+			wr.close();
+		}
+	}
+	
+	/**
+	 * Sets the methods for which no cached summaries shall be used, because
+	 * code outside the system packages is reachable from them
+	 * @param excludedMethods The methods to exclude from caching
+	 */
+	public void setExcludedMethods(Set<SootMethod> excludedMethods) {
+		this.excludedMethods = excludedMethods;
+	}
+	
+	/**
+	 * Gets the methods for which no cached summaries shall be used
+	 * @return The methods excluded from caching
+	 */
+	public Set<SootMethod> getExcludedMethods() {
+		return this.excludedMethods;
+	}
+	
+	/**
+	 * Sets the interprocedural control flow graph of the current program. It
+	 * is required for recording the results found when exploring a method.
+	 * @param icfg The interprocedural control flow graph
+	 */
+	public void setInterproceduralCFG(BiDiInterproceduralCFG<Unit, SootMethod> icfg) {
+		this.icfg = icfg;
+	}
+	
+	/**
+	 * Sets the object for computing the hashes over all code reachable from
+	 * a method. If a hasher is set, summaries are cached for all methods and
+	 * are invalidated whenever a transitive callee changes.
+	 * @param closureHasher The object for computing the closure hashes, or
+	 * null to only cache library methods keyed by their own bodies
+	 */
+	public void setClosureHasher(MethodClosureHasher closureHasher) {
+		this.closureHasher = closureHasher;
+	}
+	
+	/**
+	 * Checks whether summaries for the given method can be taken from or put
+	 * into this cache
+	 * @param method The method to check
+	 * @return True if the given method can be summarized by this cache,
+	 * otherwise false
+	 */
+	public boolean isCacheable(SootMethod method) {
+		return method.hasActiveBody()
+				&& (closureHasher != null
+						|| SystemClassHandler.isClassInSystemPackage(method.getDeclaringClass().getName()))
+				&& !excludedMethods.contains(method);
+	}
+	
+	/**
+	 * Gets the hash code with which the summaries of the given method are
+	 * stored. If the method changes, the hash code changes as well.
+	 * @param method The method for which to get the hash code
+	 * @return The hash code of the given method
+	 */
+	private String getMethodHash(SootMethod method) {
+		if (closureHasher != null)
+			return Long.toHexString(closureHasher.getClosureHash(method));
+		return Integer.toString(encoder.getBodyHash(method));
+	}
+	
+	/**
+	 * Builds the key under which the summary of the given method and
+	 * incoming abstraction is stored
+	 * @return The key, or null if the abstraction cannot be encoded
+	 */
+	private String getKey(SootMethod method, Abstraction d3) {
+		String shape = encoder.encode(d3);
+		if (shape == null)
+			return null;
+		return method.getSignature() + "\t" + getMethodHash(method) + "\t" + shape;
+	}
+	
+	/**
+	 * Gets the cached summary for the given method and incoming abstraction
+	 * @param method The method for which to get the summary
+	 * @param d3 The abstraction at the start point of the method
+	 * @return The summary with the exit abstractions and results derived from
+	 * the given incoming abstraction, or null if there is no (valid) summary
+	 * in this cache
+	 */
+	public MethodSummary getSummary(SootMethod method, Abstraction d3) {
+		if (!isCacheable(method))
+			return null;
+		String key = getKey(method, d3);
+		if (key == null)
+			return null;
+		CachedSummary summary = summaries.get(key);
+		if (summary == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		
+		Set<Pair<Unit, Abstraction>> exits = new HashSet<Pair<Unit, Abstraction>>
+				(summary.exits.size());
+		for (CachedExit exit : summary.exits) {
+			Unit exitStmt = encoder.getUnitAt(method, exit.unitIndex);
+			AccessPath ap = encoder.decodeAccessPath(exit.shape, method);
+			if (exitStmt == null || ap == null) {
+				// The summary does not match the current program
+				misses.incrementAndGet();
+				return null;
+			}
+			exits.add(new Pair<Unit, Abstraction>(exitStmt,
+					d3.deriveNewAbstraction(ap, (Stmt) exitStmt)));
+		}
+		
+		Set<AbstractionAtSink> results;
+		if (summary.results.isEmpty())
+			results = Collections.emptySet();
+		else {
+			results = new HashSet<AbstractionAtSink>(summary.results.size());
+			for (CachedResult result : summary.results) {
+				AbstractionAtSink resultAbs = decodeResult(result, d3);
+				if (resultAbs == null) {
+					misses.incrementAndGet();
+					return null;
+				}
+				results.add(resultAbs);
+			}
+		}
+		hits.incrementAndGet();
+		return new MethodSummary(d3, exits, results);
+	}
+	
+	/**
+	 * Records the summary for the given method and incoming abstraction.
+	 * Existing summaries are not replaced.
+	 * @param method The method for which to record the summary
+	 * @param d3 The abstraction at the start point of the method
+	 * @param exits The pairs of exit statements and abstractions at these
+	 * exit statements
+	 * @param results The results found in the method and its transitive
+	 * callees when starting with the given incoming abstraction
+	 * @return True if the summary has been recorded, false if it could not be
+	 * encoded
+	 */
+	public boolean putSummary(SootMethod method, Abstraction d3,
+			Set<Pair<Unit, Abstraction>> exits, Set<AbstractionAtSink> results) {
+		if (!isCacheable(method))
+			return false;
+		String key = getKey(method, d3);
+		if (key == null)
+			return false;
+		
+		CachedSummary summary = new CachedSummary();
+		for (Pair<Unit, Abstraction> exit : exits) {
+			int idx = encoder.getUnitIndex(method, exit.getO1());
+			String shape = encoder.encode(exit.getO2());
+			if (idx < 0 || shape == null)
+				return false;
+			summary.exits.add(new CachedExit(idx, shape));
+		}
+		
+		// Different abstractions may reach the same sink, but we only need
+		// to record the sink once
+		Set<String> encodedResults = new LinkedHashSet<String>();
+		for (AbstractionAtSink result : results) {
+			CachedResult cachedResult = encodeResult(result);
+			if (cachedResult == null)
+				return false;
+			if (encodedResults.add(cachedResult.toString()))
+				summary.results.add(cachedResult);
+		}
+		summaries.putIfAbsent(key, summary);
+		return true;
+	}
+	
+	/**
+	 * Translates the given result into its symbolic form
+	 * @param result The result to encode
+	 * @return The symbolic form of the given result, or null if the result
+	 * cannot be encoded
+	 */
+	private CachedResult encodeResult(AbstractionAtSink result) {
+		if (icfg == null)
+			return null;
+		Stmt sinkStmt = result.getSinkStmt();
+		SootMethod sinkMethod = icfg.getMethodOf(sinkStmt);
+		if (sinkMethod == null || !sinkMethod.hasActiveBody())
+			return null;
+		int idx = encoder.getUnitIndex(sinkMethod, sinkStmt);
+		if (idx < 0)
+			return null;
+		
+		String sinkKind;
+		if (sinkStmt.containsInvokeExpr() && result.getSinkValue() == sinkStmt.getInvokeExpr())
+			sinkKind = SINK_INVOKE;
+		else if (sinkStmt instanceof ReturnStmt
+				&& result.getSinkValue() == ((ReturnStmt) sinkStmt).getOp())
+			sinkKind = SINK_RETURN;
+		else if (sinkStmt instanceof AssignStmt
+				&& result.getSinkValue() == ((AssignStmt) sinkStmt).getLeftOp())
+			sinkKind = SINK_ASSIGN;
+		else
+			return null;
+		return new CachedResult(sinkMethod.getSignature(), idx, sinkKind);
+	}
+	
+	/**
+	 * Translates the given symbolic result back into an abstraction at a
+	 * sink
+	 * @param result The symbolic result
+	 * @param d3 The incoming abstraction from which the result is derived
+	 * @return The abstraction at the sink, or null if the symbolic result
+	 * does not match the current program
+	 */
+	private AbstractionAtSink decodeResult(CachedResult result, Abstraction d3) {
+		SootMethod sinkMethod = Scene.v().grabMethod(result.methodSignature);
+		if (sinkMethod == null || !sinkMethod.hasActiveBody())
+			return null;
+		Unit u = encoder.getUnitAt(sinkMethod, result.unitIndex);
+		if (!(u instanceof Stmt))
+			return null;
+		
+		Stmt sinkStmt = (Stmt) u;
+		Value sinkValue = null;
+		if (result.sinkKind.equals(SINK_INVOKE) && sinkStmt.containsInvokeExpr())
+			sinkValue = sinkStmt.getInvokeExpr();
+		else if (result.sinkKind.equals(SINK_RETURN) && sinkStmt instanceof ReturnStmt)
+			sinkValue = ((ReturnStmt) sinkStmt).getOp();
+		else if (result.sinkKind.equals(SINK_ASSIGN) && sinkStmt instanceof AssignStmt)
+			sinkValue = ((AssignStmt) sinkStmt).getLeftOp();
+		if (sinkValue == null)
+			return null;
+		return new AbstractionAtSink(d3, sinkValue, sinkStmt);
+	}
+	
+	/**
+	 * Removes all summaries of methods in the current program that have
+	 * changed since the summaries were computed
+	 * @return The number of summaries that have been removed
+	 */
+	public int removeStaleSummaries() {
+		int count = 0;
+		for (Iterator<String> keyIt = summaries.keySet().iterator(); keyIt.hasNext(); ) {
+			String[] parts = keyIt.next().split("\t", 3);
+			if (parts.length != 3)
+				continue;
+			SootMethod method = Scene.v().grabMethod(parts[0]);
+			if (method == null
+					|| !Scene.v().getReachableMethods().contains(method)
+					|| !isCacheable(method))
+				continue;
+			if (!getMethodHash(method).equals(parts[1])) {
+				keyIt.remove();
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Gets the number of summaries in this cache
+	 * @return The number of summaries in this cache
+	 */
+	public int size() {
+		return summaries.size();
+	}
+	
+	/**
+	 * Gets the number of times a summary was taken from this cache
+	 * @return The number of cache hits
+	 */
+	public int getHits() {
+		return hits.get();
+	}
+	
+	/**
+	 * Gets the number of times a summary was requested, but not found in this
+	 * cache
+	 * @return The number of cache misses
+	 */
+	public int getMisses() {
+		return misses.get();
+	}
+	
+}
@@ -0,0 +1,309 @@
+package soot.jimple.infoflow.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Thread-safe map for the many small maps inside the solver. Most of these
+ * maps only ever hold one or two entries, so a full concurrent hash map with
+ * its segments and tables wastes a lot of memory. This map keeps up to
+ * {@link #INLINE_CAPACITY} entries in an immutable array of alternating keys
+ * and values that is replaced with compare-and-swap on every modification.
+ * Once the map grows beyond that, it is inflated into a
+ * {@link MyConcurrentHashMap} and never deflated again.
+ *
+ * Iterators are weakly consistent, i.e., they may or may not reflect the
+ * modifications made after they were created. The entries returned by the
+ * iterators of a map that has not been inflated yet do not support
+ * setValue().
+ */
+public class SmallConcurrentMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	/**
+	 * The maximum number of entries stored without hashing
+	 */
+	public static final int INLINE_CAPACITY = 4;
+
+	private static final Object[] EMPTY = new Object[0];
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<SmallConcurrentMap, Object> STATE_UPDATER =
+			AtomicReferenceFieldUpdater.newUpdater(SmallConcurrentMap.class, Object.class, "state");
+
+	/**
+	 * Either an immutable array of alternating keys and values, or the map
+	 * into which this map has been inflated
+	 */
+	private volatile Object state = EMPTY;
+
+	private Set<Entry<K, V>> entrySet = null;
+
+	private static int indexOf(Object[] entries, Object key) {
+		for (int i = 0; i < entries.length; i += 2)
+			if (entries[i].equals(key))
+				return i;
+		return -1;
+	}
+
+	@Override
+	public V get(Object key) {
+		Object curState = state;
+		if (!(curState instanceof Object[]))
+			return asMap(curState).get(key);
+		Object[] entries = (Object[]) curState;
+		int idx = indexOf(entries, key);
+		return idx < 0 ? null : this.<V>cast(entries[idx + 1]);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		Object curState = state;
+		if (!(curState instanceof Object[]))
+			return asMap(curState).containsKey(key);
+		return indexOf((Object[]) curState, key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		Object curState = state;
+		if (!(curState instanceof Object[]))
+			return asMap(curState).size();
+		return ((Object[]) curState).length / 2;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		return doPut(key, value, false);
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value) {
+		return doPut(key, value, true);
+	}
+
+	/**
+	 * Puts the new key/value-pair if no mapping for the given key was in the
+	 * map before, otherwise returns the existing mapping
+	 * @param key The key to check and put if it is not already in the map
+	 * @param value The value to put
+	 * @return The old value if one was present in the map for the given key,
+	 * otherwise, the newly registered value
+	 */
+	public V putIfAbsentElseGet(K key, V value) {
+		V oldVal = putIfAbsent(key, value);
+		return oldVal == null ? value : oldVal;
+	}
+
+	private V doPut(K key, V value, boolean onlyIfAbsent) {
+		assert key != null;
+		assert value != null;
+		while (true) {
+			Object curState = state;
+			if (!(curState instanceof Object[]))
+				return onlyIfAbsent ? asMap(curState).putIfAbsent(key, value)
+						: asMap(curState).put(key, value);
+
+			Object[] entries = (Object[]) curState;
+			int idx = indexOf(entries, key);
+			V oldValue = idx < 0 ? null : this.<V>cast(entries[idx + 1]);
+			if (idx >= 0 && onlyIfAbsent)
+				return oldValue;
+
+			Object newState;
+			if (idx >= 0) {
+				Object[] newEntries = entries.clone();
+				newEntries[idx + 1] = value;
+				newState = newEntries;
+			}
+			else if (entries.length < 2 * INLINE_CAPACITY) {
+				Object[] newEntries = new Object[entries.length + 2];
+				System.arraycopy(entries, 0, newEntries, 0, entries.length);
+				newEntries[entries.length] = key;
+				newEntries[entries.length + 1] = value;
+				newState = newEntries;
+			}
+			else {
+				MyConcurrentHashMap<K, V> inflated = new MyConcurrentHashMap<K, V>();
+				for (int i = 0; i < entries.length; i += 2)
+					inflated.put(this.<K>cast(entries[i]), this.<V>cast(entries[i + 1]));
+				inflated.put(key, value);
+				newState = inflated;
+			}
+			if (STATE_UPDATER.compareAndSet(this, curState, newState))
+				return oldValue;
+		}
+	}
+
+	@Override
+	public V remove(Object key) {
+		while (true) {
+			Object curState = state;
+			if (!(curState instanceof Object[]))
+				return asMap(curState).remove(key);
+
+			Object[] entries = (Object[]) curState;
+			int idx = indexOf(entries, key);
+			if (idx < 0)
+				return null;
+			if (STATE_UPDATER.compareAndSet(this, curState, removeAt(entries, idx)))
+				return cast(entries[idx + 1]);
+		}
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		while (true) {
+			Object curState = state;
+			if (!(curState instanceof Object[]))
+				return asMap(curState).remove(key, value);
+
+			Object[] entries = (Object[]) curState;
+			int idx = indexOf(entries, key);
+			if (idx < 0 || !entries[idx + 1].equals(value))
+				return false;
+			if (STATE_UPDATER.compareAndSet(this, curState, removeAt(entries, idx)))
+				return true;
+		}
+	}
+
+	private static Object[] removeAt(Object[] entries, int idx) {
+		Object[] newEntries = new Object[entries.length - 2];
+		System.arraycopy(entries, 0, newEntries, 0, idx);
+		System.arraycopy(entries, idx + 2, newEntries, idx, entries.length - idx - 2);
+		return newEntries;
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		while (true) {
+			Object curState = state;
+			if (!(curState instanceof Object[]))
+				return asMap(curState).replace(key, oldValue, newValue);
+
+			Object[] entries = (Object[]) curState;
+			int idx = indexOf(entries, key);
+			if (idx < 0 || !entries[idx + 1].equals(oldValue))
+				return false;
+			Object[] newEntries = entries.clone();
+			newEntries[idx + 1] = newValue;
+			if (STATE_UPDATER.compareAndSet(this, curState, newEntries))
+				return true;
+		}
+	}
+
+	@Override
+	public V replace(K key, V value) {
+		while (true) {
+			Object curState = state;
+			if (!(curState instanceof Object[]))
+				return asMap(curState).replace(key, value);
+
+			Object[] entries = (Object[]) curState;
+			int idx = indexOf(entries, key);
+			if (idx < 0)
+				return null;
+			Object[] newEntries = entries.clone();
+			newEntries[idx + 1] = value;
+			if (STATE_UPDATER.compareAndSet(this, curState, newEntries))
+				return cast(entries[idx + 1]);
+		}
+	}
+
+	@Override
+	public void clear() {
+		while (true) {
+			Object curState = state;
+			if (!(curState instanceof Object[])) {
+				asMap(curState).clear();
+				return;
+			}
+			if (STATE_UPDATER.compareAndSet(this, curState, EMPTY))
+				return;
+		}
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet() {
+		if (entrySet == null)
+			entrySet = new EntrySet();
+		return entrySet;
+	}
+
+	/**
+	 * Gets whether this map has been inflated into a hash map
+	 * @return True if this map uses hashed storage, false if it stores its
+	 * entries inline
+	 */
+	public boolean isInflated() {
+		return !(state instanceof Object[]);
+	}
+
+	private class EntrySet extends AbstractSet<Entry<K, V>> {
+
+		@Override
+		public Iterator<Entry<K, V>> iterator() {
+			Object curState = state;
+			if (!(curState instanceof Object[]))
+				return asMap(curState).entrySet().iterator();
+
+			final Object[] entries = (Object[]) curState;
+			return new Iterator<Entry<K, V>>() {
+
+				private int idx = 0;
+				private boolean canRemove = false;
+
+				@Override
+				public boolean hasNext() {
+					return idx < entries.length;
+				}
+
+				@Override
+				public Entry<K, V> next() {
+					if (idx >= entries.length)
+						throw new NoSuchElementException();
+					canRemove = true;
+					idx += 2;
+					return new SimpleImmutableEntry<K, V>(SmallConcurrentMap.this.<K>cast(entries[idx - 2]),
+							SmallConcurrentMap.this.<V>cast(entries[idx - 1]));
+				}
+
+				@Override
+				public void remove() {
+					if (!canRemove)
+						throw new IllegalStateException();
+					canRemove = false;
+					SmallConcurrentMap.this.remove(entries[idx - 2], entries[idx - 1]);
+				}
+
+			};
+		}
+
+		@Override
+		public int size() {
+			return SmallConcurrentMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			SmallConcurrentMap.this.clear();
+		}
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private ConcurrentMap<K, V> asMap(Object curState) {
+		return (ConcurrentMap<K, V>) curState;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T cast(Object o) {
+		return (T) o;
+	}
+
+}
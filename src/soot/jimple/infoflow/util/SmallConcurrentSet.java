@@ -0,0 +1,222 @@
+package soot.jimple.infoflow.util;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Thread-safe set for the many small sets inside the solver. Most of these
+ * sets only ever hold one or two elements, so a full concurrent hash set
+ * with its segments and tables wastes a lot of memory. This set keeps up to
+ * {@link #INLINE_CAPACITY} elements in an immutable array that is replaced
+ * with compare-and-swap on every modification. Once the set grows beyond
+ * that, it is inflated into a {@link ConcurrentHashSet} and never deflated
+ * again.
+ *
+ * Iterators are weakly consistent, i.e., they may or may not reflect the
+ * modifications made after they were created.
+ */
+public class SmallConcurrentSet<E> extends AbstractSet<E> implements Set<E> {
+
+	/**
+	 * The maximum number of elements stored without hashing
+	 */
+	public static final int INLINE_CAPACITY = 4;
+
+	private static final Object[] EMPTY = new Object[0];
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<SmallConcurrentSet, Object> STATE_UPDATER =
+			AtomicReferenceFieldUpdater.newUpdater(SmallConcurrentSet.class, Object.class, "state");
+
+	private final boolean identity;
+
+	/**
+	 * Either an immutable array of the elements, or the set into which this
+	 * set has been inflated
+	 */
+	private volatile Object state = EMPTY;
+
+	/**
+	 * Creates a new, empty set that compares its elements with equals()
+	 */
+	public SmallConcurrentSet() {
+		this(false);
+	}
+
+	/**
+	 * Creates a new, empty set
+	 * @param identity True if the elements shall be compared by identity,
+	 * false if they shall be compared with equals(). Once an identity set has
+	 * been inflated, it is synchronized on itself, and its iterators work on
+	 * a snapshot of the elements.
+	 */
+	public SmallConcurrentSet(boolean identity) {
+		this.identity = identity;
+	}
+
+	private boolean same(Object o1, Object o2) {
+		return identity ? o1 == o2 : o1.equals(o2);
+	}
+
+	private int indexOf(Object[] elements, Object o) {
+		for (int i = 0; i < elements.length; i++)
+			if (same(elements[i], o))
+				return i;
+		return -1;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Set<E> createInflated() {
+		if (identity)
+			return Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<E, Boolean>()));
+		return new ConcurrentHashSet<E>();
+	}
+
+	@Override
+	public boolean add(E o) {
+		assert o != null;
+		while (true) {
+			Object curState = state;
+			if (!(curState instanceof Object[]))
+				return asSet(curState).add(o);
+
+			Object[] elements = (Object[]) curState;
+			if (indexOf(elements, o) >= 0)
+				return false;
+
+			Object newState;
+			if (elements.length < INLINE_CAPACITY) {
+				Object[] newElements = new Object[elements.length + 1];
+				System.arraycopy(elements, 0, newElements, 0, elements.length);
+				newElements[elements.length] = o;
+				newState = newElements;
+			}
+			else {
+				Set<E> inflated = createInflated();
+				for (Object element : elements)
+					inflated.add(asElement(element));
+				inflated.add(o);
+				newState = inflated;
+			}
+			if (STATE_UPDATER.compareAndSet(this, curState, newState))
+				return true;
+		}
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		while (true) {
+			Object curState = state;
+			if (!(curState instanceof Object[]))
+				return asSet(curState).remove(o);
+
+			Object[] elements = (Object[]) curState;
+			int idx = indexOf(elements, o);
+			if (idx < 0)
+				return false;
+
+			Object[] newElements = new Object[elements.length - 1];
+			System.arraycopy(elements, 0, newElements, 0, idx);
+			System.arraycopy(elements, idx + 1, newElements, idx, elements.length - idx - 1);
+			if (STATE_UPDATER.compareAndSet(this, curState, newElements))
+				return true;
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		Object curState = state;
+		if (curState instanceof Object[])
+			return indexOf((Object[]) curState, o) >= 0;
+		return asSet(curState).contains(o);
+	}
+
+	@Override
+	public int size() {
+		Object curState = state;
+		if (curState instanceof Object[])
+			return ((Object[]) curState).length;
+		return asSet(curState).size();
+	}
+
+	@Override
+	public void clear() {
+		while (true) {
+			Object curState = state;
+			if (!(curState instanceof Object[])) {
+				asSet(curState).clear();
+				return;
+			}
+			if (STATE_UPDATER.compareAndSet(this, curState, EMPTY))
+				return;
+		}
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		Object curState = state;
+		if (curState instanceof Object[])
+			return arrayIterator((Object[]) curState);
+
+		// The synchronized identity set cannot be iterated while other
+		// threads modify it, so we copy it under its lock
+		if (identity)
+			return arrayIterator(asSet(curState).toArray());
+		return asSet(curState).iterator();
+	}
+
+	private Iterator<E> arrayIterator(final Object[] elements) {
+		return new Iterator<E>() {
+
+			private int idx = 0;
+			private boolean canRemove = false;
+
+			@Override
+			public boolean hasNext() {
+				return idx < elements.length;
+			}
+
+			@Override
+			public E next() {
+				if (idx >= elements.length)
+					throw new NoSuchElementException();
+				canRemove = true;
+				return asElement(elements[idx++]);
+			}
+
+			@Override
+			public void remove() {
+				if (!canRemove)
+					throw new IllegalStateException();
+				canRemove = false;
+				SmallConcurrentSet.this.remove(elements[idx - 1]);
+			}
+
+		};
+	}
+
+	/**
+	 * Gets whether this set has been inflated into a hash set
+	 * @return True if this set uses hashed storage, false if it stores its
+	 * elements inline
+	 */
+	public boolean isInflated() {
+		return !(state instanceof Object[]);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Set<E> asSet(Object curState) {
+		return (Set<E>) curState;
+	}
+
+	@SuppressWarnings("unchecked")
+	private E asElement(Object element) {
+		return (E) element;
+	}
+
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.jimple.infoflow.solver.IInfoflowCFG.UnitContainer;
+import soot.jimple.internal.JNopStmt;
+
+/**
+ * Tests for the equality and hashing of postdominator stacks. The stack is
+ * package-private, so this test lives in the same package.
+ */
+public class PostdominatorStackTests {
+
+	private final UnitContainer pd1 = new UnitContainer(new JNopStmt());
+	private final UnitContainer pd2 = new UnitContainer(new JNopStmt());
+	private final UnitContainer pd3 = new UnitContainer(new JNopStmt());
+
+	@Test(timeout=300000)
+	public void sharedTailTest() {
+		PostdominatorStack base = PostdominatorStack.push(null, pd1);
+		PostdominatorStack s1 = PostdominatorStack.push(base, pd2);
+		PostdominatorStack s2 = PostdominatorStack.push(base, pd2);
+		Assert.assertEquals(s1, s2);
+		Assert.assertEquals(s1.hashCode(), s2.hashCode());
+
+		// Popping returns the shared tail itself
+		Assert.assertSame(base, s1.pop());
+		Assert.assertSame(pd2, s1.getTop());
+		Assert.assertNull(base.pop());
+	}
+
+	@Test(timeout=300000)
+	public void separateStacksTest() {
+		// Equal stacks that have been built independently do not share any
+		// nodes
+		PostdominatorStack s1 = PostdominatorStack.push(PostdominatorStack.push(
+				PostdominatorStack.push(null, pd1), pd2), pd3);
+		PostdominatorStack s2 = PostdominatorStack.push(PostdominatorStack.push(
+				PostdominatorStack.push(null, new UnitContainer(pd1.getUnit())),
+				new UnitContainer(pd2.getUnit())), new UnitContainer(pd3.getUnit()));
+		Assert.assertEquals(s1, s2);
+		Assert.assertEquals(s2, s1);
+		Assert.assertEquals(s1.hashCode(), s2.hashCode());
+	}
+
+	@Test(timeout=300000)
+	public void differentStacksTest() {
+		PostdominatorStack base = PostdominatorStack.push(null, pd1);
+		PostdominatorStack s12 = PostdominatorStack.push(base, pd2);
+		PostdominatorStack s13 = PostdominatorStack.push(base, pd3);
+		PostdominatorStack s21 = PostdominatorStack.push(PostdominatorStack.push(null, pd2), pd1);
+		PostdominatorStack s123 = PostdominatorStack.push(s12, pd3);
+
+		Assert.assertFalse(s12.equals(s13));
+		Assert.assertFalse(s12.equals(s21));
+		Assert.assertFalse(s12.equals(base));
+		Assert.assertFalse(s123.equals(s12));
+		Assert.assertFalse(s12.equals(null));
+		Assert.assertFalse(s12.equals(pd2));
+
+		// The order of the postdominators is part of the hash code
+		Assert.assertFalse(s12.hashCode() == s21.hashCode());
+	}
+
+	@Test(timeout=300000)
+	public void containsTest() {
+		PostdominatorStack stack = PostdominatorStack.push(PostdominatorStack.push(null, pd1), pd2);
+		Assert.assertTrue(stack.contains(pd1));
+		Assert.assertTrue(stack.contains(new UnitContainer(pd2.getUnit())));
+		Assert.assertFalse(stack.contains(pd3));
+	}
+
+}
@@ -80,6 +80,24 @@ public class OtherTestCode {
 		cm.publish(data2);
 	}
 	
+	public void separateCallersTest() {
+		deviceIdCaller();
+		passwordCaller();
+	}
+	
+	private void deviceIdCaller() {
+		ConnectionManager cm = new ConnectionManager();
+		String data = annotate(TelephonyManager.getDeviceId());
+		cm.publish(data);
+	}
+	
+	private void passwordCaller() {
+		ConnectionManager cm = new ConnectionManager();
+		AccountManager am = new AccountManager();
+		String data = annotate(am.getPassword());
+		cm.publish(data);
+	}
+	
 	public void passOverTest() {
 		ConnectionManager cm = new ConnectionManager();
 		String deviceId = TelephonyManager.getDeviceId();
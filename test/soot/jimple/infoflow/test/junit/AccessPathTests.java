@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.Local;
+import soot.RefType;
+import soot.Scene;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Type;
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.data.AccessPath;
+
+/**
+ * Tests for the canonical access path instances and the access path length
+ * limits
+ */
+public class AccessPathTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void canonicalAccessPathTest(){
+		Infoflow infoflow = initInfoflow();
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void testWithField()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+
+		SootMethod sm = Scene.v().getMethod("<soot.jimple.infoflow.test.OtherTestCode: void testWithField()>");
+		SootField field = Scene.v().getSootClass("soot.jimple.infoflow.test.utilclasses.ClassWithField")
+				.getFieldByName("field");
+		Local base = null;
+		for (Local local : sm.getActiveBody().getLocals())
+			if (local.getType() instanceof RefType
+					&& ((RefType) local.getType()).getSootClass() == field.getDeclaringClass())
+				base = local;
+		Assert.assertNotNull(base);
+
+		// Structurally equal access paths yield the same instance
+		AccessPath ap1 = AccessPath.canonicalize(new AccessPath(base, field, true));
+		AccessPath ap2 = AccessPath.canonicalize(new AccessPath(base, field, true));
+		Assert.assertSame(ap1, ap2);
+
+		// Different access paths stay different, but share their fields
+		AccessPath ap3 = AccessPath.canonicalize(new AccessPath(base, field, false));
+		Assert.assertNotSame(ap1, ap3);
+		Assert.assertFalse(ap1.equals(ap3));
+		Assert.assertSame(ap1.getFields(), ap3.getFields());
+		Assert.assertFalse(ap1.equals(AccessPath.canonicalize(new AccessPath(base, true))));
+	}
+
+	@Test(timeout=300000)
+	public void adaptiveAccessPathLengthTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setAdaptiveAccessPathThreshold(1);
+		infoflow.setInspectSinks(false);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void threeLevelTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 1);
+
+		// Shortened access paths still keep at least one field
+		Map<Type, Integer> limits = infoflow.getAccessPathLengthLimits();
+		for (int limit : limits.values()) {
+			Assert.assertTrue(limit >= 1);
+			Assert.assertTrue(limit < Infoflow.getAccessPathLength());
+		}
+	}
+
+}
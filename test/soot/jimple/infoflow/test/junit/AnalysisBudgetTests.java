@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowResults.TerminationReason;
+
+/**
+ * Tests that the data flow analysis stops gracefully when it exceeds its
+ * budgets, and that it is not affected by budgets it does not exceed
+ */
+public class AnalysisBudgetTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void propagationLimitTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setMaxPropagationCount(1);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		assertTrue(infoflow.isResultAvailable());
+		assertTrue(infoflow.getResults().isPartial());
+		assertEquals(TerminationReason.PropagationLimit, infoflow.getResults().getTerminationReason());
+	}
+
+	@Test(timeout=300000)
+	public void budgetNotExceededTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setDataFlowTimeout(600);
+		infoflow.setMaxPropagationCount(10000000);
+		infoflow.setMaxHeapUsage(1024 * 1024);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+		assertFalse(infoflow.getResults().isPartial());
+	}
+
+	@Test(timeout=300000)
+	public void partitionedAnalysisTest(){
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void loopTest()>");
+
+		Infoflow infoflow = initInfoflow();
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		int expected = infoflow.getResults().size();
+
+		// A tiny budget forces one partition per source
+		infoflow = initInfoflow();
+		infoflow.setPartitionHeapBudget(1);
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, expected);
+		assertFalse(infoflow.getResults().isPartial());
+	}
+
+}
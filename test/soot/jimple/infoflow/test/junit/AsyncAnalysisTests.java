@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowResults;
+import soot.jimple.infoflow.InfoflowResults.TerminationReason;
+import soot.jimple.infoflow.InfoflowTask;
+import soot.jimple.infoflow.handlers.AnalysisProgressHandler;
+
+/**
+ * Tests for running the analysis in the background and cancelling it
+ */
+public class AsyncAnalysisTests extends JUnitTests {
+
+	/**
+	 * Progress handler that records the phases and cancels the analysis once
+	 * a given phase has been reached
+	 */
+	private static class PhaseRecorder implements AnalysisProgressHandler {
+
+		private final Infoflow infoflow;
+		private final AnalysisPhase cancelPhase;
+		private final Set<AnalysisPhase> phases = new HashSet<AnalysisPhase>();
+
+		public PhaseRecorder(Infoflow infoflow, AnalysisPhase cancelPhase) {
+			this.infoflow = infoflow;
+			this.cancelPhase = cancelPhase;
+		}
+
+		@Override
+		public void onPhaseStarted(AnalysisPhase phase) {
+			phases.add(phase);
+			if (phase == cancelPhase)
+				infoflow.cancel();
+		}
+
+		@Override
+		public void onDataFlowProgress(long forwardPropagations, long backwardPropagations) {
+			//
+		}
+
+	}
+
+	@Test(timeout=300000)
+	public void asyncAnalysisTest() throws Exception {
+		Infoflow infoflow = initInfoflow();
+		PhaseRecorder recorder = new PhaseRecorder(infoflow, null);
+		infoflow.addAnalysisProgressHandler(recorder);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		InfoflowTask task = infoflow.computeInfoflowAsync(appPath, libPath, epoints, sources, sinks);
+		InfoflowResults results = task.get();
+
+		Assert.assertTrue(task.isDone());
+		Assert.assertFalse(task.isCancelled());
+		Assert.assertFalse(results.isPartial());
+		checkInfoflow(infoflow, 2);
+		Assert.assertTrue(recorder.phases.contains(AnalysisProgressHandler.AnalysisPhase.DataFlowAnalysis));
+		Assert.assertTrue(recorder.phases.contains(AnalysisProgressHandler.AnalysisPhase.PathReconstruction));
+	}
+
+	@Test(timeout=300000)
+	public void cancelDataFlowTest() throws Exception {
+		Infoflow infoflow = initInfoflow();
+		PhaseRecorder recorder = new PhaseRecorder(infoflow,
+				AnalysisProgressHandler.AnalysisPhase.DataFlowAnalysis);
+		infoflow.addAnalysisProgressHandler(recorder);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		InfoflowTask task = infoflow.computeInfoflowAsync(appPath, libPath, epoints, sources, sinks);
+		task.awaitCompletion();
+
+		// The analysis was cancelled from within, so the handle still
+		// delivers the partial results
+		InfoflowResults results = task.get();
+		Assert.assertTrue(results.isPartial());
+		Assert.assertEquals(TerminationReason.Cancelled, results.getTerminationReason());
+		Assert.assertTrue(recorder.phases.contains(AnalysisProgressHandler.AnalysisPhase.PathReconstruction));
+	}
+
+	@Test(timeout=300000)
+	public void cancelSummaryComputationTest() throws Exception {
+		Infoflow infoflow = initInfoflow();
+		infoflow.setBottomUpSummaries(true);
+		PhaseRecorder recorder = new PhaseRecorder(infoflow,
+				AnalysisProgressHandler.AnalysisPhase.SummaryComputation);
+		infoflow.addAnalysisProgressHandler(recorder);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		InfoflowTask task = infoflow.computeInfoflowAsync(appPath, libPath, epoints, sources, sinks);
+		task.awaitCompletion();
+
+		// The cancellation stops the summaries, so the data flow analysis
+		// never starts
+		InfoflowResults results = task.get();
+		Assert.assertTrue(results.isPartial());
+		Assert.assertEquals(TerminationReason.Cancelled, results.getTerminationReason());
+		Assert.assertFalse(recorder.phases.contains(AnalysisProgressHandler.AnalysisPhase.DataFlowAnalysis));
+	}
+
+	@Test(timeout=300000)
+	public void cancelTaskTest() throws Exception {
+		Infoflow infoflow = initInfoflow();
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		InfoflowTask task = infoflow.computeInfoflowAsync(appPath, libPath, epoints, sources, sinks);
+		boolean cancelled = task.cancel(false);
+		task.awaitCompletion();
+
+		if (cancelled) {
+			Assert.assertTrue(task.isCancelled());
+			try {
+				task.get();
+				Assert.fail("Cancelled task returned results");
+			}
+			catch (CancellationException ex) {
+				// expected
+			}
+		}
+
+		// The object can be reused after a cancellation
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+}
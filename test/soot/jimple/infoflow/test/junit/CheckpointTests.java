@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowResults;
+import soot.jimple.infoflow.handlers.AnalysisProgressHandler;
+import soot.jimple.infoflow.solver.SolverStatistics;
+import soot.jimple.infoflow.source.DefaultSourceSinkManager;
+
+/**
+ * Tests for checkpointing the data flow analysis and resuming it later
+ */
+public class CheckpointTests extends JUnitTests {
+
+	/**
+	 * Progress handler that cancels the analysis when the data flow solvers
+	 * are started for the second partition
+	 */
+	private static class PartitionCanceller implements AnalysisProgressHandler {
+
+		private final Infoflow infoflow;
+		private int partitionCount = 0;
+
+		public PartitionCanceller(Infoflow infoflow) {
+			this.infoflow = infoflow;
+		}
+
+		@Override
+		public void onPhaseStarted(AnalysisPhase phase) {
+			if (phase == AnalysisPhase.DataFlowAnalysis && ++partitionCount == 2)
+				infoflow.cancel();
+		}
+
+		@Override
+		public void onDataFlowProgress(long forwardPropagations, long backwardPropagations) {
+			//
+		}
+
+	}
+
+	private List<String> getEntryPoints() {
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void loopTest()>");
+		return epoints;
+	}
+
+	private File createCheckpointFile() throws Exception {
+		File file = File.createTempFile("checkpoint", ".txt");
+		file.delete();
+		file.deleteOnExit();
+		return file;
+	}
+
+	@Test(timeout=300000)
+	public void checkpointTest() throws Exception {
+		Infoflow infoflow = initInfoflow();
+		infoflow.computeInfoflow(appPath, libPath, getEntryPoints(), sources, sinks);
+		int expected = infoflow.getResults().size();
+
+		File checkpoint = createCheckpointFile();
+		infoflow = initInfoflow();
+		infoflow.setCheckpointFile(checkpoint.getPath());
+		infoflow.computeInfoflow(appPath, libPath, getEntryPoints(), sources, sinks);
+		Assert.assertEquals(expected, infoflow.getResults().size());
+
+		// A completed analysis removes its checkpoint
+		Assert.assertFalse(checkpoint.exists());
+	}
+
+	@Test(timeout=300000)
+	public void resumeTest() throws Exception {
+		Infoflow infoflow = initInfoflow();
+		infoflow.computeInfoflow(appPath, libPath, getEntryPoints(), sources, sinks);
+		int expected = infoflow.getResults().size();
+
+		File checkpoint = createCheckpointFile();
+		infoflow = initInfoflow();
+		infoflow.setCheckpointFile(checkpoint.getPath());
+		infoflow.setCheckpointPartitioning(true);
+		infoflow.addAnalysisProgressHandler(new PartitionCanceller(infoflow));
+		infoflow.computeInfoflow(appPath, libPath, getEntryPoints(), sources, sinks);
+		Assert.assertTrue(infoflow.getResults().isPartial());
+		Assert.assertTrue(checkpoint.exists());
+
+		infoflow.resumeInfoflow(checkpoint.getPath(), new DefaultSourceSinkManager(sources, sinks));
+		InfoflowResults results = infoflow.getResults();
+		Assert.assertFalse(results.isPartial());
+		Assert.assertEquals(expected, results.size());
+		Assert.assertFalse(checkpoint.exists());
+	}
+
+	@Test(timeout=300000)
+	public void checkpointPropagationCountTest() throws Exception {
+		Infoflow infoflow = initInfoflow();
+		infoflow.computeInfoflow(appPath, libPath, getEntryPoints(), sources, sinks);
+		SolverStatistics expected = infoflow.getSolverStatistics();
+
+		// Writing checkpoints must not split the seeds unless asked to
+		File checkpoint = createCheckpointFile();
+		infoflow = initInfoflow();
+		infoflow.setCheckpointFile(checkpoint.getPath());
+		infoflow.computeInfoflow(appPath, libPath, getEntryPoints(), sources, sinks);
+		SolverStatistics actual = infoflow.getSolverStatistics();
+		Assert.assertTrue(actual.getForwardPropagationCount() <= expected.getForwardPropagationCount());
+		Assert.assertTrue(actual.getBackwardPropagationCount() <= expected.getBackwardPropagationCount());
+	}
+
+	@Test(timeout=300000)
+	public void resumeMissingCheckpointTest() throws Exception {
+		Infoflow infoflow = initInfoflow();
+		infoflow.computeInfoflow(appPath, libPath, getEntryPoints(), sources, sinks);
+
+		File checkpoint = createCheckpointFile();
+		infoflow.resumeInfoflow(checkpoint.getPath(), new DefaultSourceSinkManager(sources, sinks));
+		Assert.assertFalse(infoflow.isResultAvailable());
+	}
+
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.jimple.infoflow.solver.fastSolver.CompactJumpFunctions;
+
+/**
+ * Tests for the packed jump function store. The numbers of jump functions
+ * are chosen such that every segment of the store is resized several times.
+ */
+public class CompactJumpFunctionsTests {
+
+	private static final int NUM_UNITS = 500;
+	private static final int NUM_FACTS = 200;
+
+	@Test(timeout=300000)
+	public void resizeTest() {
+		CompactJumpFunctions<Integer, Integer> jumpFn = new CompactJumpFunctions<Integer, Integer>();
+		for (int unit = 0; unit < NUM_UNITS; unit++)
+			for (int fact = 0; fact < NUM_FACTS; fact++)
+				Assert.assertNull(jumpFn.addFunction(fact, unit, fact + 1));
+		Assert.assertEquals(NUM_UNITS * NUM_FACTS, jumpFn.size());
+
+		// No jump function may get lost or change its value while the table
+		// is copied
+		for (int unit = 0; unit < NUM_UNITS; unit++)
+			for (int fact = 0; fact < NUM_FACTS; fact++)
+				Assert.assertEquals(Integer.valueOf(fact + 1), jumpFn.addFunction(fact, unit, fact + 1));
+		Assert.assertEquals(NUM_UNITS * NUM_FACTS, jumpFn.size());
+	}
+
+	@Test(timeout=300000)
+	public void clearTest() {
+		CompactJumpFunctions<Integer, Integer> jumpFn = new CompactJumpFunctions<Integer, Integer>();
+		Assert.assertNull(jumpFn.addFunction(1, 2, 3));
+		Assert.assertEquals(Integer.valueOf(3), jumpFn.addFunction(1, 2, 3));
+		jumpFn.clear();
+		Assert.assertEquals(0, jumpFn.size());
+		Assert.assertNull(jumpFn.addFunction(1, 2, 3));
+	}
+
+	@Test(timeout=300000)
+	public void concurrentResizeTest() throws InterruptedException {
+		final CompactJumpFunctions<Integer, Integer> jumpFn = new CompactJumpFunctions<Integer, Integer>();
+		final AtomicInteger added = new AtomicInteger();
+		final AtomicInteger wrongValues = new AtomicInteger();
+
+		// All threads add the same jump functions in different orders, so
+		// they race for the same slots while the segments are resized
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int threadId = t;
+			threads[t] = new Thread() {
+
+				@Override
+				public void run() {
+					for (int i = 0; i < NUM_UNITS; i++) {
+						int unit = (i + threadId * NUM_UNITS / 4) % NUM_UNITS;
+						for (int fact = 0; fact < NUM_FACTS; fact++) {
+							Integer oldVal = jumpFn.addFunction(fact, unit, fact + 1);
+							if (oldVal == null)
+								added.incrementAndGet();
+							else if (oldVal.intValue() != fact + 1)
+								wrongValues.incrementAndGet();
+						}
+					}
+				}
+
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		Assert.assertEquals(NUM_UNITS * NUM_FACTS, added.get());
+		Assert.assertEquals(0, wrongValues.get());
+		Assert.assertEquals(NUM_UNITS * NUM_FACTS, jumpFn.size());
+	}
+
+}
@@ -15,11 +15,17 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.SolverBenchmark;
+import soot.jimple.infoflow.SolverBenchmark.BenchmarkResult;
 import soot.jimple.infoflow.config.IInfoflowConfig;
+import soot.jimple.infoflow.entryPointCreators.DefaultEntryPointCreator;
+import soot.jimple.infoflow.solver.fastSolver.FastSolverFactory;
+import soot.jimple.infoflow.source.DefaultSourceSinkManager;
 import soot.jimple.infoflow.taintWrappers.EasyTaintWrapper;
 import soot.options.Options;
 
@@ -562,4 +568,32 @@ public class ImplicitFlowTests extends JUnitTests {
 		checkInfoflow(infoflow, 1);
 	}
 
+	@Test(timeout=600000)
+	public void implicitFlowBenchmarkTest(){
+		String[] workloads = new String[] { "simpleTest", "switchTest", "sinkTest", "returnTest",
+				"callTest", "callTest2", "recursionTest", "recursionTest2", "exceptionTest",
+				"exceptionTest2", "fieldTest", "integerClassTest", "hierarchicalCallSetTest",
+				"classTypeTest" };
+		
+		List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+		for (String workload : workloads) {
+			Infoflow infoflow = initInfoflow();
+			infoflow.setEnableImplicitFlows(true);
+			infoflow.setInspectSinks(false);
+			
+			List<String> epoints = new ArrayList<String>();
+		    epoints.add("<soot.jimple.infoflow.test.ImplicitFlowTestCode: void " + workload + "()>");
+			SolverBenchmark benchmark = new SolverBenchmark(infoflow);
+			benchmark.addSolver(workload, new FastSolverFactory());
+			results.addAll(benchmark.run(appPath, libPath,
+					new DefaultEntryPointCreator(epoints), new DefaultSourceSinkManager(sources, sinks)));
+		}
+		System.out.println(SolverBenchmark.formatResults(results));
+		
+		for (BenchmarkResult result : results) {
+			Assert.assertNotNull(result.getStatistics());
+			Assert.assertEquals(1, result.getResultCount());
+		}
+	}
+
 }
@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import heros.InterproceduralCFG;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.jimple.infoflow.solver.fastSolver.ContextJumpFunctions;
+import soot.jimple.infoflow.solver.fastSolver.JumpFunctionCollector;
+
+/**
+ * Tests for the collection of the jump functions of finished calling
+ * contexts. Statements are named "method:index", the statement with index 0
+ * is the start point of its method.
+ */
+public class JumpFunctionCollectorTests {
+
+	private static class MethodPrefixCFG implements InterproceduralCFG<String, String> {
+
+		@Override
+		public String getMethodOf(String n) {
+			return n.substring(0, n.indexOf(':'));
+		}
+
+		@Override
+		public boolean isStartPoint(String stmt) {
+			return stmt.endsWith(":0");
+		}
+
+		@Override
+		public List<String> getPredsOf(String u) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<String> getSuccsOf(String n) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Collection<String> getCalleesOfCallAt(String n) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Collection<String> getCallersOf(String m) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Set<String> getCallsFromWithin(String m) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Collection<String> getStartPointsOf(String m) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Collection<String> getReturnSitesOfCallAt(String n) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isCallStmt(String stmt) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isExitStmt(String stmt) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Set<String> allNonCallStartNodes() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isFallThroughSuccessor(String stmt, String succ) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isBranchTarget(String stmt, String succ) {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+	@Test(timeout=300000)
+	public void finishedContextTest(){
+		checkFinishedContext(true);
+	}
+
+	@Test(timeout=300000)
+	public void finishedContextSequentialTest(){
+		checkFinishedContext(false);
+	}
+
+	private void checkFinishedContext(boolean concurrent) {
+		ContextJumpFunctions<String, String, String> jumpFn =
+				new ContextJumpFunctions<String, String, String>(new MethodPrefixCFG(), concurrent);
+		JumpFunctionCollector<String, String, String> collector =
+				new JumpFunctionCollector<String, String, String>(jumpFn);
+
+		Assert.assertNull(jumpFn.addFunction("a", "m:0", "a"));
+		Assert.assertNull(jumpFn.addFunction("a", "m:1", "b"));
+		Assert.assertNull(jumpFn.addFunction("a", "m:2", "c"));
+		Assert.assertNull(jumpFn.addFunction("x", "m:1", "y"));
+		collector.edgeScheduled("m", "a");
+		collector.edgeScheduled("m", "a");
+		collector.edgeScheduled("m", "x");
+
+		// The context still has a pending edge
+		collector.edgeProcessed("m", "a");
+		Assert.assertEquals(0, collector.getRemovedFunctionCount());
+		Assert.assertEquals("b", jumpFn.addFunction("a", "m:1", "b"));
+
+		// Only the finished context is removed, and its self-loop is kept
+		collector.edgeProcessed("m", "a");
+		Assert.assertEquals(2, collector.getRemovedFunctionCount());
+		Assert.assertEquals(1, collector.getCollectedContextCount());
+		Assert.assertEquals(1, jumpFn.getContextCount());
+		Assert.assertEquals(1, collector.getContextCount());
+		Assert.assertEquals("a", jumpFn.addFunction("a", "m:0", "a"));
+		Assert.assertEquals("y", jumpFn.addFunction("x", "m:1", "y"));
+
+		// A context that is explored again starts over
+		Assert.assertNull(jumpFn.addFunction("a", "m:1", "b"));
+		collector.edgeScheduled("m", "a");
+		Assert.assertEquals(2, collector.getContextCount());
+		collector.edgeProcessed("m", "a");
+		Assert.assertEquals(2, collector.getCollectedContextCount());
+		Assert.assertEquals(1, collector.getContextCount());
+	}
+
+	@Test(timeout=300000)
+	public void callerWaitsForCalleeTest(){
+		ContextJumpFunctions<String, String, String> jumpFn =
+				new ContextJumpFunctions<String, String, String>(new MethodPrefixCFG(), true);
+		JumpFunctionCollector<String, String, String> collector =
+				new JumpFunctionCollector<String, String, String>(jumpFn);
+
+		// The caller enters the callee while processing its call edge
+		jumpFn.addFunction("a", "caller:1", "b");
+		collector.edgeScheduled("caller", "a");
+		jumpFn.addFunction("c", "callee:1", "c");
+		collector.edgeScheduled("callee", "c");
+		collector.calleeEntered("caller", "a", "callee", "c");
+		collector.edgeProcessed("caller", "a");
+
+		// The callee can still return into the caller
+		Assert.assertEquals(0, collector.getRemovedFunctionCount());
+
+		// Once the callee has finished, the caller is finished as well
+		collector.edgeProcessed("callee", "c");
+		Assert.assertEquals(2, collector.getRemovedFunctionCount());
+		Assert.assertEquals(2, collector.getCollectedContextCount());
+		Assert.assertEquals(0, jumpFn.getContextCount());
+		Assert.assertEquals(0, collector.getContextCount());
+	}
+
+	@Test(timeout=300000)
+	public void finishedCalleeTest(){
+		ContextJumpFunctions<String, String, String> jumpFn =
+				new ContextJumpFunctions<String, String, String>(new MethodPrefixCFG(), true);
+		JumpFunctionCollector<String, String, String> collector =
+				new JumpFunctionCollector<String, String, String>(jumpFn);
+
+		// A callee that has already finished does not hold up the caller
+		jumpFn.addFunction("c", "callee:1", "c");
+		collector.edgeScheduled("callee", "c");
+		collector.edgeProcessed("callee", "c");
+		Assert.assertEquals(1, collector.getRemovedFunctionCount());
+
+		jumpFn.addFunction("a", "caller:1", "b");
+		collector.edgeScheduled("caller", "a");
+		collector.calleeEntered("caller", "a", "callee", "c");
+		collector.edgeProcessed("caller", "a");
+		Assert.assertEquals(2, collector.getRemovedFunctionCount());
+	}
+
+	@Test(timeout=300000)
+	public void recursiveContextTest(){
+		ContextJumpFunctions<String, String, String> jumpFn =
+				new ContextJumpFunctions<String, String, String>(new MethodPrefixCFG(), true);
+		JumpFunctionCollector<String, String, String> collector =
+				new JumpFunctionCollector<String, String, String>(jumpFn);
+
+		// A context that calls itself does not wait for itself
+		jumpFn.addFunction("a", "m:1", "b");
+		collector.edgeScheduled("m", "a");
+		collector.calleeEntered("m", "a", "m", "a");
+		collector.edgeProcessed("m", "a");
+		Assert.assertEquals(1, collector.getRemovedFunctionCount());
+	}
+
+	@Test(timeout=300000)
+	public void concurrentCollectionTest() throws InterruptedException {
+		final ContextJumpFunctions<String, String, String> jumpFn =
+				new ContextJumpFunctions<String, String, String>(new MethodPrefixCFG(), true);
+		final JumpFunctionCollector<String, String, String> collector =
+				new JumpFunctionCollector<String, String, String>(jumpFn);
+		final int numContexts = 1000;
+		final int edgesPerContext = 20;
+		final int numThreads = 4;
+
+		// The jump functions only hold weak references to the statements
+		// and facts
+		final String[] targets = new String[edgesPerContext];
+		for (int i = 0; i < edgesPerContext; i++)
+			targets[i] = "m:" + (i + 1);
+		final String[] contextFacts = new String[numContexts];
+		for (int c = 0; c < numContexts; c++)
+			contextFacts[c] = "d" + c;
+		final String[][] targetFacts = new String[numThreads][edgesPerContext];
+		for (int t = 0; t < numThreads; t++)
+			for (int i = 0; i < edgesPerContext; i++)
+				targetFacts[t][i] = "f" + t + "_" + i;
+
+		// Every thread explores all contexts, so every context receives
+		// edges from all threads at the same time
+		Thread[] threads = new Thread[numThreads];
+		for (int t = 0; t < threads.length; t++) {
+			final int threadId = t;
+			threads[t] = new Thread() {
+
+				@Override
+				public void run() {
+					for (int c = 0; c < numContexts; c++) {
+						String d1 = contextFacts[c];
+						for (int i = 0; i < edgesPerContext; i++) {
+							collector.edgeScheduled("m", d1);
+							jumpFn.addFunction(d1, targets[i], targetFacts[threadId][i]);
+						}
+						for (int i = 0; i < edgesPerContext; i++)
+							collector.edgeProcessed("m", d1);
+					}
+				}
+
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		// All contexts are finished, so nothing may be left in the store
+		// or in the collector
+		Assert.assertEquals(0, jumpFn.getContextCount());
+		Assert.assertEquals(0, collector.getContextCount());
+		Assert.assertTrue(collector.getCollectedContextCount() >= numContexts);
+	}
+
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.jimple.infoflow.solver.fastSolver.JumpFunctions;
+
+/**
+ * Tests for the lookup of existing jump functions in the map-based jump
+ * function store. The jump functions only hold weak references to the
+ * statements and facts, so the tests keep them alive in arrays.
+ */
+public class JumpFunctionsTests {
+
+	private static final int NUM_FUNCTIONS = 1000;
+
+	private final String[] sources = new String[NUM_FUNCTIONS];
+	private final String[] targets = new String[NUM_FUNCTIONS];
+	private final String[] targetVals = new String[NUM_FUNCTIONS];
+
+	public JumpFunctionsTests() {
+		for (int i = 0; i < NUM_FUNCTIONS; i++) {
+			sources[i] = "d" + (i % 10);
+			targets[i] = "n" + i;
+			targetVals[i] = "f" + i;
+		}
+	}
+
+	private void checkLookups(JumpFunctions<String, String> jumpFn) {
+		for (int i = 0; i < NUM_FUNCTIONS; i++)
+			Assert.assertNull(jumpFn.addFunction(sources[i], targets[i], targetVals[i]));
+		Assert.assertEquals(0, jumpFn.getProbeHitCount());
+
+		// Equal, but not identical facts must find the existing jump function
+		for (int i = 0; i < NUM_FUNCTIONS; i++)
+			Assert.assertSame(targetVals[i], jumpFn.addFunction(new String(sources[i]),
+					targets[i], new String(targetVals[i])));
+		Assert.assertEquals(NUM_FUNCTIONS, jumpFn.getProbeHitCount());
+		Assert.assertEquals(2 * NUM_FUNCTIONS, jumpFn.getProbeCount());
+
+		// A different target fact is a different jump function
+		Assert.assertNull(jumpFn.addFunction(sources[0], targets[0], targetVals[1]));
+	}
+
+	@Test(timeout=300000)
+	public void concurrentStoreTest() {
+		checkLookups(new JumpFunctions<String, String>(true));
+	}
+
+	@Test(timeout=300000)
+	public void sequentialStoreTest() {
+		checkLookups(new JumpFunctions<String, String>(false));
+	}
+
+	@Test(timeout=300000)
+	public void concurrentLookupTest() throws InterruptedException {
+		final JumpFunctions<String, String> jumpFn = new JumpFunctions<String, String>(true);
+		final AtomicInteger added = new AtomicInteger();
+		final AtomicInteger wrongValues = new AtomicInteger();
+
+		// All threads add the same jump functions in different orders
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int threadId = t;
+			threads[t] = new Thread() {
+
+				@Override
+				public void run() {
+					for (int i = 0; i < NUM_FUNCTIONS; i++) {
+						int idx = (i + threadId * NUM_FUNCTIONS / 4) % NUM_FUNCTIONS;
+						String oldVal = jumpFn.addFunction(sources[idx], targets[idx], targetVals[idx]);
+						if (oldVal == null)
+							added.incrementAndGet();
+						else if (oldVal != targetVals[idx])
+							wrongValues.incrementAndGet();
+					}
+				}
+
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		Assert.assertEquals(NUM_FUNCTIONS, added.get());
+		Assert.assertEquals(0, wrongValues.get());
+		Assert.assertEquals(threads.length * NUM_FUNCTIONS, jumpFn.getProbeCount());
+		Assert.assertTrue(jumpFn.getProbeHitCount() <= (threads.length - 1) * NUM_FUNCTIONS);
+	}
+
+}
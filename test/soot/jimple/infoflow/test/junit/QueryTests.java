@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowQuery;
+
+/**
+ * Tests for the demand-driven source-to-sink query mode
+ */
+public class QueryTests extends JUnitTests {
+
+	private static final String loopTest = "<soot.jimple.infoflow.test.OtherTestCode: void loopTest()>";
+	private static final String multiCallTest = "<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>";
+
+	@Test(timeout=300000)
+	public void queryTest() {
+		Infoflow infoflow = initInfoflow();
+		infoflow.setQuery(new InfoflowQuery().addSource(loopTest, null).addSink(loopTest, null));
+		List<String> epoints = new ArrayList<String>();
+		epoints.add(loopTest);
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 1);
+		Assert.assertFalse(infoflow.getResults().isPartial());
+	}
+
+	@Test(timeout=300000)
+	public void queryThroughHelperTest() {
+		Infoflow infoflow = initInfoflow();
+		// The flow passes through a helper method that cannot reach the
+		// sink, which must not be skipped by default
+		infoflow.setQuery(new InfoflowQuery().addSource(multiCallTest, null)
+				.addSink(multiCallTest, null));
+		List<String> epoints = new ArrayList<String>();
+		epoints.add(multiCallTest);
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		Assert.assertTrue(infoflow.isResultAvailable());
+		Assert.assertFalse(infoflow.getResults().getResults().isEmpty());
+		Assert.assertTrue(infoflow.getResults().isPathBetweenMethods(sink, sourceDeviceId));
+	}
+
+	@Test(timeout=300000)
+	public void queryRestrictedToSinkCallersTest() {
+		Infoflow infoflow = initInfoflow();
+		// The flow stays within the entry point, so pruning the callees
+		// that cannot reach the sink does not lose it
+		infoflow.setQuery(new InfoflowQuery().addSource(loopTest, null)
+				.addSink(loopTest, null).setRestrictToSinkCallers(true));
+		List<String> epoints = new ArrayList<String>();
+		epoints.add(loopTest);
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	@Test(timeout=300000)
+	public void queryNoSourceTest() {
+		Infoflow infoflow = initInfoflow();
+		infoflow.setQuery(new InfoflowQuery().addSource(multiCallTest, "nop").addSink(multiCallTest, null));
+		List<String> epoints = new ArrayList<String>();
+		epoints.add(multiCallTest);
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		// Without a matching source, the analysis does not even start
+		Assert.assertTrue(!infoflow.isResultAvailable()
+				|| infoflow.getResults().getResults().isEmpty());
+	}
+
+}
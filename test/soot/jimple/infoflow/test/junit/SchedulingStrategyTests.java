@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.jimple.infoflow.IInfoflow.SchedulingStrategy;
+import soot.jimple.infoflow.Infoflow;
+
+/**
+ * Tests that the solver computes the same results regardless of how its path
+ * edges are scheduled on the worker threads
+ */
+public class SchedulingStrategyTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void workStealingFieldTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.WorkStealing);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void testWithField()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void workStealingMultiCallTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.WorkStealing);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void workStealingNegativeTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.WorkStealing);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void overwriteTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+	@Test(timeout=300000)
+	public void runToCompletionFieldTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setRunToCompletionBudget(64);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void testWithField()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void runToCompletionWorkStealingTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.WorkStealing);
+		infoflow.setRunToCompletionBudget(64);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void methodShardedMultiCallTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.MethodSharded);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void methodShardedNegativeTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.MethodSharded);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void overwriteTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+	@Test(timeout=300000)
+	public void boundedQueueMultiCallTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setMaxForwardQueueDepth(1);
+		infoflow.setMaxBackwardQueueDepth(1);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void boundedQueueWorkStealingTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.WorkStealing);
+		infoflow.setMaxForwardQueueDepth(1);
+		infoflow.setMaxBackwardQueueDepth(1);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void testWithField()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void sequentialMultiCallTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.Sequential);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void sequentialNegativeTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.Sequential);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void overwriteTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+	@Test(timeout=300000)
+	public void sinkPriorityMultiCallTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.SinkPriority);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void sinkPriorityNegativeTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.SinkPriority);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void overwriteTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+	@Test(timeout=300000)
+	public void sinkPriorityFirstFlowTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSchedulingStrategy(SchedulingStrategy.SinkPriority);
+		infoflow.setStopAfterFirstFlow(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		Assert.assertTrue(infoflow.isResultAvailable());
+		Assert.assertFalse(infoflow.getResults().getResults().isEmpty());
+	}
+
+}
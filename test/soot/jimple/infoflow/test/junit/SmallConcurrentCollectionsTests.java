@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.jimple.infoflow.util.SmallConcurrentMap;
+import soot.jimple.infoflow.util.SmallConcurrentSet;
+
+/**
+ * Tests for the small inline sets and maps under concurrent modification,
+ * in particular while they are being inflated
+ */
+public class SmallConcurrentCollectionsTests {
+
+	private static final int NUM_THREADS = 4;
+	private static final int NUM_ROUNDS = 2000;
+
+	/**
+	 * Runs the given task on several threads at the same time
+	 * @param task The task to run. It receives the number of the thread.
+	 */
+	private static void runConcurrently(final ThreadTask task) throws InterruptedException {
+		Thread[] threads = new Thread[NUM_THREADS];
+		final AtomicInteger failures = new AtomicInteger();
+		for (int t = 0; t < threads.length; t++) {
+			final int threadId = t;
+			threads[t] = new Thread() {
+
+				@Override
+				public void run() {
+					try {
+						task.run(threadId);
+					}
+					catch (RuntimeException ex) {
+						failures.incrementAndGet();
+						throw ex;
+					}
+				}
+
+			};
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		Assert.assertEquals(0, failures.get());
+	}
+
+	private interface ThreadTask {
+		public void run(int threadId);
+	}
+
+	@Test(timeout=300000)
+	public void setInlineTest() {
+		SmallConcurrentSet<String> set = new SmallConcurrentSet<String>();
+		for (int i = 0; i < SmallConcurrentSet.INLINE_CAPACITY; i++)
+			Assert.assertTrue(set.add("e" + i));
+		Assert.assertFalse(set.isInflated());
+		Assert.assertFalse(set.add("e0"));
+		Assert.assertTrue(set.remove("e0"));
+		Assert.assertFalse(set.contains("e0"));
+		Assert.assertEquals(SmallConcurrentSet.INLINE_CAPACITY - 1, set.size());
+
+		Assert.assertTrue(set.add("e0"));
+		Assert.assertTrue(set.add("x"));
+		Assert.assertTrue(set.isInflated());
+		Assert.assertEquals(SmallConcurrentSet.INLINE_CAPACITY + 1, set.size());
+		for (int i = 0; i < SmallConcurrentSet.INLINE_CAPACITY; i++)
+			Assert.assertTrue(set.contains("e" + i));
+	}
+
+	@Test(timeout=300000)
+	public void identitySetTest() {
+		SmallConcurrentSet<String> set = new SmallConcurrentSet<String>(true);
+		String s1 = new String("a");
+		String s2 = new String("a");
+		Assert.assertTrue(set.add(s1));
+		Assert.assertTrue(set.add(s2));
+		Assert.assertFalse(set.add(s1));
+		Assert.assertEquals(2, set.size());
+	}
+
+	@Test(timeout=300000)
+	public void concurrentIdentitySetIterationTest() throws InterruptedException {
+		// One thread keeps adding and removing elements, while the others
+		// iterate over the inflated set and must always see the fixed ones
+		final SmallConcurrentSet<String> set = new SmallConcurrentSet<String>(true);
+		final String[] fixed = new String[2 * SmallConcurrentSet.INLINE_CAPACITY];
+		for (int i = 0; i < fixed.length; i++) {
+			fixed[i] = "fixed" + i;
+			set.add(fixed[i]);
+		}
+		Assert.assertTrue(set.isInflated());
+		final AtomicInteger missing = new AtomicInteger();
+		runConcurrently(new ThreadTask() {
+
+			@Override
+			public void run(int threadId) {
+				for (int i = 0; i < NUM_ROUNDS; i++) {
+					if (threadId == 0) {
+						String e = "e" + i;
+						set.add(e);
+						set.remove(e);
+					}
+					else {
+						int numFixed = 0;
+						for (String e : set)
+							if (e.startsWith("fixed"))
+								numFixed++;
+						if (numFixed != fixed.length)
+							missing.incrementAndGet();
+					}
+				}
+			}
+
+		});
+		Assert.assertEquals(0, missing.get());
+	}
+
+	@Test(timeout=300000)
+	public void concurrentSetInsertTest() throws InterruptedException {
+		// All threads insert the same elements, so every set is inflated
+		// while other threads are still adding to it
+		final SmallConcurrentSet<?>[] sets = new SmallConcurrentSet<?>[NUM_ROUNDS];
+		for (int i = 0; i < sets.length; i++)
+			sets[i] = new SmallConcurrentSet<Integer>();
+		final int numElements = 3 * SmallConcurrentSet.INLINE_CAPACITY;
+		final AtomicInteger added = new AtomicInteger();
+		runConcurrently(new ThreadTask() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public void run(int threadId) {
+				for (SmallConcurrentSet<?> set : sets)
+					for (int i = 0; i < numElements; i++)
+						if (((SmallConcurrentSet<Integer>) set).add((i + threadId) % numElements))
+							added.incrementAndGet();
+			}
+
+		});
+
+		// Every element must have been added exactly once
+		Assert.assertEquals(NUM_ROUNDS * numElements, added.get());
+		for (SmallConcurrentSet<?> set : sets) {
+			Assert.assertEquals(numElements, set.size());
+			Assert.assertTrue(set.isInflated());
+			for (int i = 0; i < numElements; i++)
+				Assert.assertTrue(set.contains(i));
+		}
+	}
+
+	@Test(timeout=300000)
+	public void concurrentSetRemoveTest() throws InterruptedException {
+		// Every thread adds and removes its own elements, while the shared
+		// elements stay in the set all the time
+		final SmallConcurrentSet<String> set = new SmallConcurrentSet<String>();
+		set.add("shared1");
+		set.add("shared2");
+		final AtomicInteger lost = new AtomicInteger();
+		runConcurrently(new ThreadTask() {
+
+			@Override
+			public void run(int threadId) {
+				for (int i = 0; i < NUM_ROUNDS; i++) {
+					String e1 = threadId + "_" + i + "_a";
+					String e2 = threadId + "_" + i + "_b";
+					if (!set.add(e1) || !set.add(e2))
+						lost.incrementAndGet();
+					if (!set.contains("shared1") || !set.contains("shared2"))
+						lost.incrementAndGet();
+					if (!set.remove(e1) || !set.remove(e2))
+						lost.incrementAndGet();
+				}
+			}
+
+		});
+		Assert.assertEquals(0, lost.get());
+
+		Set<String> remaining = new HashSet<String>(set);
+		Assert.assertEquals(2, remaining.size());
+		Assert.assertTrue(remaining.contains("shared1"));
+		Assert.assertTrue(remaining.contains("shared2"));
+	}
+
+	@Test(timeout=300000)
+	public void mapInlineTest() {
+		SmallConcurrentMap<String, Integer> map = new SmallConcurrentMap<String, Integer>();
+		Assert.assertNull(map.put("a", 1));
+		Assert.assertEquals(Integer.valueOf(1), map.put("a", 2));
+		Assert.assertEquals(Integer.valueOf(2), map.putIfAbsent("a", 3));
+		Assert.assertEquals(Integer.valueOf(2), map.putIfAbsentElseGet("a", 4));
+		Assert.assertFalse(map.replace("a", 1, 5));
+		Assert.assertTrue(map.replace("a", 2, 5));
+		Assert.assertFalse(map.remove("a", 2));
+		Assert.assertTrue(map.remove("a", 5));
+		Assert.assertTrue(map.isEmpty());
+
+		for (int i = 0; i <= SmallConcurrentMap.INLINE_CAPACITY; i++)
+			map.put("k" + i, i);
+		Assert.assertTrue(map.isInflated());
+		for (int i = 0; i <= SmallConcurrentMap.INLINE_CAPACITY; i++)
+			Assert.assertEquals(Integer.valueOf(i), map.get("k" + i));
+	}
+
+	@Test(timeout=300000)
+	public void concurrentMapInsertTest() throws InterruptedException {
+		// All threads race for the same keys, exactly one of them may win
+		// every key
+		final SmallConcurrentMap<?, ?>[] maps = new SmallConcurrentMap<?, ?>[NUM_ROUNDS];
+		for (int i = 0; i < maps.length; i++)
+			maps[i] = new SmallConcurrentMap<Integer, Integer>();
+		final int numKeys = 3 * SmallConcurrentMap.INLINE_CAPACITY;
+		final AtomicInteger won = new AtomicInteger();
+		final AtomicInteger inconsistent = new AtomicInteger();
+		runConcurrently(new ThreadTask() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public void run(int threadId) {
+				for (SmallConcurrentMap<?, ?> map : maps) {
+					SmallConcurrentMap<Integer, Integer> curMap = (SmallConcurrentMap<Integer, Integer>) map;
+					for (int i = 0; i < numKeys; i++) {
+						int key = (i + threadId) % numKeys;
+						Integer value = threadId;
+						Integer winner = curMap.putIfAbsentElseGet(key, value);
+						if (winner == value)
+							won.incrementAndGet();
+						if (!winner.equals(curMap.get(key)))
+							inconsistent.incrementAndGet();
+					}
+				}
+			}
+
+		});
+
+		Assert.assertEquals(NUM_ROUNDS * numKeys, won.get());
+		Assert.assertEquals(0, inconsistent.get());
+		for (SmallConcurrentMap<?, ?> map : maps) {
+			Assert.assertEquals(numKeys, map.size());
+			Assert.assertTrue(map.isInflated());
+		}
+	}
+
+	@Test(timeout=300000)
+	public void concurrentMapRemoveTest() throws InterruptedException {
+		final SmallConcurrentMap<String, Integer> map = new SmallConcurrentMap<String, Integer>();
+		map.put("shared", -1);
+		final AtomicInteger lost = new AtomicInteger();
+		runConcurrently(new ThreadTask() {
+
+			@Override
+			public void run(int threadId) {
+				for (int i = 0; i < NUM_ROUNDS; i++) {
+					String key = threadId + "_" + i;
+					if (map.putIfAbsent(key, i) != null)
+						lost.incrementAndGet();
+					if (!Integer.valueOf(-1).equals(map.get("shared")))
+						lost.incrementAndGet();
+					if (!Integer.valueOf(i).equals(map.remove(key)))
+						lost.incrementAndGet();
+				}
+			}
+
+		});
+		Assert.assertEquals(0, lost.get());
+		Assert.assertEquals(1, map.size());
+		Assert.assertEquals(Integer.valueOf(-1), map.get("shared"));
+	}
+
+}
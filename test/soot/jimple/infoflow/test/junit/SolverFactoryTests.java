@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.SolverBenchmark;
+import soot.jimple.infoflow.SolverBenchmark.BenchmarkResult;
+import soot.jimple.infoflow.entryPointCreators.DefaultEntryPointCreator;
+import soot.jimple.infoflow.problems.AbstractInfoflowProblem;
+import soot.jimple.infoflow.solver.IInfoflowSolver;
+import soot.jimple.infoflow.solver.IInfoflowSolverFactory;
+import soot.jimple.infoflow.solver.executors.IInfoflowExecutor;
+import soot.jimple.infoflow.solver.fastSolver.FastSolverFactory;
+import soot.jimple.infoflow.source.DefaultSourceSinkManager;
+
+/**
+ * Tests for plugging in the data flow solvers through a factory
+ */
+public class SolverFactoryTests extends JUnitTests {
+
+	/**
+	 * Factory that counts the solvers it creates
+	 */
+	private static class CountingSolverFactory implements IInfoflowSolverFactory {
+
+		private final IInfoflowSolverFactory factory = new FastSolverFactory();
+		private int solverCount = 0;
+
+		@Override
+		public IInfoflowSolver createSolver(AbstractInfoflowProblem problem,
+				IInfoflowExecutor executor) {
+			solverCount++;
+			return factory.createSolver(problem, executor);
+		}
+
+	}
+
+	@Test(timeout=300000)
+	public void customFactoryTest(){
+		Infoflow infoflow = initInfoflow();
+		CountingSolverFactory factory = new CountingSolverFactory();
+		infoflow.setSolverFactory(factory);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+
+		// One forward and one backward solver
+		Assert.assertEquals(2, factory.solverCount);
+		Assert.assertTrue(infoflow.getSolverStatistics().getForwardPropagationCount() > 0);
+	}
+
+	@Test(timeout=300000)
+	public void benchmarkTest(){
+		Infoflow infoflow = initInfoflow();
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+
+		SolverBenchmark benchmark = new SolverBenchmark(infoflow);
+		benchmark.addSolver("fast", new FastSolverFactory());
+		benchmark.addSolver("counting", new CountingSolverFactory());
+		List<BenchmarkResult> results = benchmark.run(appPath, libPath,
+				new DefaultEntryPointCreator(epoints), new DefaultSourceSinkManager(sources, sinks));
+
+		Assert.assertEquals(2, results.size());
+		for (BenchmarkResult result : results) {
+			Assert.assertEquals(2, result.getResultCount());
+			Assert.assertNotNull(result.getStatistics());
+		}
+	}
+
+}
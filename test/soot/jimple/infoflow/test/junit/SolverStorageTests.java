@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.test.utilclasses.TestWrapper;
+
+/**
+ * Tests that the alternative storage schemes for the solvers' internal
+ * state yield the same results as the default ones
+ */
+public class SolverStorageTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void compactJumpFunctionsLoopTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setCompactJumpFunctions(true);
+		infoflow.setTaintWrapper(new TestWrapper());
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	@Test(timeout=300000)
+	public void compactJumpFunctionsMultiCallTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setCompactJumpFunctions(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void compactJumpFunctionsNegativeTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setCompactJumpFunctions(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void doubleCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+	@Test(timeout=300000)
+	public void jumpFunctionGCMultiCallTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableJumpFunctionGC(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void jumpFunctionGCLoopTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setEnableJumpFunctionGC(true);
+		infoflow.setTaintWrapper(new TestWrapper());
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+}
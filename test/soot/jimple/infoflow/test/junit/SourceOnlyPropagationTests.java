@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+import soot.jimple.infoflow.InfoflowResults.SourceInfo;
+import soot.jimple.infoflow.test.utilclasses.TestWrapper;
+
+/**
+ * Tests that taints which only carry their sources instead of their
+ * predecessors yield the same source/sink pairs as the reconstruction of the
+ * sources along the predecessors
+ */
+public class SourceOnlyPropagationTests extends JUnitTests {
+
+	@Test(timeout=300000)
+	public void sourceOnlyMultiCallTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setComputeResultPaths(false);
+		infoflow.setSourceOnlyPropagation(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void multiCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+	}
+
+	@Test(timeout=300000)
+	public void sourceOnlySeparateCallersTest(){
+		// Both callers pass their own source through the same callee, every
+		// sink must only see the source of its own caller
+		Infoflow infoflow = initInfoflow();
+		infoflow.setComputeResultPaths(false);
+		infoflow.setSourceOnlyPropagation(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void separateCallersTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+		Assert.assertTrue(infoflow.getResults().isPathBetweenMethods(sink, sourceDeviceId));
+		Assert.assertTrue(infoflow.getResults().isPathBetweenMethods(sink, sourcePwd));
+		for (Set<SourceInfo> sinkSources : infoflow.getResults().getResults().values())
+			Assert.assertEquals(1, sinkSources.size());
+	}
+
+	@Test(timeout=300000)
+	public void sourceOnlyLoopTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setComputeResultPaths(false);
+		infoflow.setSourceOnlyPropagation(true);
+		infoflow.setTaintWrapper(new TestWrapper());
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void testForLoop()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 1);
+	}
+
+	@Test(timeout=300000)
+	public void sourceOnlyNoPathsTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setComputeResultPaths(false);
+		infoflow.setSourceOnlyPropagation(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.OtherTestCode: void noPathsTest1()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 1);
+		Assert.assertTrue(infoflow.getResults().isPathBetweenMethods(sink, sourceDeviceId));
+	}
+
+	@Test(timeout=300000)
+	public void sourceOnlyNegativeTest(){
+		Infoflow infoflow = initInfoflow();
+		infoflow.setComputeResultPaths(false);
+		infoflow.setSourceOnlyPropagation(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.HeapTestCode: void doubleCallTest()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		negativeCheckInfoflow(infoflow);
+	}
+
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2012 Secure Software Engineering Group at EC SPRIDE.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.html
+ * 
+ * Contributors: Christian Fritz, Steven Arzt, Siegfried Rasthofer, Eric
+ * Bodden, and others.
+ ******************************************************************************/
+package soot.jimple.infoflow.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import soot.jimple.infoflow.Infoflow;
+
+/**
+ * Tests that reusing cached method summaries, either for library methods or
+ * for incremental re-analyses, does not change the results of the data flow
+ * analysis
+ */
+public class SummaryCacheTests extends JUnitTests {
+
+	private File createCacheFile() throws IOException {
+		File cacheFile = File.createTempFile("summaries", ".txt");
+		cacheFile.delete();
+		cacheFile.deleteOnExit();
+		return cacheFile;
+	}
+
+	private void runWithCache(File cacheFile, String epoint, int resultCount) {
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSummaryCacheFile(cacheFile.getAbsolutePath());
+		List<String> epoints = new ArrayList<String>();
+		epoints.add(epoint);
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, resultCount);
+	}
+
+	private Infoflow runIncremental(File cacheFile, String epoint) {
+		Infoflow infoflow = initInfoflow();
+		infoflow.setSummaryCacheFile(cacheFile.getAbsolutePath());
+		infoflow.setIncrementalAnalysis(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add(epoint);
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		return infoflow;
+	}
+
+	@Test(timeout=600000)
+	public void substringCacheTest() throws IOException {
+		File cacheFile = createCacheFile();
+		String epoint = "<soot.jimple.infoflow.test.StringTestCode: void methodSubstring()>";
+		runWithCache(cacheFile, epoint, 1);
+		assertTrue(cacheFile.exists());
+
+		resetSootAndStream();
+		runWithCache(cacheFile, epoint, 1);
+	}
+
+	@Test(timeout=600000)
+	public void lowerCaseCacheTest() throws IOException {
+		File cacheFile = createCacheFile();
+		String epoint = "<soot.jimple.infoflow.test.StringTestCode: void methodStringLowerCase()>";
+		runWithCache(cacheFile, epoint, 1);
+		assertTrue(cacheFile.exists());
+
+		resetSootAndStream();
+		runWithCache(cacheFile, epoint, 1);
+	}
+
+	@Test(timeout=600000)
+	public void incrementalSinkInCalleeTest() throws IOException {
+		File cacheFile = createCacheFile();
+		String epoint = "<soot.jimple.infoflow.test.MultiTestCode: void multiSourceCode()>";
+		Infoflow infoflow = runIncremental(cacheFile, epoint);
+		checkInfoflow(infoflow, 2);
+		assertTrue(cacheFile.exists());
+
+		// The flow into the sink inside the callee must also be reported if
+		// the callee is not explored again
+		resetSootAndStream();
+		infoflow = runIncremental(cacheFile, epoint);
+		checkInfoflow(infoflow, 2);
+		assertTrue(infoflow.getResults().isPathBetweenMethods(sink, sourcePwd));
+	}
+
+	@Test(timeout=600000)
+	public void incrementalRecursionTest() throws IOException {
+		File cacheFile = createCacheFile();
+		String epoint = "<soot.jimple.infoflow.test.MultiTestCode: void loopPathTestCode1()>";
+		Infoflow infoflow = runIncremental(cacheFile, epoint);
+		assertEquals(1, infoflow.getResults().size());
+
+		resetSootAndStream();
+		infoflow = runIncremental(cacheFile, epoint);
+		assertEquals(1, infoflow.getResults().size());
+		assertTrue(infoflow.getResults().isPathBetweenMethods(sink, sourcePwd));
+	}
+
+	@Test(timeout=600000)
+	public void bottomUpSummaryTest() {
+		Infoflow infoflow = initInfoflow();
+		infoflow.setBottomUpSummaries(true);
+		List<String> epoints = new ArrayList<String>();
+		epoints.add("<soot.jimple.infoflow.test.MultiTestCode: void multiSourceCode()>");
+		infoflow.computeInfoflow(appPath, libPath, epoints, sources, sinks);
+		checkInfoflow(infoflow, 2);
+		assertTrue(infoflow.getResults().isPathBetweenMethods(sink, sourcePwd));
+	}
+
+}